@@ -77,6 +77,7 @@ import menagerie.gui.util.*;
 import menagerie.model.Plugins;
 import menagerie.model.SimilarPair;
 import menagerie.model.menagerie.*;
+import menagerie.model.menagerie.db.DatabaseManager;
 import menagerie.model.menagerie.db.DatabaseUtil;
 import menagerie.model.menagerie.importer.ImportJob;
 import menagerie.model.menagerie.importer.ImporterThread;
@@ -85,7 +86,9 @@ import menagerie.model.menagerie.importer.WebImportJob;
 import menagerie.model.menagerie.itemhandler.properties.ItemProperties;
 import menagerie.model.search.GroupSearch;
 import menagerie.model.search.Search;
+import menagerie.model.search.SearchCache;
 import menagerie.model.search.SearchHistory;
+import menagerie.model.search.SearchTask;
 import menagerie.settings.MenagerieSettings;
 import menagerie.util.CancellableThread;
 import menagerie.util.FileUtil;
@@ -103,6 +106,8 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -200,6 +205,25 @@ public class MainController {
    */
   private Search currentSearch = null;
 
+  /**
+   * Task filling the results of the current search, if it has been started.
+   */
+  private SearchTask searchTask = null;
+
+  /**
+   * Recently left searches, restored when they are revisited and the library hasn't changed under them.
+   */
+  private final SearchCache searchCache = new SearchCache(16);
+
+  /**
+   * Runs search tasks off the JavaFX thread, one at a time.
+   */
+  private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "Search Thread");
+    thread.setDaemon(true);
+    return thread;
+  });
+
   /**
    * Item that is currently being displayed in the preview viewport.
    */
@@ -735,16 +759,18 @@ public class MainController {
       }
     });
     itemGridView.getSelected().addListener(
-        (ListChangeListener<? super Item>) c -> resultCountLabel.setText(
-            itemGridView.getSelected().size() + " / " + currentSearch.getResults().size()));
-    itemGridView.getItems().addListener((ListChangeListener<? super Item>) c -> {
-      while (c.next()) {
-        if (c.wasAdded()) {
-          itemGridView.getItems().sort(currentSearch.getComparator());
-          break;
-        }
-      }
-    });
+        (ListChangeListener<? super Item>) c -> updateResultCountLabel());
+  }
+
+  /**
+   * Shows the number of selected items and results, and whether the search is still running.
+   */
+  private void updateResultCountLabel() {
+    String text = itemGridView.getSelected().size() + " / " + currentSearch.getResults().size();
+    if (searchTask != null && !searchTask.isFinished()) {
+      text += " (searching\u2026)";
+    }
+    resultCountLabel.setText(text);
   }
 
   private void registerCellMouseClickEvent(ItemGridCell c) {
@@ -963,7 +989,7 @@ public class MainController {
     MenuItem elementTags = new MenuItem("Sync element tags to group");
     elementTags.setOnAction(event -> {
       GroupItem group = (GroupItem) selected.get(0);
-      group.getElements().forEach(item -> item.getTags().forEach(group::addTag));
+      group.getElements().forEach(item -> item.getTagSnapshot().forEach(group::addTag));
     });
     cm.getItems().add(elementTags);
     MenuItem reverse = new MenuItem("Reverse element order");
@@ -1129,7 +1155,7 @@ public class MainController {
     shuffledSearchButton.setSelected(history.isShuffled());
     searchTextField.setText(history.getSearch());
     applySearch(history.getSearch(), history.getGroupScope(), history.isDescending(),
-        history.isShowGrouped(), history.isShuffled());
+        history.isShowGrouped(), history.isShuffled(), true);
     searchHistory.pop(); // Pop history item that was JUST created by the new search.
 
     if (searchHistory.isEmpty()) {
@@ -1170,6 +1196,20 @@ public class MainController {
    */
   private void applySearch(String search, GroupItem groupScope, boolean descending,
                            boolean showGrouped, boolean shuffled) {
+    applySearch(search, groupScope, descending, showGrouped, shuffled, false);
+  }
+
+  /**
+   * Parses a search string, applies the search, updates grid, registers search listeners, and previews first item.
+   * A cached search is reused if it is still up to date.
+   *
+   * @param search      Search string to parse rules from.
+   * @param descending  Order results in descending order.
+   * @param showGrouped Show MediaItems that are in a group.
+   * @param restore     Reuse a cached shuffled search in its previous order, instead of shuffling again.
+   */
+  private void applySearch(String search, GroupItem groupScope, boolean descending,
+                           boolean showGrouped, boolean shuffled, boolean restore) {
     LOGGER.info(() ->
         "Searching: \"" + search + "\", group:" + groupScope + ", descending:" + descending +
             ", showGrouped:" + showGrouped + ", shuffled:" + shuffled);
@@ -1182,28 +1222,58 @@ public class MainController {
     shuffledSearchButton.setSelected(shuffled && !inGroup);
     showGroupedToggleButton.setDisable(inGroup);
     showGroupedToggleButton.setSelected(showGrouped || inGroup);
-    if (inGroup) {
+    final Search cached = !shuffled || restore ?
+        searchCache.take(search, groupScope, descending, showGrouped, shuffled, menagerie) : null;
+    if (cached != null) {
+      currentSearch = cached;
+    } else if (inGroup) {
       currentSearch = new GroupSearch(search, groupScope, descending, shuffled);
+    } else {
+      currentSearch = new Search(search, descending, showGrouped, shuffled);
+    }
+    if (inGroup) {
       scopeLabel.setText("Scope: " + groupScope.getTitle());
       Tooltip tt = new Tooltip(groupScope.getTitle());
       tt.setWrapText(true);
       scopeLabel.setTooltip(tt);
     } else {
-      currentSearch = new Search(search, descending, showGrouped, shuffled);
       scopeLabel.setText("Scope: All");
       scopeLabel.setTooltip(null);
     }
     menagerie.registerSearch(currentSearch);
-    currentSearch.refreshSearch(menagerie.getItems());
     currentSearch.getResults().addListener(searchChangeListener);
 
     itemGridView.clearSelection();
+    if (cached != null) {
+      LOGGER.info(() -> "Restored " + cached.getResults().size() + " cached results");
+      itemGridView.getItems().setAll(cached.getResults());
+      if (!itemGridView.getItems().isEmpty()) {
+        itemGridView.select(itemGridView.getItems().get(0), false, false);
+      }
+      updateResultCountLabel();
+      return;
+    }
     itemGridView.getItems().clear();
-    itemGridView.getItems().addAll(currentSearch.getResults());
 
-    if (!itemGridView.getItems().isEmpty()) {
-      itemGridView.select(itemGridView.getItems().get(0), false, false);
-    }
+    // Results are streamed into the grid by the search change listener as the task finds them
+    searchTask = new SearchTask(currentSearch, menagerie, Platform::runLater,
+        itemGridView.getScreenfulSize());
+    final boolean[] selectFirst = {true};
+    searchTask.setOnProgress(() -> {
+      if (selectFirst[0] && !itemGridView.getItems().isEmpty()) {
+        selectFirst[0] = false;
+        if (itemGridView.getSelected().isEmpty()) {
+          itemGridView.select(itemGridView.getItems().get(0), false, false);
+        }
+      }
+      updateResultCountLabel();
+    });
+    final SearchTask task = searchTask;
+    searchTask.setOnFinished(() -> LOGGER.info(
+        () -> "Search found " + task.getSearch().getResults().size() + " results: \"" +
+            task.getSearch().getSearchString() + "\""));
+    updateResultCountLabel();
+    searchExecutor.submit(searchTask);
   }
 
   private void cleanupPreviousSearch() {
@@ -1220,6 +1290,13 @@ public class MainController {
 
       menagerie.unregisterSearch(currentSearch);
       currentSearch.getResults().removeListener(searchChangeListener);
+      if (searchTask == null || searchTask.isFinished()) {
+        searchCache.put(currentSearch, menagerie);
+      }
+    }
+    if (searchTask != null) {
+      searchTask.cancel();
+      searchTask = null;
     }
     previewItem(null);
   }
@@ -1275,22 +1352,18 @@ public class MainController {
     if (t == null) {
       t = menagerie.createTag(token);
     }
-    for (Item item : itemGridView.getSelected()) {
-      if (item.addTag(t)) {
-        changed.add(item);
-        added.computeIfAbsent(item, k -> new ArrayList<>()).add(t);
-      }
+    for (Item item : Item.addTagToAll(t, itemGridView.getSelected())) {
+      changed.add(item);
+      added.computeIfAbsent(item, k -> new ArrayList<>()).add(t);
     }
   }
 
   private void findChangedItemsAndRemovedTags(List<Item> changed, Map<Item, List<Tag>> removed, String token) {
     Tag t = menagerie.getTagByName(token.substring(1));
     if (t != null) {
-      for (Item item : itemGridView.getSelected()) {
-        if (item.removeTag(t)) {
-          changed.add(item);
-          removed.computeIfAbsent(item, k -> new ArrayList<>()).add(t);
-        }
+      for (Item item : Item.removeTagFromAll(t, itemGridView.getSelected())) {
+        changed.add(item);
+        removed.computeIfAbsent(item, k -> new ArrayList<>()).add(t);
       }
     }
   }
@@ -1350,6 +1423,7 @@ public class MainController {
     DynamicVideoView.releaseAllVLCJ();
     Thumbnail.releaseVLCJResources();
 
+    searchExecutor.shutdownNow();
     plugins.closeAll();
     settings.save();
     DatabaseUtil.shutDownDatabase(revertDatabase, menagerie, settings.dbUrl.getValue());
@@ -1633,7 +1707,8 @@ public class MainController {
         event.consume();
         break;
       case Q:
-        menagerie.getDatabaseManager().enqueue(() -> cleanExit(false));
+        // Lowest lane runs last, so every update queued before the exit is written first
+        menagerie.getDatabaseManager().enqueue(() -> cleanExit(false), DatabaseManager.Priority.BACKGROUND);
         event.consume();
         break;
       case S:
@@ -78,7 +78,7 @@ public class SplashController {
   private final List<Image> icons;
   private final Image splashBackground;
 
-  private long lastProgressUpdate = 0;
+  private volatile long lastProgressUpdate = 0;
 
 
   public SplashController(List<Image> icons, Image splashBackground) {
@@ -127,6 +127,18 @@ public class SplashController {
         return;
       }
       databaseManager.setLoadListener(getDatabaseLoadListener());
+      databaseManager.setParallelLoad(() -> openConnection(settings),
+          settings.dbLoadThreads.getValue());
+      if (settings.dbSnapshot.getValue()) {
+        databaseManager.setSnapshotFile(DatabaseUtil.resolveSnapshotFile(settings.dbUrl.getValue()));
+      }
+      // Hashes requested from the UI are queued past the limit, the UI thread must never wait on the database
+      databaseManager.setBackpressure(settings.dbBackgroundQueueLimit.getValue(),
+          () -> !Platform.isFxApplicationThread());
+      if (settings.dbWriteBehindGroup.isEnabled()) {
+        databaseManager.setWriteBehind(settings.dbBurstSize.getValue(),
+            settings.dbCommitLatency.getValue());
+      }
       databaseManager.setDaemon(true);
       databaseManager.start();
 
@@ -188,6 +200,26 @@ public class SplashController {
         updateProgress(count, total);
       }
 
+      @Override
+      public void startTaggedLoading(int total) {
+        Platform.runLater(() -> statusLabel.setText("Loading " + total + " item tags..."));
+      }
+
+      @Override
+      public void taggedLoading(int count, int total) {
+        updateProgress(count, total);
+      }
+
+      @Override
+      public void startedParallelLoading(int total) {
+        Platform.runLater(() -> statusLabel.setText("Loading " + total + " database rows..."));
+      }
+
+      @Override
+      public void parallelLoading(int count, int total) {
+        updateProgress(count, total);
+      }
+
       private void updateProgress(int count, int total) {
         long time = System.currentTimeMillis();
         if (time - lastProgressUpdate > PROGRESS_UPDATE_INTERVAL) {
@@ -259,8 +291,7 @@ public class SplashController {
         "Connecting to database: " + settings.dbUrl.getValue() + "..."));
     Connection database;
     try {
-      database = DriverManager.getConnection("jdbc:h2:" + settings.dbUrl.getValue(),
-          settings.dbUser.getValue(), settings.dbPass.getValue());
+      database = openConnection(settings);
     } catch (SQLException e) {
       LOGGER.log(Level.SEVERE, String.format("Error connecting to database: %s", settings.dbUrl.getValue()), e);
       Platform.runLater(() -> {
@@ -274,6 +305,11 @@ public class SplashController {
     return database;
   }
 
+  private static Connection openConnection(MenagerieSettings settings) throws SQLException {
+    return DriverManager.getConnection("jdbc:h2:" + settings.dbUrl.getValue(),
+        settings.dbUser.getValue(), settings.dbPass.getValue());
+  }
+
   private boolean tryBackupDatabase(MenagerieSettings settings) {
     if (settings.dbBackup.getValue()) {
       Platform.runLater(() -> statusLabel.setText("Backing up database..."));
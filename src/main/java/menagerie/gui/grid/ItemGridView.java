@@ -231,6 +231,13 @@ public class ItemGridView extends GridView<Item> {
                                            getHorizontalCellSpacing() * 2));
   }
 
+  /**
+   * @return The number of cells that fit on screen, counting a partially visible row. At least 1.
+   */
+  public int getScreenfulSize() {
+    return Math.max(1, (getPageLength() + 1) * getRowLength());
+  }
+
   /**
    * Selects an item.
    *
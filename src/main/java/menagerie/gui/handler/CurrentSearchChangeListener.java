@@ -1,11 +1,12 @@
 package menagerie.gui.handler;
 
 import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
 import menagerie.gui.grid.ItemGridView;
 import menagerie.model.menagerie.Item;
 import menagerie.util.Action;
 
-import java.util.List;
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 public class CurrentSearchChangeListener implements ListChangeListener<Item> {
@@ -21,13 +22,19 @@ public class CurrentSearchChangeListener implements ListChangeListener<Item> {
     this.resetPreview = resetPreview;
   }
 
+  /**
+   * Mirrors the changes to the search results in the grid, which holds the results in the same order.
+   *
+   * @param c Change to the search results.
+   */
   @Override
   public void onChanged(Change<? extends Item> c) {
+    int lastIndex = itemGridView.getItems().indexOf(itemGridView.getLastSelected());
+    boolean removed = false;
     while (c.next()) {
-      // Added
-      if (c.wasAdded()) {
-        itemGridView.getItems().addAll(0,
-            c.getAddedSubList()); // TODO: Insert these in the right position or sort it or something.
+      if (c.wasPermutated()) {
+        lastIndex = permute(c, lastIndex);
+        continue;
       }
 
       // Removed
@@ -36,14 +43,47 @@ public class CurrentSearchChangeListener implements ListChangeListener<Item> {
           resetPreview.execute();
         }
 
-        final int oldLastIndex = itemGridView.getItems().indexOf(itemGridView.getLastSelected());
-        int newIndex = getNewIndex(c.getRemoved(), oldLastIndex);
-
-        itemGridView.getItems().removeAll(c.getRemoved());
+        if (c.getFrom() < lastIndex) {
+          lastIndex -= Math.min(c.getRemovedSize(), lastIndex - c.getFrom());
+        }
+        itemGridView.getItems().remove(c.getFrom(), c.getFrom() + c.getRemovedSize());
+        removed = true;
+      }
 
-        updateGridViewSelection(newIndex);
+      // Added
+      if (c.wasAdded()) {
+        if (c.getFrom() <= lastIndex) {
+          lastIndex += c.getAddedSize();
+        }
+        itemGridView.getItems().addAll(c.getFrom(), c.getAddedSubList());
       }
     }
+
+    if (removed) {
+      updateGridViewSelection(lastIndex);
+    }
+  }
+
+  /**
+   * Reorders the grid items covered by a permutation of the search results, e.g. when the results are sorted.
+   *
+   * @param c         Permutation change.
+   * @param lastIndex Grid index of the last selected item.
+   * @return Grid index of the last selected item after the permutation.
+   */
+  private int permute(Change<? extends Item> c, int lastIndex) {
+    final ObservableList<Item> items = itemGridView.getItems();
+    final Item[] permuted = new Item[c.getTo() - c.getFrom()];
+    for (int i = c.getFrom(); i < c.getTo(); i++) {
+      permuted[c.getPermutation(i) - c.getFrom()] = items.get(i);
+    }
+    items.remove(c.getFrom(), c.getTo());
+    items.addAll(c.getFrom(), Arrays.asList(permuted));
+
+    if (lastIndex >= c.getFrom() && lastIndex < c.getTo()) {
+      return c.getPermutation(lastIndex);
+    }
+    return lastIndex;
   }
 
   private void updateGridViewSelection(int newIndex) {
@@ -57,19 +97,4 @@ public class CurrentSearchChangeListener implements ListChangeListener<Item> {
     }
   }
 
-  private int getNewIndex(List<? extends Item> removedItems, int oldLastIndex) {
-    int newIndex = oldLastIndex;
-    for (Item item : removedItems) {
-      final int i = itemGridView.getItems().indexOf(item);
-      if (i < 0) {
-        continue;
-      }
-
-      if (i < oldLastIndex) {
-        newIndex--;
-      }
-    }
-    return newIndex;
-  }
-
 }
@@ -43,7 +43,7 @@ public class EditTagsTextFieldOptionsListener implements PredictiveTextFieldOpti
     List<Tag> tags;
     tags = new ArrayList<>();
     for (Item item : itemGridView.getSelected()) {
-      item.getTags().forEach(tag -> {
+      item.getTagSnapshot().forEach(tag -> {
         if (!tags.contains(tag)) {
           tags.add(tag);
         }
@@ -162,7 +162,7 @@ public class GroupDialogScreen extends Screen {
       group.addTag(tagme);
     }
     if (elementTagsCheckBox.isSelected()) {
-      group.getElements().forEach(item -> item.getTags().forEach(group::addTag));
+      group.getElements().forEach(item -> item.getTagSnapshot().forEach(group::addTag));
     }
 
     if (groupListener != null) {
@@ -301,14 +301,8 @@ public class CUDADuplicateFinder {
     final int size = ImageHistogram.BIN_SIZE * ImageHistogram.NUM_CHANNELS;
     float[] data = new float[N * size];
     for (int i = 0; i < trueSet.size(); i++) {
-      final ImageHistogram hist = trueSet.get(i).getHistogram();
-      for (int j = 0; j < ImageHistogram.BIN_SIZE; j++) {
-        // Convert to float because GPUs work best with single precision
-        data[i * size + j] = (float) hist.getAlpha()[j];
-        data[i * size + j + ImageHistogram.BIN_SIZE] = (float) hist.getRed()[j];
-        data[i * size + j + ImageHistogram.BIN_SIZE * 2] = (float) hist.getGreen()[j];
-        data[i * size + j + ImageHistogram.BIN_SIZE * 3] = (float) hist.getBlue()[j];
-      }
+      // Bins are already single precision, which GPUs work best with
+      trueSet.get(i).getHistogram().copyInto(data, i * size);
     }
     return data;
   }
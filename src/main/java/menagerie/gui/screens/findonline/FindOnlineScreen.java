@@ -246,7 +246,7 @@ public class FindOnlineScreen extends Screen {
     tagListView.setFocusTraversable(false);
     tagListView.setCellFactory(param -> {
       OnlineTagListCell c = new OnlineTagListCell(tagNeme -> {
-        for (Tag t : currentMatch.get().getItem().getTags()) {
+        for (Tag t : currentMatch.get().getItem().getTagSnapshot()) {
           if (t.getName().equalsIgnoreCase(tagNeme)) {
             return true;
           }
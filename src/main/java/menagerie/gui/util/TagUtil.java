@@ -33,21 +33,15 @@ public class TagUtil {
 
   public static Map<Item, List<Tag>> removeTags(TagListCell c, ItemGridView itemGridView) {
     Map<Item, List<Tag>> removed = new HashMap<>();
-    itemGridView.getSelected().forEach(item -> {
-      if (item.removeTag(c.getItem())) {
-        removed.computeIfAbsent(item, k -> new ArrayList<>()).add(c.getItem());
-      }
-    });
+    Item.removeTagFromAll(c.getItem(), itemGridView.getSelected())
+        .forEach(item -> removed.computeIfAbsent(item, k -> new ArrayList<>()).add(c.getItem()));
     return removed;
   }
 
   public static Map<Item, List<Tag>> addTags(TagListCell c, ItemGridView itemGridView) {
     Map<Item, List<Tag>> added = new HashMap<>();
-    itemGridView.getSelected().forEach(item -> {
-      if (item.addTag(c.getItem())) {
-        added.computeIfAbsent(item, k -> new ArrayList<>()).add(c.getItem());
-      }
-    });
+    Item.addTagToAll(c.getItem(), itemGridView.getSelected())
+        .forEach(item -> added.computeIfAbsent(item, k -> new ArrayList<>()).add(c.getItem()));
     return added;
   }
 
@@ -78,7 +78,8 @@ public class GroupItem extends Item {
       updateIndices();
     }
     if (menagerie != null) {
-      menagerie.refreshInSearches(item);
+      // The group is refreshed too, so its epoch records the change in membership
+      menagerie.refreshInSearches(List.of(item, this));
     }
     return true;
   }
@@ -95,7 +96,7 @@ public class GroupItem extends Item {
         updateIndices();
       }
       if (menagerie != null) {
-        menagerie.refreshInSearches(item);
+        menagerie.refreshInSearches(List.of(item, this));
       }
       return true;
     }
@@ -111,6 +112,7 @@ public class GroupItem extends Item {
     elements.forEach(mediaItem -> mediaItem.setGroup(null));
     elements.clear();
     if (menagerie != null) {
+      temp.add(this);
       menagerie.refreshInSearches(temp);
     }
   }
@@ -156,14 +158,20 @@ public class GroupItem extends Item {
   }
 
   /**
-   * Checks all elements and updates their page index if not synced.
+   * Checks all elements and updates their page index if not synced. If any index changed, the group is reported as
+   * changed, so searches cached in the group's old page order are dropped.
    */
   private void updateIndices() {
+    boolean changed = false;
     for (int i = 0; i < elements.size(); i++) {
       if (elements.get(i).getPageIndex() != i) {
         elements.get(i).setPageIndex(i);
+        changed = true;
       }
     }
+    if (changed && menagerie != null) {
+      menagerie.itemChanged(this);
+    }
   }
 
   /**
@@ -202,6 +210,7 @@ public class GroupItem extends Item {
    * @param str New title.
    */
   public synchronized void setTitle(String str) {
+    final String oldTitle = title.get();
     title.set(str);
 
     if (!isInvalidated()) {
@@ -209,6 +218,7 @@ public class GroupItem extends Item {
         menagerie.getDatabaseManager().setGroupTitleAsync(getId(), title.get());
       }
       if (menagerie != null) {
+        menagerie.groupRetitled(this, oldTitle);
         menagerie.refreshInSearches(this);
       }
     }
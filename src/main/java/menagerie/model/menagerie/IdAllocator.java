@@ -0,0 +1,82 @@
+package menagerie.model.menagerie;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Thread-safe allocator of unique item or tag IDs.
+ * <p>
+ * IDs are handed out from an atomic counter. The database stores a high-water mark that no handed out ID reaches. The
+ * mark is raised a block of {@link #BLOCK_SIZE} IDs at a time, so only the first allocation of each block writes to
+ * the database, and no ID is handed out before the mark covering it has been stored.
+ */
+class IdAllocator {
+
+  private static final Logger LOGGER = Logger.getLogger(IdAllocator.class.getName());
+
+  /**
+   * Number of IDs reserved by each write of the high-water mark.
+   */
+  static final int BLOCK_SIZE = 1000;
+
+  /**
+   * Persists a high-water mark.
+   */
+  @FunctionalInterface
+  interface MarkWriter {
+    void write(int mark) throws SQLException;
+  }
+
+  private final String name;
+  private final AtomicInteger next;
+  private final MarkWriter writer;
+  private volatile int reserved;
+
+  /**
+   * @param name     Name of the allocated IDs, used in log messages.
+   * @param first    First ID to hand out.
+   * @param reserved Stored high-water mark. IDs below it can be handed out without writing a new mark.
+   * @param writer   Persists a raised high-water mark.
+   */
+  IdAllocator(String name, int first, int reserved, MarkWriter writer) {
+    this.name = name;
+    this.next = new AtomicInteger(first);
+    this.reserved = reserved;
+    this.writer = writer;
+  }
+
+  /**
+   * @return A new unique ID.
+   */
+  int next() {
+    final int id = next.getAndIncrement();
+    if (id >= reserved) {
+      reserve(id);
+    }
+    return id;
+  }
+
+  /**
+   * Raises the high-water mark past an ID. Threads that allocated IDs past the old mark wait here until the new mark is
+   * stored.
+   *
+   * @param id ID that must be covered by the mark.
+   */
+  private synchronized void reserve(int id) {
+    if (id < reserved) {
+      return;
+    }
+
+    final int mark = (id / BLOCK_SIZE + 1) * BLOCK_SIZE;
+    try {
+      writer.write(mark);
+    } catch (SQLException e) {
+      // IDs stay unique for this session, the next startup also starts past the highest loaded ID
+      LOGGER.log(Level.SEVERE, "Failed to store " + name + " ID high-water mark: " + mark, e);
+    }
+    reserved = mark;
+  }
+
+}
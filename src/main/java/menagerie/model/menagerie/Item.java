@@ -24,12 +24,17 @@
 
 package menagerie.model.menagerie;
 
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
 import menagerie.gui.Thumbnail;
 import menagerie.model.menagerie.db.DatabaseManager;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -40,12 +45,17 @@ public abstract class Item implements Comparable<Item> {
 
   private static final Logger LOGGER = Logger.getLogger(Item.class.getName());
 
+  private static final Tag[] NO_TAGS = new Tag[0];
+
   private boolean invalidated = false;
 
   protected Menagerie menagerie;
   protected int id;
   protected long dateAdded;
-  protected ObservableList<Tag> tags = FXCollections.observableArrayList();
+  // Sorted by tag id and replaced on every change, so published arrays are never modified
+  private Tag[] tags = NO_TAGS;
+  // Observable view of tags, only created once something asks for it
+  private TagsView tagsView = null;
   private final Map<String, Object> metadata = new HashMap<>();
 
 
@@ -84,10 +94,31 @@ public abstract class Item implements Comparable<Item> {
   public abstract void purgeThumbnail();
 
   /**
+   * Observable, read-only view of the tags this item is tagged with, sorted by tag id. The view is created on first use
+   * and fires change events from then on. Code that only reads the tags should use {@link #getTagSnapshot()},
+   * {@link #getTagCount()} or {@link #hasTag(Tag)} instead, which don't create it.
+   *
    * @return The tags this item is tagged with.
    */
   public ObservableList<Tag> getTags() {
-    return tags;
+    if (tagsView == null) {
+      tagsView = new TagsView();
+    }
+    return tagsView;
+  }
+
+  /**
+   * @return The tags this item is tagged with, sorted by tag id. Unmodifiable, and not affected by later changes.
+   */
+  public List<Tag> getTagSnapshot() {
+    return Collections.unmodifiableList(Arrays.asList(tags));
+  }
+
+  /**
+   * @return The number of tags this item is tagged with.
+   */
+  public int getTagCount() {
+    return tags.length;
   }
 
   /**
@@ -98,7 +129,59 @@ public abstract class Item implements Comparable<Item> {
     if (t == null) {
       return false;
     }
-    return tags.contains(t);
+    return indexOfTag(t.getId()) >= 0;
+  }
+
+  /**
+   * @param tagId ID of tag to find.
+   * @return Index of the tag in {@link #tags}, or (-(insertion point) - 1) if this item doesn't have it.
+   */
+  private int indexOfTag(int tagId) {
+    int low = 0;
+    int high = tags.length - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int midId = tags[mid].getId();
+      if (midId < tagId) {
+        low = mid + 1;
+      } else if (midId > tagId) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Adds tags loaded from the database. Neither the tags' posting lists nor the database are updated.
+   *
+   * @param loaded Tags to add. Tags this item already has are skipped.
+   */
+  public void addLoadedTags(Collection<Tag> loaded) {
+    if (loaded.isEmpty()) {
+      return;
+    }
+
+    final Tag[] merged = Arrays.copyOf(tags, tags.length + loaded.size());
+    int size = tags.length;
+    for (Tag t : loaded) {
+      merged[size++] = t;
+    }
+    Arrays.sort(merged, 0, size);
+
+    int unique = 0;
+    for (int i = 0; i < size; i++) {
+      if (unique == 0 || merged[unique - 1].getId() != merged[i].getId()) {
+        merged[unique++] = merged[i];
+      }
+    }
+
+    final Tag[] old = tags;
+    tags = unique == merged.length ? merged : Arrays.copyOf(merged, unique);
+    if (tagsView != null && tags.length != old.length) {
+      tagsView.fireAdded(old);
+    }
   }
 
   /**
@@ -108,17 +191,12 @@ public abstract class Item implements Comparable<Item> {
    * @return True if this tag was added to this item. False otherwise.
    */
   public boolean addTag(Tag t) {
-    if (t == null || hasTag(t)) {
+    if (!attachTag(t)) {
       return false;
     }
 
-    tags.add(t);
-    if (!isInvalidated()) {
-      t.incrementFrequency();
-
-      if (hasDatabase()) {
-        menagerie.getDatabaseManager().tagItemAsync(id, t.getId());
-      }
+    if (!isInvalidated() && hasDatabase()) {
+      menagerie.getDatabaseManager().tagItemAsync(id, t.getId());
     }
 
     return true;
@@ -131,16 +209,118 @@ public abstract class Item implements Comparable<Item> {
    * @return True if the tag was removed.
    */
   public boolean removeTag(Tag t) {
-    if (t == null || !hasTag(t)) {
+    if (!detachTag(t)) {
       return false;
     }
 
-    tags.remove(t);
+    if (!isInvalidated() && hasDatabase()) {
+      menagerie.getDatabaseManager().untagItemAsync(id, t.getId());
+    }
+
+    return true;
+  }
+
+  /**
+   * Adds a tag to each of the items. The database is updated with one bulk update instead of one update per item.
+   *
+   * @param t     Tag to add.
+   * @param items Items to add the tag to.
+   * @return The items the tag was added to, in iteration order.
+   */
+  public static List<Item> addTagToAll(Tag t, Collection<? extends Item> items) {
+    return editTagOnAll(t, items, true);
+  }
+
+  /**
+   * Removes a tag from each of the items. The database is updated with one bulk update instead of one update per item.
+   *
+   * @param t     Tag to remove.
+   * @param items Items to remove the tag from.
+   * @return The items the tag was removed from, in iteration order.
+   */
+  public static List<Item> removeTagFromAll(Tag t, Collection<? extends Item> items) {
+    return editTagOnAll(t, items, false);
+  }
+
+  private static List<Item> editTagOnAll(Tag t, Collection<? extends Item> items, boolean add) {
+    final List<Item> changed = new ArrayList<>();
+    final Map<DatabaseManager, List<Integer>> writes = new HashMap<>();
+    for (Item item : items) {
+      if (add ? item.attachTag(t) : item.detachTag(t)) {
+        changed.add(item);
+        if (!item.isInvalidated() && item.hasDatabase()) {
+          writes.computeIfAbsent(item.getDatabase(), k -> new ArrayList<>()).add(item.getId());
+        }
+      }
+    }
+
+    writes.forEach((database, ids) -> {
+      final int[] array = ids.stream().mapToInt(Integer::intValue).toArray();
+      if (add) {
+        database.tagItemsAsync(array, t.getId());
+      } else {
+        database.untagItemsAsync(array, t.getId());
+      }
+    });
+
+    return changed;
+  }
+
+  /**
+   * Adds a tag to this item in memory only.
+   *
+   * @param t Tag to add.
+   * @return True if the tag was added.
+   */
+  private boolean attachTag(Tag t) {
+    final int found = t == null ? 0 : indexOfTag(t.getId());
+    if (found >= 0) {
+      return false;
+    }
+
+    final int index = -(found + 1);
+    final Tag[] added = new Tag[tags.length + 1];
+    System.arraycopy(tags, 0, added, 0, index);
+    added[index] = t;
+    System.arraycopy(tags, index, added, index + 1, tags.length - index);
+    tags = added;
+    if (tagsView != null) {
+      tagsView.fireAdded(index);
+    }
     if (!isInvalidated()) {
-      t.decrementFrequency();
+      t.addItem(id);
+      if (menagerie != null) {
+        menagerie.itemChanged(this);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Removes a tag from this item in memory only.
+   *
+   * @param t Tag to remove.
+   * @return True if the tag was removed.
+   */
+  private boolean detachTag(Tag t) {
+    final int index = t == null ? -1 : indexOfTag(t.getId());
+    if (index < 0) {
+      return false;
+    }
 
-      if (hasDatabase()) {
-        menagerie.getDatabaseManager().untagItemAsync(id, t.getId());
+    final Tag removed = tags[index];
+    final Tag[] remaining = new Tag[tags.length - 1];
+    System.arraycopy(tags, 0, remaining, 0, index);
+    System.arraycopy(tags, index + 1, remaining, index, remaining.length - index);
+    tags = remaining.length == 0 ? NO_TAGS : remaining;
+    if (tagsView != null) {
+      tagsView.fireRemoved(index, removed);
+    }
+    if (!isInvalidated()) {
+      t.removeItem(id);
+      if (menagerie != null) {
+        menagerie.itemChanged(this);
       }
     }
 
@@ -173,15 +353,14 @@ public abstract class Item implements Comparable<Item> {
   protected boolean forget() {
     LOGGER.info("Dropping item from Menagerie: " + getId());
 
-    if (isInvalidated() || menagerie == null || !menagerie.getItems().remove(this)) {
+    if (isInvalidated() || menagerie == null || !menagerie.removeItem(this)) {
       return false;
     }
 
     menagerie.itemRemoved(this);
-    if (hasDatabase()) {
-      getDatabase().removeItemAsync(getId());
+    for (Tag t : tags) {
+      t.removeItem(id);
     }
-    getTags().forEach(Tag::decrementFrequency);
     invalidate();
 
     return true;
@@ -218,6 +397,52 @@ public abstract class Item implements Comparable<Item> {
     return metadata;
   }
 
+  /**
+   * Read-only observable view over {@link #tags}. Changes are fired by the item as it replaces the array.
+   */
+  private final class TagsView extends ObservableListBase<Tag> {
+
+    @Override
+    public Tag get(int index) {
+      return tags[index];
+    }
+
+    @Override
+    public int size() {
+      return tags.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return o instanceof Tag t && hasTag(t);
+    }
+
+    private void fireAdded(int index) {
+      beginChange();
+      nextAdd(index, index + 1);
+      endChange();
+    }
+
+    private void fireAdded(Tag[] old) {
+      beginChange();
+      for (int i = 0, j = 0; i < tags.length; i++) {
+        if (j < old.length && old[j].getId() == tags[i].getId()) {
+          j++;
+        } else {
+          nextAdd(i, i + 1);
+        }
+      }
+      endChange();
+    }
+
+    private void fireRemoved(int index, Tag removed) {
+      beginChange();
+      nextRemove(index, removed);
+      endChange();
+    }
+
+  }
+
   @Override
   public boolean equals(Object obj) {
     return obj instanceof Item && ((Item) obj).getId() == getId();
@@ -0,0 +1,396 @@
+package menagerie.model.menagerie;
+
+import menagerie.gui.itemhandler.Items;
+import menagerie.model.menagerie.itemhandler.properties.ItemProperties;
+import menagerie.model.menagerie.itemhandler.search.ItemSearch;
+import menagerie.util.IntBitmap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scalar facts of every item in a Menagerie, kept in parallel primitive arrays indexed by a dense slot.
+ * <p>
+ * Slots are in ascending ID order, so the slot of an ID is found by binary search and selected IDs come out sorted.
+ * Removed items leave a hole that is skipped, and the arrays are compacted once a quarter of the slots are holes.
+ * Filters over the columns are evaluated as plain loops over the arrays, split across the common fork/join pool for
+ * large Menageries, without touching the items themselves.
+ * <p>
+ * Rows are updated by the Menagerie when items report a change. All methods are synchronized, since hashing and
+ * histograms are computed on background threads.
+ */
+public class ItemColumns {
+
+  /**
+   * Type bit of media items.
+   */
+  public static final int MEDIA = 1;
+  /**
+   * Type bit of images.
+   */
+  public static final int IMAGE = 1 << 1;
+  /**
+   * Type bit of videos.
+   */
+  public static final int VIDEO = 1 << 2;
+  /**
+   * Type bit of groups.
+   */
+  public static final int GROUP = 1 << 3;
+  /**
+   * Type of removed slots.
+   */
+  private static final byte REMOVED = (byte) 0x80;
+
+  /**
+   * Flag of items without an MD5.
+   */
+  public static final int MISSING_MD5 = 1;
+  /**
+   * Flag of items without a histogram.
+   */
+  public static final int MISSING_HISTOGRAM = 1 << 1;
+  /**
+   * Flag of items with no similar items.
+   */
+  public static final int NO_SIMILAR = 1 << 2;
+
+  /**
+   * Number of slots below which a filter is not split across threads.
+   */
+  static final int PARALLEL_THRESHOLD = 1 << 15;
+
+  /**
+   * Predicate over the columns of one slot.
+   */
+  @FunctionalInterface
+  public interface Filter {
+
+    boolean test(ItemColumns columns, int slot);
+
+    default Filter negate() {
+      return (columns, slot) -> !test(columns, slot);
+    }
+
+    /**
+     * @param filters Filters that must all accept a slot.
+     * @return A filter that accepts slots accepted by every filter, checked in order.
+     */
+    static Filter all(List<Filter> filters) {
+      final Filter[] array = filters.toArray(new Filter[0]);
+      return (columns, slot) -> {
+        for (Filter filter : array) {
+          if (!filter.test(columns, slot)) {
+            return false;
+          }
+        }
+        return true;
+      };
+    }
+
+  }
+
+  private int[] ids = new int[16];
+  private long[] datesAdded = new long[16];
+  private int[] tagCounts = new int[16];
+  private byte[] types = new byte[16];
+  private int[] groupIds = new int[16];
+  private byte[] flags = new byte[16];
+  private int size = 0;
+  private int removed = 0;
+
+
+  /**
+   * @param items Items to fill the columns with.
+   */
+  ItemColumns(List<Item> items) {
+    final Item[] sorted = items.toArray(new Item[0]);
+    Arrays.sort(sorted);
+    ensureCapacity(sorted.length);
+    for (Item item : sorted) {
+      if (size == 0 || ids[size - 1] != item.getId()) {
+        ids[size] = item.getId();
+        write(size++, item);
+      }
+    }
+  }
+
+  /**
+   * @param min Smallest tag count, inclusive.
+   * @param max Largest tag count, inclusive.
+   * @return A filter of items with a tag count in the range.
+   */
+  public static Filter tagCountBetween(int min, int max) {
+    return (columns, slot) -> columns.tagCounts[slot] >= min && columns.tagCounts[slot] <= max;
+  }
+
+  /**
+   * @param min Smallest ID, inclusive.
+   * @param max Largest ID, inclusive.
+   * @return A filter of items with an ID in the range.
+   */
+  public static Filter idBetween(int min, int max) {
+    return (columns, slot) -> columns.ids[slot] >= min && columns.ids[slot] <= max;
+  }
+
+  /**
+   * @param min Earliest time added, inclusive.
+   * @param max Latest time added, inclusive.
+   * @return A filter of items added in the range.
+   */
+  public static Filter addedBetween(long min, long max) {
+    return (columns, slot) -> columns.datesAdded[slot] >= min && columns.datesAdded[slot] <= max;
+  }
+
+  /**
+   * @param type Type bits, see {@link #MEDIA}.
+   * @return A filter of items with any of the type bits.
+   */
+  public static Filter typeIs(int type) {
+    return (columns, slot) -> (columns.types[slot] & type) != 0;
+  }
+
+  /**
+   * @param flag Flag bits, see {@link #MISSING_MD5}.
+   * @return A filter of items with any of the flags.
+   */
+  public static Filter flagged(int flag) {
+    return (columns, slot) -> (columns.flags[slot] & flag) != 0;
+  }
+
+  /**
+   * @param groupId ID of a group.
+   * @return A filter of media items in the group.
+   */
+  public static Filter inGroup(int groupId) {
+    return (columns, slot) -> columns.groupIds[slot] == groupId;
+  }
+
+  /**
+   * Adds an item, or updates its row if it is already in the columns.
+   *
+   * @param item Item to add.
+   */
+  synchronized void put(Item item) {
+    int slot = slotOf(item.getId());
+    if (slot < 0) {
+      // New IDs are the highest so far, which makes this an append
+      slot = -(slot + 1);
+      ensureCapacity(size + 1);
+      System.arraycopy(ids, slot, ids, slot + 1, size - slot);
+      System.arraycopy(datesAdded, slot, datesAdded, slot + 1, size - slot);
+      System.arraycopy(tagCounts, slot, tagCounts, slot + 1, size - slot);
+      System.arraycopy(types, slot, types, slot + 1, size - slot);
+      System.arraycopy(groupIds, slot, groupIds, slot + 1, size - slot);
+      System.arraycopy(flags, slot, flags, slot + 1, size - slot);
+      ids[slot] = item.getId();
+      size++;
+    } else if (types[slot] == REMOVED) {
+      removed--;
+    }
+    write(slot, item);
+  }
+
+  /**
+   * Updates the row of an item. No effect if the item is not in the columns.
+   *
+   * @param item Item that changed.
+   */
+  synchronized void update(Item item) {
+    final int slot = slotOf(item.getId());
+    if (slot >= 0 && types[slot] != REMOVED) {
+      write(slot, item);
+    }
+  }
+
+  /**
+   * @param id ID of the item to remove.
+   */
+  synchronized void remove(int id) {
+    final int slot = slotOf(id);
+    if (slot < 0 || types[slot] == REMOVED) {
+      return;
+    }
+    types[slot] = REMOVED;
+    removed++;
+    if (removed > size / 4) {
+      compact();
+    }
+  }
+
+  /**
+   * @return Number of items in the columns.
+   */
+  public synchronized int size() {
+    return size - removed;
+  }
+
+  /**
+   * Evaluates a filter on every item.
+   *
+   * @param filter Filter to evaluate.
+   * @return New set of the IDs of the accepted items.
+   */
+  public synchronized IntBitmap select(Filter filter) {
+    final int[] selected = size < PARALLEL_THRESHOLD ? new Select(filter, 0, size).compute() :
+        ForkJoinPool.commonPool().invoke(new Select(filter, 0, size));
+    final IntBitmap result = new IntBitmap();
+    for (int id : selected) {
+      result.add(id);
+    }
+    return result;
+  }
+
+  /**
+   * Evaluates a filter on some items.
+   *
+   * @param filter     Filter to evaluate.
+   * @param candidates IDs of the items to check.
+   * @return New set of the IDs of the accepted candidates.
+   */
+  public synchronized IntBitmap select(Filter filter, IntBitmap candidates) {
+    final IntBitmap result = new IntBitmap();
+    final int[] slot = {0};
+    candidates.forEach(id -> {
+      // Candidates are ascending, so the search for the next slot starts after the last one
+      slot[0] = Arrays.binarySearch(ids, slot[0], size, id);
+      if (slot[0] >= 0) {
+        if (types[slot[0]] != REMOVED && filter.test(this, slot[0])) {
+          result.add(id);
+        }
+      } else {
+        slot[0] = -(slot[0] + 1);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * @return Slot of the ID, or -(insertion point + 1) if it has none.
+   */
+  private int slotOf(int id) {
+    if (size > 0 && ids[size - 1] < id) {
+      return -(size + 1);
+    }
+    return Arrays.binarySearch(ids, 0, size, id);
+  }
+
+  private void write(int slot, Item item) {
+    datesAdded[slot] = item.getDateAdded();
+    tagCounts[slot] = item.getTagCount();
+
+    int type = 0;
+    int flag = 0;
+    final ItemSearch search = Items.get(ItemSearch.class, item).orElse(null);
+    if (search != null) {
+      if (search.isMedia(item)) {
+        type |= MEDIA;
+      }
+      if (search.isImage(item)) {
+        type |= IMAGE;
+      }
+      if (search.isVideo(item)) {
+        type |= VIDEO;
+      }
+      if (item instanceof GroupItem && search.isGroup(item)) {
+        type |= GROUP;
+      }
+      if (search.hasMissingMD5(item)) {
+        flag |= MISSING_MD5;
+      }
+      if (search.hasMissingHistogram(item)) {
+        flag |= MISSING_HISTOGRAM;
+      }
+    }
+    if (item instanceof MediaItem media && media.hasNoSimilar()) {
+      flag |= NO_SIMILAR;
+    }
+    types[slot] = (byte) type;
+    flags[slot] = (byte) flag;
+
+    final GroupItem group = Items.get(ItemProperties.class, item).map(props -> props.getParentGroup(item)).orElse(null);
+    groupIds[slot] = group == null ? -1 : group.getId();
+  }
+
+  private void compact() {
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      if (types[i] != REMOVED) {
+        ids[kept] = ids[i];
+        datesAdded[kept] = datesAdded[i];
+        tagCounts[kept] = tagCounts[i];
+        types[kept] = types[i];
+        groupIds[kept] = groupIds[i];
+        flags[kept] = flags[i];
+        kept++;
+      }
+    }
+    size = kept;
+    removed = 0;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > ids.length) {
+      final int length = Math.max(capacity, ids.length * 2);
+      ids = Arrays.copyOf(ids, length);
+      datesAdded = Arrays.copyOf(datesAdded, length);
+      tagCounts = Arrays.copyOf(tagCounts, length);
+      types = Arrays.copyOf(types, length);
+      groupIds = Arrays.copyOf(groupIds, length);
+      flags = Arrays.copyOf(flags, length);
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ItemColumns{size=" + size() + "}";
+  }
+
+  /**
+   * Evaluates a filter on a range of slots, splitting large ranges in half.
+   */
+  // Tasks only live for one select and are never serialized, ForkJoinTask is just Serializable by inheritance
+  @SuppressWarnings("serial")
+  private final class Select extends RecursiveTask<int[]> {
+
+    private final Filter filter;
+    private final int from;
+    private final int to;
+
+    private Select(Filter filter, int from, int to) {
+      this.filter = filter;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected int[] compute() {
+      if (to - from > PARALLEL_THRESHOLD) {
+        final int mid = (from + to) >>> 1;
+        final Select right = new Select(filter, mid, to);
+        right.fork();
+        final int[] leftIds = new Select(filter, from, mid).compute();
+        final int[] rightIds = right.join();
+        final int[] joined = Arrays.copyOf(leftIds, leftIds.length + rightIds.length);
+        System.arraycopy(rightIds, 0, joined, leftIds.length, rightIds.length);
+        return joined;
+      }
+
+      int[] selected = new int[64];
+      int count = 0;
+      for (int slot = from; slot < to; slot++) {
+        if (types[slot] != REMOVED && filter.test(ItemColumns.this, slot)) {
+          if (count == selected.length) {
+            selected = Arrays.copyOf(selected, count * 2);
+          }
+          selected[count++] = ids[slot];
+        }
+      }
+      return Arrays.copyOf(selected, count);
+    }
+
+  }
+
+}
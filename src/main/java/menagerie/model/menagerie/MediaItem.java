@@ -200,6 +200,9 @@ public class MediaItem extends Item {
     try {
       byte[] md5bytes = MD5Hasher.hash(getFile());
       md5.set(md5bytes != null ? Hex.encodeHexString(md5bytes) : null);
+      if (menagerie != null) {
+        menagerie.itemChanged(this);
+      }
       if (hasDatabase()) {
         menagerie.getDatabaseManager().setMD5Async(getId(), md5.get());
       }
@@ -223,6 +226,9 @@ public class MediaItem extends Item {
         Filters.IMAGE_NAME_FILTER.accept(getFile())) {
       try {
         histogram.set(new ImageHistogram(getImageSynchronously()));
+        if (menagerie != null) {
+          menagerie.itemChanged(this);
+        }
         if (hasDatabase()) {
           menagerie.getDatabaseManager().setHistAsync(getId(), histogram.get());
         }
@@ -254,7 +260,7 @@ public class MediaItem extends Item {
    * @see Filters
    */
   public boolean isImage() {
-    return Filters.IMAGE_NAME_FILTER.accept(file.get());
+    return file.get() != null && Filters.IMAGE_NAME_FILTER.accept(file.get());
   }
 
   /**
@@ -262,7 +268,7 @@ public class MediaItem extends Item {
    * @see Filters
    */
   public boolean isVideo() {
-    return Filters.VIDEO_NAME_FILTER.accept(file.get());
+    return file.get() != null && Filters.VIDEO_NAME_FILTER.accept(file.get());
   }
 
   /**
@@ -295,10 +301,14 @@ public class MediaItem extends Item {
 
     LOGGER.info("Moving file: " + getFile() + "\nTo: " + dest);
 
-    boolean succeeded = file.get().renameTo(dest);
+    final File oldFile = file.get();
+    boolean succeeded = oldFile.renameTo(dest);
 
     if (succeeded) {
       file.set(dest);
+      if (menagerie != null) {
+        menagerie.fileMoved(this, oldFile);
+      }
 
       if (hasDatabase()) {
         try {
@@ -331,6 +341,9 @@ public class MediaItem extends Item {
    */
   void setGroup(GroupItem group) {
     this.group.set(group);
+    if (menagerie != null) {
+      menagerie.itemChanged(this);
+    }
 
     Integer gid = null;
     if (group != null) {
@@ -372,6 +385,9 @@ public class MediaItem extends Item {
     }
 
     noSimilar.set(b);
+    if (menagerie != null) {
+      menagerie.itemChanged(this);
+    }
   }
 
   /**
@@ -31,10 +31,15 @@ import menagerie.model.menagerie.db.DatabaseManager;
 import menagerie.model.menagerie.itemhandler.group.ItemGroupHandler;
 import menagerie.model.menagerie.itemhandler.properties.ItemProperties;
 import menagerie.model.search.Search;
+import menagerie.util.IntBitmap;
+import menagerie.util.RangeIndex;
+import menagerie.util.TokenIndex;
+import menagerie.util.TrigramIndex;
 
 import java.io.File;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -52,13 +57,36 @@ public class Menagerie {
   private final List<Tag> tags = new ArrayList<>();
   private final Set<SimilarPair<MediaItem>> nonDuplicates = new HashSet<>();
 
-  private int nextItemID;
-  private int nextTagID;
+  // Lookup indexes over items and tags, built after loading and kept in sync with the lists
+  private final Map<Integer, Item> itemsById = new HashMap<>();
+  private final Map<Integer, Tag> tagsById = new HashMap<>();
+  private final Map<String, Tag> tagsByName = new HashMap<>();
+  // Range indexes over items: IDs, and (date added, ID) pairs
+  private final IntBitmap itemIds = new IntBitmap();
+  private final RangeIndex datesAdded = new RangeIndex();
+  // Scalar facts of items in primitive columns, built after loading
+  private ItemColumns columns = null;
+  // Tokens of group titles
+  private final TokenIndex groupTitles = new TokenIndex();
+  // Trigrams of the absolute paths of file based items, built by the first path search
+  private TrigramIndex filePaths = null;
+
+  private final IdAllocator itemIDs;
+  private final IdAllocator tagIDs;
 
   private final DatabaseManager databaseManager;
 
   private final List<Search> activeSearches = new ArrayList<>();
 
+  // Set while the outermost bulk removal is in progress, see removeItems()
+  private Set<Item> bulkRemoved = null;
+
+  // Mutation epochs, drawn from one counter so a value is never reused, see getTagEpoch() and getTypeEpoch()
+  private long lastEpoch = 0;
+  private long taggingEpoch = 0;
+  private final Map<Integer, Long> tagEpochs = new HashMap<>();
+  private final Map<Class<? extends Item>, Long> typeEpochs = new HashMap<>();
+
 
   /**
    * Constructs a Menagerie. Starts a database updater thread, loads tags and media info from database, prunes database.
@@ -73,10 +101,31 @@ public class Menagerie {
     LOGGER.info("Loading Menagerie data from database...");
     databaseManager.loadIntoMenagerie(this);
 
+    buildTagPostings();
     clearUnusedTags();
 
-    nextItemID = databaseManager.getHighestItemID() + 1;
-    nextTagID = databaseManager.getHighestTagID() + 1;
+    for (Item item : items) {
+      itemsById.put(item.getId(), item);
+      itemIds.add(item.getId());
+      datesAdded.addUnsorted(item.getDateAdded(), item.getId());
+      if (item instanceof GroupItem group) {
+        groupTitles.add(group.getId(), group.getTitle());
+      }
+    }
+    itemIds.trim();
+    datesAdded.sort();
+    columns = new ItemColumns(items);
+    tags.forEach(this::indexTag);
+
+    // The loaded IDs guard against marks left behind by a failed write or a database copied by hand
+    final int highestItemID = items.stream().mapToInt(Item::getId).max().orElse(0);
+    final int highestTagID = tags.stream().mapToInt(Tag::getId).max().orElse(0);
+    final int nextItemID = databaseManager.getNextItemID();
+    final int nextTagID = databaseManager.getNextTagID();
+    itemIDs = new IdAllocator("item", Math.max(nextItemID, highestItemID + 1), nextItemID,
+        databaseManager::setNextItemID);
+    tagIDs = new IdAllocator("tag", Math.max(nextTagID, highestTagID + 1), nextTagID,
+        databaseManager::setNextTagID);
 
     for (Item item : items) {
       Items.get(ItemProperties.class, item).ifPresent(itemProps -> {
@@ -87,6 +136,22 @@ public class Menagerie {
     }
   }
 
+  /**
+   * Builds the posting list and frequency of every tag in one pass over the loaded items. Items are visited in ascending
+   * ID order so each posting list is only appended to.
+   */
+  private void buildTagPostings() {
+    LOGGER.info("Building tag posting lists...");
+    final List<Item> byId = new ArrayList<>(items);
+    byId.sort(null);
+    for (Item item : byId) {
+      for (Tag t : item.getTagSnapshot()) {
+        t.addLoadedItem(item.getId());
+      }
+    }
+    tags.forEach(Tag::finishLoading);
+  }
+
   /**
    * Removes all unused tags from the database.
    *
@@ -94,14 +159,8 @@ public class Menagerie {
    */
   private void clearUnusedTags() throws SQLException {
     LOGGER.info("Removing unused tags...");
-    Set<Integer> usedTags = new HashSet<>();
-    for (Item img : items) {
-      for (Tag t : img.getTags()) {
-        usedTags.add(t.getId());
-      }
-    }
     for (Tag t : new ArrayList<>(tags)) {
-      if (!usedTags.contains(t.getId())) {
+      if (t.getItemIds().isEmpty()) {
         LOGGER.info("Removing tag: " + t);
         tags.remove(t);
         getDatabaseManager().deleteTag(t.getId());
@@ -122,12 +181,15 @@ public class Menagerie {
 
     LOGGER.info("Importing file to Menagerie: " + file);
 
-    MediaItem media = new MediaItem(this, nextItemID, System.currentTimeMillis(), file);
+    MediaItem media = new MediaItem(this, itemIDs.next(), System.currentTimeMillis(), file);
 
     // Add media and commit to database
     items.add(media);
+    indexItem(media);
     fileSet.add(file);
-    nextItemID++;
+    if (filePaths != null) {
+      filePaths.add(media.getId(), file.getAbsolutePath());
+    }
     try {
       getDatabaseManager().createMedia(media);
     } catch (SQLException e) {
@@ -169,7 +231,7 @@ public class Menagerie {
       group.setTitle(title);
       elements.remove(group);
     } else {
-      group = new GroupItem(this, nextItemID, System.currentTimeMillis(), title);
+      group = new GroupItem(this, itemIDs.next(), System.currentTimeMillis(), title);
 
       try {
         getDatabaseManager().createGroup(group);
@@ -178,8 +240,9 @@ public class Menagerie {
         return null;
       }
 
-      nextItemID++;
       items.add(group);
+      indexItem(group);
+      groupTitles.add(group.getId(), group.getTitle());
     }
 
     for (Item item : elements) {
@@ -205,13 +268,14 @@ public class Menagerie {
 
     Tag t;
     try {
-      t = new Tag(this, nextTagID, name, null);
+      t = new Tag(this, tagIDs.next(), name, null);
     } catch (IllegalArgumentException e) {
       return null;
     }
-    nextTagID++;
 
     tags.add(t);
+    indexTag(t);
+    markTagged(t);
 
     getDatabaseManager().createTagAsync(t.getId(), t.getName());
 
@@ -225,9 +289,7 @@ public class Menagerie {
    */
   public void forgetItems(List<Item> items) {
     LOGGER.info("Forgetting " + items.size() + " items from Menagerie");
-    items.forEach(Item::forget);
-
-    refreshInSearches(items);
+    removeItems(items, Item::forget);
   }
 
   /**
@@ -248,9 +310,44 @@ public class Menagerie {
    */
   public void deleteItems(List<Item> items) {
     LOGGER.info("Deleting " + items.size() + " items from Menagerie");
-    items.forEach(Item::delete);
+    removeItems(items, Item::delete);
+  }
 
-    refreshInSearches(items);
+  /**
+   * Forgets or deletes a set of items in bulk. Items removed during the operation, including the elements of removed
+   * groups, are collected and then removed from the item list in a single pass, from the database with one bulk update,
+   * and from searches with a single refresh. A bulk removal started while another is in progress, e.g. by a removed
+   * item, joins the outer one, which finishes both.
+   *
+   * @param items   Items to remove.
+   * @param remover Removes a single item, {@link Item#forget()} or {@link Item#delete()}.
+   */
+  private void removeItems(List<Item> items, Consumer<Item> remover) {
+    if (bulkRemoved != null) {
+      items.forEach(remover);
+      return;
+    }
+
+    final Set<Item> removed = new LinkedHashSet<>();
+    bulkRemoved = removed;
+    try {
+      items.forEach(remover);
+    } finally {
+      bulkRemoved = null;
+    }
+
+    if (removed.isEmpty()) {
+      return;
+    }
+    this.items.removeIf(removed::contains);
+    final IntBitmap removedIds = new IntBitmap();
+    removed.forEach(item -> removedIds.add(item.getId()));
+    datesAdded.removeAll(removedIds);
+    if (databaseManager != null) {
+      databaseManager.removeItemsAsync(removed.stream().mapToInt(Item::getId).toArray());
+    }
+
+    refreshInSearches(new ArrayList<>(removed));
   }
 
   /**
@@ -278,12 +375,7 @@ public class Menagerie {
    * @return Tag with given ID, or null if none exist.
    */
   public Tag getTagByID(int id) {
-    for (Tag t : tags) {
-      if (t.getId() == id) {
-        return t;
-      }
-    }
-    return null;
+    return tagsById.get(id);
   }
 
   /**
@@ -295,13 +387,117 @@ public class Menagerie {
    * @return Tag with given name, or null if none exist.
    */
   public Tag getTagByName(String name) {
-    name = name.replace(' ', '_');
-    for (Tag t : tags) {
-      if (t.getName().equalsIgnoreCase(name)) {
-        return t;
+    return tagsByName.get(name.replace(' ', '_').toLowerCase());
+  }
+
+  private void indexItem(Item item) {
+    itemsById.put(item.getId(), item);
+    itemIds.add(item.getId());
+    datesAdded.add(item.getDateAdded(), item.getId());
+    columns.put(item);
+  }
+
+  /**
+   * Evaluates a filter over the item columns of every item, in parallel for large Menageries.
+   *
+   * @param filter Filter over the columns, see {@link ItemColumns}.
+   * @return New set of the IDs of the accepted items.
+   */
+  public IntBitmap selectItems(ItemColumns.Filter filter) {
+    return columns.select(filter);
+  }
+
+  /**
+   * @param filter     Filter over the columns, see {@link ItemColumns}.
+   * @param candidates IDs of the items to check.
+   * @return New set of the IDs of the accepted candidates.
+   */
+  public IntBitmap selectItems(ItemColumns.Filter filter, IntBitmap candidates) {
+    return columns.select(filter, candidates);
+  }
+
+  /**
+   * @return Number of items in the item columns.
+   */
+  public int getColumnSize() {
+    return columns.size();
+  }
+
+  /**
+   * @param words Lower case words without whitespace.
+   * @return New set of the IDs of the groups whose titles contain every word, ignoring case.
+   */
+  public IntBitmap findGroupIdsByTitle(List<String> words) {
+    return groupTitles.findContainingAll(words);
+  }
+
+  /**
+   * Finds the file based items whose absolute path may contain a string. The index is built on the first call.
+   *
+   * @param text String to find in the paths. Case sensitive.
+   * @return IDs of the items whose path contains every three character substring of the text, which must still be
+   * checked for the text itself. Null if the text is too short to be looked up. May be a posting list of the index, so
+   * it must not be modified.
+   */
+  public IntBitmap findItemIdsByPath(String text) {
+    if (text.length() < TrigramIndex.GRAM_LENGTH) {
+      return null;
+    }
+    if (filePaths == null) {
+      final long start = System.currentTimeMillis();
+      filePaths = new TrigramIndex();
+      for (Item item : items) {
+        final File file = getFile(item);
+        if (file != null) {
+          filePaths.add(item.getId(), file.getAbsolutePath());
+        }
       }
+      LOGGER.info(() -> "Built path index with " + filePaths.size() + " trigrams in " +
+                        (System.currentTimeMillis() - start) + " ms");
     }
-    return null;
+    return filePaths.find(text);
+  }
+
+  /**
+   * @return The file of a file based item, or null.
+   */
+  private static File getFile(Item item) {
+    return Items.get(ItemProperties.class, item)
+        .filter(itemProps -> itemProps.isFileBased(item))
+        .map(itemProps -> itemProps.getFile(item))
+        .orElse(null);
+  }
+
+  /**
+   * @param min Smallest ID, inclusive.
+   * @param max Largest ID, inclusive.
+   * @return New set of the IDs of the items in the range.
+   */
+  public IntBitmap getItemIdsInRange(int min, int max) {
+    return itemIds.range(min, max);
+  }
+
+  /**
+   * @param min Earliest time an item was added, inclusive, in milliseconds since the epoch.
+   * @param max Latest time an item was added, inclusive.
+   * @return New set of the IDs of the items added in the range. Resolved from one slice of the date index.
+   */
+  public IntBitmap getItemIdsAddedBetween(long min, long max) {
+    return datesAdded.idsInRange(min, max);
+  }
+
+  /**
+   * @param min Earliest time an item was added, inclusive, in milliseconds since the epoch.
+   * @param max Latest time an item was added, inclusive.
+   * @return Number of items added in the range, counted without visiting them.
+   */
+  public int countItemsAddedBetween(long min, long max) {
+    return datesAdded.countInRange(min, max);
+  }
+
+  private void indexTag(Tag t) {
+    tagsById.put(t.getId(), t);
+    tagsByName.put(t.getName(), t);
   }
 
   public Set<SimilarPair<MediaItem>> getNonDuplicates() {
@@ -338,9 +534,65 @@ public class Menagerie {
    * @param items Items to check.
    */
   public void refreshInSearches(List<Item> items) {
+    markChanged(items);
     activeSearches.forEach(search -> Platform.runLater(() -> search.refreshSearch(items)));
   }
 
+  /**
+   * Advances the epochs of the types of changed items.
+   *
+   * @param items Items that changed.
+   */
+  private synchronized void markChanged(List<Item> items) {
+    final long epoch = ++lastEpoch;
+    for (Item item : items) {
+      typeEpochs.put(item.getClass(), epoch);
+    }
+  }
+
+  /**
+   * Advances the epoch of a tag that was created, or whose tagged items changed.
+   *
+   * @param tag Tag that changed.
+   */
+  synchronized void markTagged(Tag tag) {
+    taggingEpoch = ++lastEpoch;
+    tagEpochs.put(tag.getId(), taggingEpoch);
+  }
+
+  /**
+   * @param tagName Name of a tag.
+   * @return Epoch of the last change to the items tagged with the tag, or -1 if no such tag exists. Changes whenever
+   * the tag's posting list does.
+   */
+  public synchronized long getTagEpoch(String tagName) {
+    final Tag t = getTagByName(tagName);
+    return t == null ? -1 : tagEpochs.getOrDefault(t.getId(), 0L);
+  }
+
+  /**
+   * @return Epoch of the last change to the tags of any item.
+   */
+  public synchronized long getTaggingEpoch() {
+    return taggingEpoch;
+  }
+
+  /**
+   * @param type Item class.
+   * @return Epoch of the last change reported to searches about an item of the class. Changes whenever such an item is
+   * added, removed or modified in a way that can change search results, and for groups whenever their elements change.
+   */
+  public synchronized long getTypeEpoch(Class<? extends Item> type) {
+    return typeEpochs.getOrDefault(type, 0L);
+  }
+
+  /**
+   * @return Copy of the epochs of every item class that has changed, see {@link #getTypeEpoch(Class)}.
+   */
+  public synchronized Map<Class<? extends Item>, Long> getTypeEpochs() {
+    return new HashMap<>(typeEpochs);
+  }
+
   /**
    * Adds the item to any searches that it is valid in, removes it from any searches it is not valid in.
    *
@@ -357,14 +609,14 @@ public class Menagerie {
     return items;
   }
 
+  /**
+   * Attempts to find an item given an item id.
+   *
+   * @param id ID of item to find.
+   * @return Item with given ID, or null if none exist.
+   */
   public Item getItemByID(int id) {
-    for (Item item : items) {
-      if (item.getId() == id) {
-        return item;
-      }
-    }
-
-    return null;
+    return itemsById.get(id);
   }
 
   /**
@@ -402,17 +654,87 @@ public class Menagerie {
     activeSearches.add(search);
   }
 
+  /**
+   * Called by items to remove themselves from the item list and the database. During a bulk removal the item is only
+   * recorded, and the list and database are updated when the bulk removal ends.
+   *
+   * @param item Item to remove.
+   * @return True if the item was in this Menagerie.
+   */
+  boolean removeItem(Item item) {
+    if (!itemsById.remove(item.getId(), item)) {
+      return false;
+    }
+    itemIds.remove(item.getId());
+    columns.remove(item.getId());
+    if (bulkRemoved != null) {
+      return bulkRemoved.add(item);
+    }
+    datesAdded.remove(item.getDateAdded(), item.getId());
+
+    items.remove(item);
+    if (databaseManager != null) {
+      databaseManager.removeItemAsync(item.getId());
+    }
+    return true;
+  }
+
   /**
    * Called by items when they removed themselves from the menagerie.
    *
    * @param item Item that was removed.
    */
   void itemRemoved(Item item) {
-    Items.get(ItemProperties.class, item).ifPresent(itemProps -> {
-      if (itemProps.isFileBased(item) && itemProps.getFile(item) != null) {
-        fileSet.remove(itemProps.getFile(item));
+    if (item instanceof GroupItem group) {
+      groupTitles.remove(group.getId(), group.getTitle());
+    }
+    final File file = getFile(item);
+    if (file != null) {
+      fileSet.remove(file);
+      if (filePaths != null) {
+        filePaths.remove(item.getId(), file.getAbsolutePath());
       }
-    });
+    }
+  }
+
+  /**
+   * Called by items after a fact kept in the item columns changed: their tags, file, MD5, histogram, group or similarity
+   * flag. Advances the epoch of the item's type, since searches may depend on the fact.
+   *
+   * @param item Item that changed.
+   */
+  void itemChanged(Item item) {
+    if (columns != null) {
+      columns.update(item);
+    }
+    markChanged(Collections.singletonList(item));
+  }
+
+  /**
+   * Called by groups after their title was changed.
+   *
+   * @param group    Group that was renamed.
+   * @param oldTitle Title of the group before.
+   */
+  void groupRetitled(GroupItem group, String oldTitle) {
+    groupTitles.remove(group.getId(), oldTitle);
+    groupTitles.add(group.getId(), group.getTitle());
+  }
+
+  /**
+   * Called by media items after their file was moved.
+   *
+   * @param item    Item that was moved.
+   * @param oldFile File the item was at before.
+   */
+  void fileMoved(MediaItem item, File oldFile) {
+    fileSet.remove(oldFile);
+    fileSet.add(item.getFile());
+    if (filePaths != null) {
+      filePaths.remove(item.getId(), oldFile.getAbsolutePath());
+      filePaths.add(item.getId(), item.getFile().getAbsolutePath());
+    }
+    itemChanged(item);
   }
 
 }
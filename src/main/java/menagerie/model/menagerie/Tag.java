@@ -29,6 +29,7 @@ import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.scene.paint.Paint;
+import menagerie.util.IntBitmap;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -53,6 +54,8 @@ public class Tag implements Comparable<Tag> {
   private final StringProperty color = new SimpleStringProperty(null);
 
   private final IntegerProperty frequency = new SimpleIntegerProperty(0);
+  // Posting list of the items tagged with this tag. Kept in sync by the items and built in one pass by the Menagerie
+  private final IntBitmap items = new IntBitmap();
 
   /**
    * Constructs a tag. No checks for uniqueness of ID are performed.
@@ -111,7 +114,7 @@ public class Tag implements Comparable<Tag> {
   /**
    * Increments the frequency of usage.
    */
-  public void incrementFrequency() {
+  void incrementFrequency() {
     frequency.set(getFrequency() + 1);
   }
 
@@ -122,6 +125,58 @@ public class Tag implements Comparable<Tag> {
     frequency.set(getFrequency() - 1);
   }
 
+  /**
+   * @return IDs of the items tagged with this tag. Is a direct reference to the posting list and must not be modified.
+   */
+  public IntBitmap getItemIds() {
+    return items;
+  }
+
+  /**
+   * Records an item being tagged with this tag.
+   *
+   * @param itemId ID of the item.
+   */
+  void addItem(int itemId) {
+    if (items.add(itemId)) {
+      incrementFrequency();
+      if (menagerie != null) {
+        menagerie.markTagged(this);
+      }
+    }
+  }
+
+  /**
+   * Records an item no longer being tagged with this tag.
+   *
+   * @param itemId ID of the item.
+   */
+  void removeItem(int itemId) {
+    if (items.remove(itemId)) {
+      decrementFrequency();
+      if (menagerie != null) {
+        menagerie.markTagged(this);
+      }
+    }
+  }
+
+  /**
+   * Records an item loaded from the database. The frequency is not updated until {@link #finishLoading()}.
+   *
+   * @param itemId ID of the item.
+   */
+  void addLoadedItem(int itemId) {
+    items.add(itemId);
+  }
+
+  /**
+   * Compacts the posting list and sets the frequency after items have been loaded.
+   */
+  void finishLoading() {
+    items.trim();
+    frequency.set(items.getCardinality());
+  }
+
   /**
    * @return This tag's user defined notes.
    */
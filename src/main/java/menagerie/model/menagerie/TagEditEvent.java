@@ -24,6 +24,8 @@
 
 package menagerie.model.menagerie;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -49,12 +51,22 @@ public class TagEditEvent {
    * Item's tags should be as they were before the event that created this record occurred.
    */
   public void revertAction() {
-    for (Map.Entry<Item, List<Tag>> entry : added.entrySet()) {
-      entry.getValue().forEach(entry.getKey()::removeTag);
-    }
-    for (Map.Entry<Item, List<Tag>> entry : removed.entrySet()) {
-      entry.getValue().forEach(entry.getKey()::addTag);
+    itemsByTag(added).forEach(Item::removeTagFromAll);
+    itemsByTag(removed).forEach(Item::addTagToAll);
+  }
+
+  /**
+   * Inverts a map of edited items so that each tag can be reverted with one bulk update.
+   *
+   * @param edits Map of Items and the Tags that were edited on each of them. May be null.
+   * @return Map of Tags and the Items they were edited on, in encounter order.
+   */
+  private static Map<Tag, List<Item>> itemsByTag(Map<Item, List<Tag>> edits) {
+    Map<Tag, List<Item>> items = new LinkedHashMap<>();
+    if (edits != null) {
+      edits.forEach((item, tags) -> tags.forEach(tag -> items.computeIfAbsent(tag, k -> new ArrayList<>()).add(item)));
     }
+    return items;
   }
 
   /**
@@ -0,0 +1,67 @@
+package menagerie.model.menagerie.db;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events of the database layer. Events are only recorded while a recording with them enabled is
+ * running, e.g. started with {@code -XX:StartFlightRecording} or from JDK Mission Control.
+ */
+final class DatabaseEvents {
+
+  private DatabaseEvents() {
+  }
+
+  @Name("menagerie.db.Statement")
+  @Label("Database Statement")
+  @Category({"Menagerie", "Database"})
+  @Description("Execution of a prepared statement, or of one JDBC batch of it")
+  static final class StatementEvent extends Event {
+
+    @Label("Statement")
+    String statement;
+
+    @Label("Updates")
+    @Description("Number of updates executed, more than 1 for batches")
+    int updates;
+
+    @Label("Failed")
+    boolean failed;
+
+  }
+
+  @Name("menagerie.db.LoadPhase")
+  @Label("Database Load Phase")
+  @Category({"Menagerie", "Database"})
+  @Description("Phase of loading the library at startup")
+  static final class LoadPhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+  }
+
+  @Name("menagerie.db.Queue")
+  @Label("Database Queue")
+  @Category({"Menagerie", "Database"})
+  @Description("State of the database update queue")
+  @Period("1 s")
+  static final class QueueEvent extends Event {
+
+    @Label("Queue Depth")
+    int depth;
+
+    @Label("Wait p50")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitP50;
+
+    @Label("Wait p99")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitP99;
+
+    @Label("Drain Throughput")
+    @Description("Updates executed per second, averaged over the last sampling interval")
+    double throughput;
+
+  }
+
+}
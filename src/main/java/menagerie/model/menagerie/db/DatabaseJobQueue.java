@@ -0,0 +1,216 @@
+package menagerie.model.menagerie.db;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Job queue of the database updater, split into one FIFO lane per {@link DatabaseManager.Priority}. Jobs are taken
+ * from the highest priority lane that is not empty.
+ * <p>
+ * Background producers can be throttled: {@link #put(Runnable, DatabaseManager.Priority)} blocks while the background
+ * lane holds at least {@link #setHighWaterMark(int) high water mark} jobs.
+ */
+class DatabaseJobQueue {
+
+  private record Entry(Runnable job, long queuedAt) {
+  }
+
+  private final List<ArrayDeque<Entry>> lanes;
+  private final LongConsumer waitListener;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition backgroundNotFull = lock.newCondition();
+
+  private int size = 0;
+  private int highWaterMark = 0;
+
+
+  DatabaseJobQueue() {
+    this(nanos -> {
+    });
+  }
+
+  /**
+   * @param waitListener Receives the time in nanoseconds each job waited in the queue when it is taken.
+   */
+  DatabaseJobQueue(LongConsumer waitListener) {
+    this.waitListener = waitListener;
+    lanes = new ArrayList<>(DatabaseManager.Priority.values().length);
+    for (int i = 0; i < DatabaseManager.Priority.values().length; i++) {
+      lanes.add(new ArrayDeque<>());
+    }
+  }
+
+  /**
+   * @param highWaterMark Number of queued background jobs at which background producers are blocked. 0 or less never
+   *                      blocks.
+   */
+  void setHighWaterMark(int highWaterMark) {
+    lock.lock();
+    try {
+      this.highWaterMark = highWaterMark;
+      backgroundNotFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adds a job without blocking.
+   *
+   * @param job      Job to add.
+   * @param priority Lane to add the job to.
+   */
+  void add(Runnable job, DatabaseManager.Priority priority) {
+    lock.lock();
+    try {
+      lanes.get(priority.ordinal()).add(new Entry(job, System.nanoTime()));
+      size++;
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adds a job, waiting for the background lane to drop below the high water mark first if the job is a background
+   * job. Threads that must stay responsive, such as the JavaFX application thread, should use
+   * {@link #add(Runnable, DatabaseManager.Priority)} instead.
+   *
+   * @param job      Job to add.
+   * @param priority Lane to add the job to.
+   * @throws InterruptedException If interrupted while waiting. The job is not added.
+   */
+  void put(Runnable job, DatabaseManager.Priority priority) throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      if (priority == DatabaseManager.Priority.BACKGROUND) {
+        while (highWaterMark > 0 && background().size() >= highWaterMark) {
+          backgroundNotFull.await();
+        }
+      }
+      lanes.get(priority.ordinal()).add(new Entry(job, System.nanoTime()));
+      size++;
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the next job, waiting for one if the queue is empty.
+   *
+   * @return Head of the highest priority lane that is not empty.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  Runnable take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        notEmpty.await();
+      }
+      return next();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the next job, waiting at most the given time for one if the queue is empty.
+   *
+   * @param timeout Maximum time to wait.
+   * @param unit    Unit of timeout.
+   * @return Head of the highest priority lane that is not empty, or null if the timeout elapsed.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return next();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Moves queued jobs into a collection, highest priority lane first.
+   *
+   * @param dest        Collection to add jobs to.
+   * @param maxElements Maximum number of jobs to move.
+   * @return Number of jobs moved.
+   */
+  int drainTo(Collection<? super Runnable> dest, int maxElements) {
+    lock.lock();
+    try {
+      int n = 0;
+      while (n < maxElements && size > 0) {
+        dest.add(next());
+        n++;
+      }
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return Number of queued jobs in all lanes.
+   */
+  int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param priority Lane to count.
+   * @return Number of queued jobs in the lane.
+   */
+  int size(DatabaseManager.Priority priority) {
+    lock.lock();
+    try {
+      return lanes.get(priority.ordinal()).size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private ArrayDeque<Entry> background() {
+    return lanes.get(DatabaseManager.Priority.BACKGROUND.ordinal());
+  }
+
+  /**
+   * Removes the next job. Must hold the lock and the queue must not be empty.
+   */
+  private Runnable next() {
+    for (ArrayDeque<Entry> lane : lanes) {
+      final Entry entry = lane.poll();
+      if (entry != null) {
+        size--;
+        if (lane == background() && background().size() < highWaterMark) {
+          backgroundNotFull.signal();
+        }
+        waitListener.accept(System.nanoTime() - entry.queuedAt());
+        return entry.job();
+      }
+    }
+    throw new IllegalStateException("Queue is empty");
+  }
+
+}
@@ -33,14 +33,21 @@ import menagerie.model.menagerie.itemhandler.group.ItemGroupHandler;
 import menagerie.util.listeners.ObjectListener;
 
 import java.io.File;
-import java.io.InputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -54,6 +61,12 @@ public class DatabaseManager extends Thread {
   private static final String FINISHED_LOADING_LOG_TEMPLATE =
       "Finished loading %s %s from database";
 
+  // Shared with the parallel loader, rows are read by column label
+  static final String SQL_GET_MEDIA =
+      "SELECT items.id, items.added, media.gid, media.page, media.no_similar, media.path, media.md5, media.hist FROM media JOIN items ON items.id=media.id;";
+  static final String SQL_GET_GROUPS =
+      "SELECT items.id, items.added, groups.title FROM groups JOIN items ON items.id=groups.id;";
+
   // Media
   private final PreparedStatement PS_GET_MEDIA;
   private final PreparedStatement PS_CREATE_MEDIA;
@@ -84,54 +97,86 @@ public class DatabaseManager extends Thread {
   private final PreparedStatement PS_ADD_TAG_NOTE;
   private final PreparedStatement PS_REMOVE_TAG_NOTE;
   private final PreparedStatement PS_SET_TAG_COLOR;
-  private final PreparedStatement PS_GET_TAGS_FOR_ITEM;
+  private final PreparedStatement PS_GET_TAGGED;
+  private final PreparedStatement PS_GET_TAGGED_COUNT;
   private final PreparedStatement PS_GET_TAG_NOTES;
   private final PreparedStatement PS_GET_TAGS;
   private final PreparedStatement PS_GET_TAG_COUNT;
   // Counters
-  private final PreparedStatement PS_GET_HIGHEST_ITEM_ID;
-  private final PreparedStatement PS_GET_HIGHEST_TAG_ID;
+  private final PreparedStatement PS_GET_CHANGE_COUNT;
+  private final PreparedStatement PS_INCREMENT_CHANGE_COUNT;
+  private final PreparedStatement PS_GET_NEXT_ITEM_ID;
+  private final PreparedStatement PS_SET_NEXT_ITEM_ID;
+  private final PreparedStatement PS_GET_NEXT_TAG_ID;
+  private final PreparedStatement PS_SET_NEXT_TAG_ID;
   // Teardown
   private final PreparedStatement PS_SHUTDOWN_DEFRAG;
 
-  private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+  private static final long METRICS_SAMPLE_PERIOD = 5000;
+  /**
+   * Maximum number of rows written by one job and transaction of a bulk update.
+   */
+  private static final int BULK_CHUNK_SIZE = 1000;
+
+  private final Connection database;
+
+  private final DatabaseMetrics metrics = new DatabaseMetrics(this::getQueueDepth);
+  private final DatabaseJobQueue queue = new DatabaseJobQueue(metrics::recordQueueWait);
   private volatile boolean running = false;
 
+  /**
+   * Lock held while a burst of queued updates is committed in a single transaction. Synchronous updates share the
+   * same connection and must not land in the middle of a transaction that may be rolled back.
+   */
+  private final Object transactionLock = new Object();
+  private volatile int burstSize = 1;
+  private volatile long maxCommitLatency = 0;
+
+  /**
+   * Queued updates that have not been taken by the updater thread yet, keyed by the row they write. Guarded by
+   * {@link #pendingLock}. A new update to the same key replaces or cancels the pending one instead of being queued.
+   */
+  private final Map<PendingKey, StatementUpdate> pending = new HashMap<>();
+  private final Object pendingLock = new Object();
+
   private MenagerieDatabaseLoadListener loadListener = null;
+  private ConnectionSupplier loadConnections = null;
+  private int loadThreads = 1;
+  private File snapshotFile = null;
   private ObjectListener<Integer> queueSizeListener = null;
+  private BooleanSupplier mayBlock = () -> true;
 
   private final Timer loggingTimer = new Timer("Logging Timer", true);
   private final Lock loggingLock = new ReentrantLock();
   private int databaseUpdates = 0;
+  private int databaseCommits = 0;
+  private int databaseCoalesced = 0;
   private long lastLog = System.currentTimeMillis();
 
 
   public DatabaseManager(Connection database) throws SQLException {
     super("DatabaseManager Thread");
+    this.database = database;
 
     // ------------------------------------ Init statements -----------------------------------
     // Media
-    PS_GET_MEDIA = database.prepareStatement(
-        "SELECT items.id, items.added, media.gid, media.page, media.no_similar, media.path, media.md5, media.hist_a, media.hist_r, media.hist_g, media.hist_b FROM media JOIN items ON items.id=media.id;");
+    PS_GET_MEDIA = database.prepareStatement(SQL_GET_MEDIA);
     PS_CREATE_MEDIA = database.prepareStatement(
-        "INSERT INTO media(id, path, md5, hist_a, hist_r, hist_g, hist_b) VALUES (?, ?, ?, ?, ?, ?, ?);");
+        "INSERT INTO media(id, path, md5, hist) VALUES (?, ?, ?, ?);");
     PS_SET_MEDIA_GID = database.prepareStatement("UPDATE media SET gid=? WHERE id=?;");
     PS_SET_MEDIA_MD5 = database.prepareStatement("UPDATE media SET md5=? WHERE id=?;");
     PS_SET_MEDIA_PATH = database.prepareStatement("UPDATE media SET path=? WHERE id=?;");
-    PS_SET_MEDIA_HISTOGRAM = database.prepareStatement(
-        "UPDATE media SET hist_a=?, hist_r=?, hist_g=?, hist_b=? WHERE id=?");
+    PS_SET_MEDIA_HISTOGRAM = database.prepareStatement("UPDATE media SET hist=? WHERE id=?;");
     PS_SET_MEDIA_PAGE = database.prepareStatement("UPDATE media SET page=? WHERE id=?;");
     PS_SET_MEDIA_NOSIMILAR = database.prepareStatement("UPDATE media SET no_similar=? WHERE id=?;");
     // Non Duplicates
     PS_GET_NON_DUPES = database.prepareStatement("SELECT item_1, item_2 FROM non_dupes;");
-    PS_ADD_NON_DUPE =
-        database.prepareStatement("INSERT INTO non_dupes(item_1, item_2) VALUES(?, ?);");
-    PS_REMOVE_NON_DUPE = database.prepareStatement(
-        "DELETE FROM non_dupes WHERE (item_1=? AND item_2=?) OR (item_2=? AND item_1=?);");
+    PS_ADD_NON_DUPE = database.prepareStatement(
+        "MERGE INTO non_dupes(item_1, item_2, pair) KEY(pair) VALUES(?, ?, ?);");
+    PS_REMOVE_NON_DUPE = database.prepareStatement("DELETE FROM non_dupes WHERE pair=?;");
     PS_GET_NON_DUPES_COUNT = database.prepareStatement("SELECT count(*) FROM non_dupes;");
     // Groups
-    PS_GET_GROUPS = database.prepareStatement(
-        "SELECT items.id, items.added, groups.title FROM groups JOIN items ON items.id=groups.id;");
+    PS_GET_GROUPS = database.prepareStatement(SQL_GET_GROUPS);
     PS_CREATE_GROUP = database.prepareStatement("INSERT INTO groups(id, title) VALUES (?, ?);");
     PS_SET_GROUP_TITLE = database.prepareStatement("UPDATE groups SET title=? WHERE id=?;");
     // Items
@@ -143,8 +188,10 @@ public class DatabaseManager extends Thread {
     PS_CREATE_TAG = database.prepareStatement("INSERT INTO tags(id, name) VALUES (?, ?);");
     PS_ADD_TAG_TO_ITEM =
         database.prepareStatement("INSERT INTO tagged(item_id, tag_id) VALUES (?, ?);");
+    // tag_id+0 keeps the planner on the item_id indexes. Sampled selectivity makes H2 prefer the tag_id index, which
+    // scans every item with the tag for each row removed.
     PS_REMOVE_TAG_FROM_ITEM =
-        database.prepareStatement("DELETE FROM tagged WHERE item_id=? AND tag_id=?;");
+        database.prepareStatement("DELETE FROM tagged WHERE item_id=? AND tag_id+0=?;");
     PS_ADD_TAG_NOTE =
         database.prepareStatement("INSERT INTO tag_notes(tag_id, note) VALUES (?, ?);");
     PS_REMOVE_TAG_NOTE =
@@ -152,16 +199,37 @@ public class DatabaseManager extends Thread {
     PS_SET_TAG_COLOR = database.prepareStatement("UPDATE tags SET color=? WHERE id=?;");
     PS_GET_TAGS = database.prepareStatement("SELECT * FROM tags;");
     PS_GET_TAG_COUNT = database.prepareStatement("SELECT count(*) FROM tags;");
-    PS_GET_TAGS_FOR_ITEM =
-        database.prepareStatement("SELECT tagged.tag_id FROM tagged WHERE tagged.item_id=?;");
+    PS_GET_TAGGED =
+        database.prepareStatement("SELECT item_id, tag_id FROM tagged;");
+    PS_GET_TAGGED_COUNT = database.prepareStatement("SELECT count(*) FROM tagged;");
     PS_GET_TAG_NOTES = database.prepareStatement("SELECT * FROM tag_notes;");
     // Counters
-    PS_GET_HIGHEST_ITEM_ID =
-        database.prepareStatement("SELECT TOP 1 id FROM items ORDER BY id DESC;");
-    PS_GET_HIGHEST_TAG_ID =
-        database.prepareStatement("SELECT TOP 1 id FROM tags ORDER BY id DESC;");
+    PS_GET_CHANGE_COUNT = database.prepareStatement("SELECT change_count FROM db_info;");
+    PS_INCREMENT_CHANGE_COUNT =
+        database.prepareStatement("UPDATE db_info SET change_count=change_count+1;");
+    PS_GET_NEXT_ITEM_ID = database.prepareStatement("SELECT next_item_id FROM db_info;");
+    PS_SET_NEXT_ITEM_ID = database.prepareStatement("UPDATE db_info SET next_item_id=?;");
+    PS_GET_NEXT_TAG_ID = database.prepareStatement("SELECT next_tag_id FROM db_info;");
+    PS_SET_NEXT_TAG_ID = database.prepareStatement("UPDATE db_info SET next_tag_id=?;");
     // Teardown
     PS_SHUTDOWN_DEFRAG = database.prepareStatement("SHUTDOWN DEFRAG;");
+
+    registerStatementMetrics();
+  }
+
+  /**
+   * Names every prepared statement of this manager after its field for the statement metrics.
+   */
+  private void registerStatementMetrics() {
+    for (Field field : DatabaseManager.class.getDeclaredFields()) {
+      if (field.getType() == PreparedStatement.class) {
+        try {
+          metrics.register((PreparedStatement) field.get(this), field.getName());
+        } catch (IllegalAccessException e) {
+          LOGGER.log(Level.WARNING, "Failed to name statement for metrics: " + field.getName(), e);
+        }
+      }
+    }
   }
 
   @Override
@@ -169,32 +237,216 @@ public class DatabaseManager extends Thread {
     running = true;
 
     startLoggingTimer();
+    metrics.registerMBean();
 
     while (running) {
       try {
         Runnable job = queue.take();
-        if (queueSizeListener != null) {
-          queueSizeListener.pass(queue.size());
+        if (burstSize > 1) {
+          List<Runnable> burst = collectBurst(job);
+          claim(burst);
+          runBurst(burst);
+        } else {
+          claim(List.of(job));
+          runJob(job);
+        }
+      } catch (InterruptedException e) {
+        LOGGER.log(Level.WARNING, "Database updater interrupted while waiting for queue", e);
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Enables or disables write-behind mode. In write-behind mode the queue is drained in bursts, consecutive updates of
+   * the same statement are sent as one JDBC batch, and each burst is committed in a single transaction.
+   *
+   * @param burstSize        Maximum number of queued updates committed together. 1 or less disables write-behind mode.
+   * @param maxCommitLatency Maximum time in milliseconds to wait for a burst to fill up before it is committed.
+   */
+  public void setWriteBehind(int burstSize, long maxCommitLatency) {
+    this.burstSize = Math.max(1, burstSize);
+    this.maxCommitLatency = Math.max(0, maxCommitLatency);
+  }
+
+  /**
+   * Runs a single job with an auto-committed connection.
+   *
+   * @param job Job to run.
+   */
+  private void runJob(Runnable job) {
+    notifyQueueSize();
+    if (job instanceof StatementUpdate update && update.cancelled) {
+      return;
+    }
+    countUpdates(1, 1);
+
+    try {
+      job.run();
+    } catch (Exception e) {
+      LOGGER.log(Level.SEVERE, "Exception while running database updater job", e);
+    }
+  }
+
+  /**
+   * Drains up to {@link #burstSize} jobs from the queue, waiting at most {@link #maxCommitLatency} for more jobs to
+   * arrive.
+   *
+   * @param first Job that has already been taken from the queue.
+   * @return The burst of jobs, in queue order.
+   * @throws InterruptedException If interrupted while waiting for more jobs.
+   */
+  private List<Runnable> collectBurst(Runnable first) throws InterruptedException {
+    final List<Runnable> burst = new ArrayList<>(Math.min(burstSize, queue.size() + 1));
+    burst.add(first);
+    queue.drainTo(burst, burstSize - burst.size());
+
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxCommitLatency);
+    while (burst.size() < burstSize) {
+      final long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        break;
+      }
+      Runnable next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        break;
+      }
+      burst.add(next);
+      queue.drainTo(burst, burstSize - burst.size());
+    }
+
+    return burst;
+  }
+
+  /**
+   * Runs a burst of jobs. Statement updates are committed together, other jobs are run on their own in between.
+   *
+   * @param burst Jobs to run, in queue order.
+   */
+  private void runBurst(List<Runnable> burst) {
+    notifyQueueSize();
+
+    List<StatementUpdate> updates = new ArrayList<>();
+    for (Runnable job : burst) {
+      if (job instanceof StatementUpdate update) {
+        if (!update.cancelled) {
+          updates.add(update);
         }
+      } else {
+        commitUpdates(updates);
+        updates.clear();
+        runJob(job);
+      }
+    }
+    commitUpdates(updates);
+  }
+
+  /**
+   * Executes statement updates as JDBC batches in a single transaction. If the transaction fails, it is rolled back and
+   * the updates are replayed one by one so that only the failing updates are lost.
+   *
+   * @param updates Updates to commit, in queue order.
+   */
+  private void commitUpdates(List<StatementUpdate> updates) {
+    if (updates.isEmpty()) {
+      return;
+    }
+
+    synchronized (transactionLock) {
+      try {
+        database.setAutoCommit(false);
         try {
-          loggingLock.lock();
-          databaseUpdates++;
+          executeBatches(updates);
+          database.commit();
+          countUpdates(updates.size(), 1);
+        } catch (SQLException e) {
+          database.rollback();
+          LOGGER.log(Level.WARNING, e, () -> "Batched database update failed, replaying " +
+              updates.size() + " updates individually");
+          database.setAutoCommit(true);
+          updates.forEach(this::runJob);
         } finally {
-          loggingLock.unlock();
+          database.setAutoCommit(true);
         }
+      } catch (SQLException e) {
+        LOGGER.log(Level.SEVERE, "Failed to manage database transaction", e);
+      }
+    }
+  }
 
+  /**
+   * Groups consecutive updates of the same statement into JDBC batches and executes them in order.
+   *
+   * @param updates Updates to execute.
+   * @throws SQLException If any batch fails.
+   */
+  private void executeBatches(List<StatementUpdate> updates) throws SQLException {
+    int i = 0;
+    while (i < updates.size()) {
+      final PreparedStatement ps = updates.get(i).statement;
+      synchronized (ps) {
+        final int first = i;
         try {
-          job.run();
-        } catch (Exception e) {
-          LOGGER.log(Level.SEVERE, "Exception while running database updater job", e);
+          while (i < updates.size() && updates.get(i).statement == ps) {
+            updates.get(i).binder.bind(ps);
+            ps.addBatch();
+            i++;
+          }
+          final DatabaseMetrics.StatementTimer timer = metrics.startStatement(ps);
+          try {
+            ps.executeBatch();
+            timer.finish(i - first, false);
+          } catch (SQLException e) {
+            timer.finish(i - first, true);
+            throw e;
+          }
+        } catch (SQLException e) {
+          ps.clearBatch();
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes jobs taken from the queue from the pending map, so that later updates to the same rows are queued again
+   * instead of modifying an update that is about to run.
+   *
+   * @param jobs Jobs taken from the queue.
+   */
+  private void claim(List<Runnable> jobs) {
+    synchronized (pendingLock) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      for (Runnable job : jobs) {
+        if (job instanceof StatementUpdate update && update.key != null) {
+          pending.remove(update.key, update);
         }
-      } catch (InterruptedException e) {
-        LOGGER.log(Level.WARNING, "Database updater interrupted while waiting for queue", e);
-        Thread.currentThread().interrupt();
       }
     }
   }
 
+  private void countUpdates(int updates, int commits) {
+    try {
+      loggingLock.lock();
+      databaseUpdates += updates;
+      databaseCommits += commits;
+    } finally {
+      loggingLock.unlock();
+    }
+  }
+
+  private int getQueueDepth() {
+    return queue.size();
+  }
+
+  private void notifyQueueSize() {
+    if (queueSizeListener != null) {
+      queueSizeListener.pass(queue.size());
+    }
+  }
+
   /**
    * Initializes the logging timer that outputs update counts regularly.
    */
@@ -204,12 +456,18 @@ public class DatabaseManager extends Thread {
       public void run() {
         try {
           loggingLock.lock();
-          if (databaseUpdates > 0) {
+          if (databaseUpdates > 0 || databaseCoalesced > 0) {
             final var minutesSinceLastLog = (System.currentTimeMillis() - lastLog) / 1000.0 / 60.0;
-            LOGGER.info(() -> String.format("DatabaseManager updated %d times in the last %.2fm",
-                databaseUpdates, minutesSinceLastLog));
+            final int updates = databaseUpdates;
+            final int commits = databaseCommits;
+            final int coalesced = databaseCoalesced;
+            LOGGER.info(() -> String.format(
+                "DatabaseManager updated %d times (%d commits, %d coalesced) in the last %.2fm",
+                updates, commits, coalesced, minutesSinceLastLog));
             lastLog = System.currentTimeMillis();
             databaseUpdates = 0;
+            databaseCommits = 0;
+            databaseCoalesced = 0;
           }
         } finally {
           loggingLock.unlock();
@@ -218,86 +476,298 @@ public class DatabaseManager extends Thread {
     };
 
     loggingTimer.schedule(task, 60000, 60000);
+
+    final var sampleTask = new TimerTask() {
+      @Override
+      public void run() {
+        metrics.sample();
+      }
+    };
+    loggingTimer.schedule(sampleTask, METRICS_SAMPLE_PERIOD, METRICS_SAMPLE_PERIOD);
   }
 
   public void setLoadListener(MenagerieDatabaseLoadListener loadListener) {
     this.loadListener = loadListener;
   }
 
+  /**
+   * Enables loading the menagerie on several database connections at once.
+   *
+   * @param loadConnections Opens additional connections to the same database. Connections are closed after loading.
+   * @param loadThreads     Number of tables loaded concurrently. 1 or less loads everything on this manager's
+   *                        connection.
+   */
+  public void setParallelLoad(ConnectionSupplier loadConnections, int loadThreads) {
+    this.loadConnections = loadConnections;
+    this.loadThreads = Math.max(1, loadThreads);
+  }
+
+  /**
+   * @return Statement, queue, and load metrics of this manager. Also registered as an MBean once this thread is started.
+   */
+  public DatabaseMetrics getMetrics() {
+    return metrics;
+  }
+
   public void setQueueSizeListener(ObjectListener<Integer> queueSizeListener) {
     this.queueSizeListener = queueSizeListener;
   }
 
   /**
-   * Enqueues a job to this thread. FIFO.
+   * Limits how far background updates can run ahead of the database. Threads queueing background updates are blocked
+   * while the background lane holds this many updates.
+   *
+   * @param highWaterMark Maximum number of queued background updates. 0 or less never blocks.
+   */
+  public void setBackpressure(int highWaterMark) {
+    queue.setHighWaterMark(highWaterMark);
+  }
+
+  /**
+   * Limits how far background updates can run ahead of the database, except on threads that must never wait, such as
+   * the JavaFX application thread. Those queue their updates past the high water mark instead.
+   *
+   * @param highWaterMark Maximum number of queued background updates. 0 or less never blocks.
+   * @param mayBlock      True if the calling thread may be blocked.
+   */
+  public void setBackpressure(int highWaterMark, BooleanSupplier mayBlock) {
+    this.mayBlock = mayBlock;
+    setBackpressure(highWaterMark);
+  }
+
+  /**
+   * Enqueues a job to this thread with {@link Priority#NORMAL} priority.
    *
    * @param job Job to enqueue.
    */
   public void enqueue(Runnable job) {
-    queue.add(job);
-    if (queueSizeListener != null) {
-      queueSizeListener.pass(queue.size());
+    enqueue(job, Priority.NORMAL);
+  }
+
+  /**
+   * Enqueues a job to this thread. Jobs run in FIFO order within a priority, and higher priorities always run first.
+   * Queueing a {@link Priority#BACKGROUND} job blocks while the background lane is at its high water mark, unless the
+   * calling thread is exempt, see {@link #setBackpressure(int, BooleanSupplier)}.
+   *
+   * @param job      Job to enqueue.
+   * @param priority Priority of the job.
+   */
+  public void enqueue(Runnable job, Priority priority) {
+    if (priority == Priority.BACKGROUND && Thread.currentThread() != this && mayBlock.getAsBoolean()) {
+      try {
+        queue.put(job, priority);
+      } catch (InterruptedException e) {
+        LOGGER.log(Level.WARNING, "Interrupted while waiting for background queue, queueing anyway", e);
+        Thread.currentThread().interrupt();
+        queue.add(job, priority);
+      }
+    } else {
+      queue.add(job, priority);
     }
+    notifyQueueSize();
+  }
+
+  /**
+   * Enables loading from, and writing, a snapshot of the library.
+   *
+   * @param snapshotFile Snapshot file, or null to always load from the database.
+   */
+  public void setSnapshotFile(File snapshotFile) {
+    this.snapshotFile = snapshotFile;
+  }
+
+  /**
+   * Waits until every update queued so far has been run.
+   *
+   * @param timeoutMillis Maximum time to wait in milliseconds.
+   * @return True if the queue was drained in time.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  public boolean awaitQueued(long timeoutMillis) throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    // Lowest lane runs last, and the latch must not be held back by backpressure
+    queue.add(latch::countDown, Priority.BACKGROUND);
+    notifyQueueSize();
+    return latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Scheduling class of a queued job.
+   */
+  public enum Priority {
+    /**
+     * Edits made by the user, and anything they depend on.
+     */
+    INTERACTIVE,
+    /**
+     * Default priority.
+     */
+    NORMAL,
+    /**
+     * Bulk updates of derived data, such as hashes and histograms computed during imports.
+     */
+    BACKGROUND
+  }
+
+  /**
+   * Opens a new connection to the database.
+   */
+  @FunctionalInterface
+  public interface ConnectionSupplier {
+    Connection get() throws SQLException;
   }
 
+  /**
+   * Binds the parameters of a single update to a prepared statement.
+   */
   @FunctionalInterface
-  private interface Action {
-    void execute() throws SQLException;
+  private interface StatementBinder {
+    void bind(PreparedStatement ps) throws SQLException;
   }
 
-  private void executeAsync(Action action, Supplier<String> errorMessage) {
-    queue.add(() -> {
+  /**
+   * A queued update of a single prepared statement. Consecutive updates of the same statement are executed as one JDBC
+   * batch in write-behind mode.
+   */
+  private final class StatementUpdate implements Runnable {
+
+    private final PreparedStatement statement;
+    private final PendingKey key;
+    // Replaced or cancelled under pendingLock until the update is claimed by the updater thread
+    private StatementBinder binder;
+    private Supplier<String> errorMessage;
+    private boolean cancelled = false;
+
+    private StatementUpdate(PreparedStatement statement, PendingKey key, StatementBinder binder,
+                            Supplier<String> errorMessage) {
+      this.statement = statement;
+      this.key = key;
+      this.binder = binder;
+      this.errorMessage = errorMessage;
+    }
+
+    @Override
+    public void run() {
+      final DatabaseMetrics.StatementTimer timer = metrics.startStatement(statement);
       try {
-        action.execute();
+        synchronized (statement) {
+          binder.bind(statement);
+          statement.executeUpdate();
+        }
+        timer.finish(1, false);
       } catch (SQLException e) {
+        timer.finish(1, true);
         LOGGER.log(Level.SEVERE, e, errorMessage);
       }
-    });
+    }
+
   }
 
   /**
-   * Stores an MD5 string in the database.
+   * Identifies the row written by a queued update. Updates with equal keys supersede each other.
    *
-   * @param id  ID of item to update.
-   * @param md5 MD5 to store.
-   * @throws SQLException If the database update failed.
+   * @param table Object identifying the table and column(s) written, usually the statement itself.
+   * @param row   Primary key of the row written.
    */
-  private void setMD5(int id, String md5) throws SQLException {
-    synchronized (PS_SET_MEDIA_MD5) {
-      PS_SET_MEDIA_MD5.setNString(1, md5);
-      PS_SET_MEDIA_MD5.setInt(2, id);
-      PS_SET_MEDIA_MD5.executeUpdate();
+  private record PendingKey(Object table, long row) {
+
+    private static long pair(int a, int b) {
+      return ((long) a << 32) | (b & 0xFFFFFFFFL);
     }
+
+  }
+
+  private void executeAsync(Priority priority, PreparedStatement statement, StatementBinder binder,
+                            Supplier<String> errorMessage) {
+    enqueue(new StatementUpdate(statement, null, binder, errorMessage), priority);
   }
 
   /**
-   * Queues an MD5 string to be stored in the database.
+   * Queues an update that supersedes any pending update with the same key. If the pending update uses the same
+   * statement, its parameters are replaced in place (last writer wins). If it uses a different statement, the two
+   * updates are inverses of each other (e.g. tag and untag of the same pair) and both are dropped.
    *
-   * @param id  ID of item to update.
-   * @param md5 MD5 to store.
+   * @param priority     Priority of the update. Updates with the same key must always use the same priority.
+   * @param key          Row written by the update.
+   * @param statement    Statement to execute.
+   * @param binder       Binds the parameters of the update.
+   * @param errorMessage Message logged if the update fails.
    */
-  public void setMD5Async(int id, String md5) {
-    executeAsync(() -> setMD5(id, md5), () -> "Failed to set md5 async: " + id + " - md5: " + md5);
+  private void executeCoalescedAsync(Priority priority, PendingKey key, PreparedStatement statement,
+                                     StatementBinder binder, Supplier<String> errorMessage) {
+    final StatementUpdate update;
+    synchronized (pendingLock) {
+      StatementUpdate existing = pending.get(key);
+      if (existing != null) {
+        if (existing.statement == statement) {
+          existing.binder = binder;
+          existing.errorMessage = errorMessage;
+          countCoalesced(1);
+        } else {
+          existing.cancelled = true;
+          pending.remove(key);
+          countCoalesced(2);
+        }
+        return;
+      }
+
+      update = new StatementUpdate(statement, key, binder, errorMessage);
+      pending.put(key, update);
+    }
+    enqueue(update, priority);
+  }
+
+  private void executeCoalescedAsync(Priority priority, PreparedStatement statement, int id,
+                                     StatementBinder binder, Supplier<String> errorMessage) {
+    executeCoalescedAsync(priority, new PendingKey(statement, id), statement, binder, errorMessage);
+  }
+
+  private void countCoalesced(int updates) {
+    try {
+      loggingLock.lock();
+      databaseCoalesced += updates;
+    } finally {
+      loggingLock.unlock();
+    }
   }
 
   /**
-   * Stores a histogram in the database.
+   * Executes an update immediately, outside any write-behind transaction.
    *
-   * @param id   ID of item to update.
-   * @param hist Histogram to store.
-   * @throws SQLException If database update fails.
+   * @param statement Statement to execute.
+   * @param binder    Binds the parameters of the update.
+   * @throws SQLException If the database update fails.
    */
-  private void setHist(int id, ImageHistogram hist) throws SQLException {
-    synchronized (PS_SET_MEDIA_HISTOGRAM) {
-      PS_SET_MEDIA_HISTOGRAM.setBinaryStream(1, hist.getAlphaAsInputStream());
-      PS_SET_MEDIA_HISTOGRAM.setBinaryStream(2, hist.getRedAsInputStream());
-      PS_SET_MEDIA_HISTOGRAM.setBinaryStream(3, hist.getGreenAsInputStream());
-      PS_SET_MEDIA_HISTOGRAM.setBinaryStream(4, hist.getBlueAsInputStream());
-      PS_SET_MEDIA_HISTOGRAM.setInt(5, id);
-      PS_SET_MEDIA_HISTOGRAM.executeUpdate();
+  private void executeNow(PreparedStatement statement, StatementBinder binder)
+      throws SQLException {
+    synchronized (transactionLock) {
+      final DatabaseMetrics.StatementTimer timer = metrics.startStatement(statement);
+      try {
+        synchronized (statement) {
+          binder.bind(statement);
+          statement.executeUpdate();
+        }
+        timer.finish(1, false);
+      } catch (SQLException e) {
+        timer.finish(1, true);
+        throw e;
+      }
     }
   }
 
+  /**
+   * Queues an MD5 string to be stored in the database.
+   *
+   * @param id  ID of item to update.
+   * @param md5 MD5 to store.
+   */
+  public void setMD5Async(int id, String md5) {
+    executeCoalescedAsync(Priority.BACKGROUND, PS_SET_MEDIA_MD5, id, ps -> {
+      ps.setNString(1, md5);
+      ps.setInt(2, id);
+    }, () -> "Failed to set md5 async: " + id + " - md5: " + md5);
+  }
+
   /**
    * Queues a histogram to be stored in the database.
    *
@@ -305,7 +775,10 @@ public class DatabaseManager extends Thread {
    * @param hist Histogram to store.
    */
   public void setHistAsync(int id, ImageHistogram hist) {
-    executeAsync(() -> setHist(id, hist), () -> "Failed to set histogram async: " + id);
+    executeCoalescedAsync(Priority.BACKGROUND, PS_SET_MEDIA_HISTOGRAM, id, ps -> {
+      ps.setBytes(1, hist.toPackedBytes());
+      ps.setInt(2, id);
+    }, () -> "Failed to set histogram async: " + id);
   }
 
   /**
@@ -316,75 +789,111 @@ public class DatabaseManager extends Thread {
    * @throws SQLException If database update fails.
    */
   public void setPath(int id, String path) throws SQLException {
-    synchronized (PS_SET_MEDIA_PATH) {
-      PS_SET_MEDIA_PATH.setNString(1, path);
-      PS_SET_MEDIA_PATH.setInt(2, id);
-      PS_SET_MEDIA_PATH.executeUpdate();
-    }
+    executeNow(PS_SET_MEDIA_PATH, ps -> {
+      ps.setNString(1, path);
+      ps.setInt(2, id);
+    });
   }
 
   /**
-   * Tags an item with a tag.
+   * Queues a tag to be added to an item.
    *
    * @param item ID of item.
    * @param tag  ID of tag.
-   * @throws SQLException If database update fails.
    */
-  private void tagItem(int item, int tag) throws SQLException {
-    synchronized (PS_ADD_TAG_TO_ITEM) {
-      PS_ADD_TAG_TO_ITEM.setInt(1, item);
-      PS_ADD_TAG_TO_ITEM.setInt(2, tag);
-      PS_ADD_TAG_TO_ITEM.executeUpdate();
-    }
+  public void tagItemAsync(int item, int tag) {
+    final PendingKey key = new PendingKey(PS_ADD_TAG_TO_ITEM, PendingKey.pair(item, tag));
+    executeCoalescedAsync(Priority.INTERACTIVE, key, PS_ADD_TAG_TO_ITEM, ps -> {
+      ps.setInt(1, item);
+      ps.setInt(2, tag);
+    }, () -> "Failed to tag item: " + item + " with tag: " + tag);
   }
 
   /**
-   * Queues a tag to be added to an item.
+   * Queues a tag to be removed from an item.
    *
    * @param item ID of item.
    * @param tag  ID of tag.
    */
-  public void tagItemAsync(int item, int tag) {
-    executeAsync(() -> tagItem(item, tag),
-        () -> "Failed to tag item: " + item + " with tag: " + tag);
+  public void untagItemAsync(int item, int tag) {
+    final PendingKey key = new PendingKey(PS_ADD_TAG_TO_ITEM, PendingKey.pair(item, tag));
+    executeCoalescedAsync(Priority.INTERACTIVE, key, PS_REMOVE_TAG_FROM_ITEM, ps -> {
+      ps.setInt(1, item);
+      ps.setInt(2, tag);
+    }, () -> "Failed to untag item: " + item + " from tag: " + tag);
   }
 
   /**
-   * Removes a tag from an item.
+   * Queues a tag to be added to many items. Rows are written as JDBC batches of up to {@link #BULK_CHUNK_SIZE} rows per
+   * job and transaction instead of one queued job per row.
    *
-   * @param item ID of item.
-   * @param tag  ID of tag.
-   * @throws SQLException If database update fails.
+   * @param items IDs of items.
+   * @param tag   ID of tag.
    */
-  private void untagItem(int item, int tag) throws SQLException {
-    synchronized (PS_REMOVE_TAG_FROM_ITEM) {
-      PS_REMOVE_TAG_FROM_ITEM.setInt(1, item);
-      PS_REMOVE_TAG_FROM_ITEM.setInt(2, tag);
-      PS_REMOVE_TAG_FROM_ITEM.executeUpdate();
-    }
+  public void tagItemsAsync(int[] items, int tag) {
+    executeTaggedBulkAsync(PS_ADD_TAG_TO_ITEM, items, tag,
+        item -> () -> "Failed to tag item: " + item + " with tag: " + tag);
   }
 
   /**
-   * Queues a tag to be removed from an item.
+   * Queues a tag to be removed from many items. Rows are written as JDBC batches of up to {@link #BULK_CHUNK_SIZE} rows
+   * per job and transaction instead of one queued job per row.
    *
-   * @param item ID of item.
-   * @param tag  ID of tag.
+   * @param items IDs of items.
+   * @param tag   ID of tag.
    */
-  public void untagItemAsync(int item, int tag) {
-    executeAsync(() -> untagItem(item, tag),
-        () -> "Failed to untag item: " + item + " from tag: " + tag);
+  public void untagItemsAsync(int[] items, int tag) {
+    executeTaggedBulkAsync(PS_REMOVE_TAG_FROM_ITEM, items, tag,
+        item -> () -> "Failed to untag item: " + item + " from tag: " + tag);
   }
 
   /**
-   * Removes an item from the database.
+   * Queues jobs that tag or untag many items. Pending single-pair updates of the same rows are coalesced with the
+   * bulk update the same way {@link #executeCoalescedAsync} coalesces them with each other. The remaining rows are not
+   * registered as pending, so later single-pair updates are queued behind the bulk jobs.
    *
-   * @param id ID of item.
-   * @throws SQLException If database update fails.
+   * @param statement    {@link #PS_ADD_TAG_TO_ITEM} or {@link #PS_REMOVE_TAG_FROM_ITEM}.
+   * @param items        IDs of items.
+   * @param tag          ID of tag.
+   * @param errorMessage Message logged if the update of an item fails.
+   */
+  private void executeTaggedBulkAsync(PreparedStatement statement, int[] items, int tag,
+                                      IntFunction<Supplier<String>> errorMessage) {
+    final List<StatementUpdate> updates = new ArrayList<>(items.length);
+    synchronized (pendingLock) {
+      for (int item : items) {
+        StatementUpdate existing = pending.get(new PendingKey(PS_ADD_TAG_TO_ITEM, PendingKey.pair(item, tag)));
+        if (existing != null) {
+          if (existing.statement == statement) {
+            countCoalesced(1);
+          } else {
+            existing.cancelled = true;
+            pending.remove(existing.key);
+            countCoalesced(2);
+          }
+          continue;
+        }
+
+        updates.add(new StatementUpdate(statement, null, ps -> {
+          ps.setInt(1, item);
+          ps.setInt(2, tag);
+        }, errorMessage.apply(item)));
+      }
+    }
+
+    executeBulkAsync(updates);
+  }
+
+  /**
+   * Queues a bulk update as jobs of up to {@link #BULK_CHUNK_SIZE} updates, each committed as JDBC batches in one
+   * transaction.
+   *
+   * @param updates Updates to execute, in order.
    */
-  private void removeItem(int id) throws SQLException {
-    synchronized (PS_DELETE_ITEM) {
-      PS_DELETE_ITEM.setInt(1, id);
-      PS_DELETE_ITEM.executeUpdate();
+  private void executeBulkAsync(List<StatementUpdate> updates) {
+    for (int i = 0; i < updates.size(); i += BULK_CHUNK_SIZE) {
+      final List<StatementUpdate> chunk = updates.subList(i, Math.min(updates.size(), i + BULK_CHUNK_SIZE));
+      enqueue(() -> commitUpdates(chunk), Priority.INTERACTIVE);
     }
   }
 
@@ -394,22 +903,23 @@ public class DatabaseManager extends Thread {
    * @param id ID of item.
    */
   public void removeItemAsync(int id) {
-    executeAsync(() -> removeItem(id), () -> "Failed to remove item: " + id);
+    executeAsync(Priority.INTERACTIVE, PS_DELETE_ITEM, ps -> ps.setInt(1, id),
+        () -> "Failed to remove item: " + id);
   }
 
   /**
-   * Creates a tag in the database.
+   * Queues items to be removed from the database. Rows are deleted as JDBC batches of up to {@link #BULK_CHUNK_SIZE}
+   * rows per job and transaction instead of one queued job per item.
    *
-   * @param id   ID of tag.
-   * @param name Name of tag.
-   * @throws SQLException If database update fails.
+   * @param ids IDs of items.
    */
-  private void createTag(int id, String name) throws SQLException {
-    synchronized (PS_CREATE_TAG) {
-      PS_CREATE_TAG.setInt(1, id);
-      PS_CREATE_TAG.setNString(2, name);
-      PS_CREATE_TAG.executeUpdate();
+  public void removeItemsAsync(int[] ids) {
+    final List<StatementUpdate> updates = new ArrayList<>(ids.length);
+    for (int id : ids) {
+      updates.add(new StatementUpdate(PS_DELETE_ITEM, null, ps -> ps.setInt(1, id),
+          () -> "Failed to remove item: " + id));
     }
+    executeBulkAsync(updates);
   }
 
   /**
@@ -419,8 +929,10 @@ public class DatabaseManager extends Thread {
    * @param name Name of tag.
    */
   public void createTagAsync(int id, String name) {
-    executeAsync(() -> createTag(id, name),
-        () -> "Failed to create tag: " + id + " - \"" + name + "\"");
+    executeAsync(Priority.INTERACTIVE, PS_CREATE_TAG, ps -> {
+      ps.setInt(1, id);
+      ps.setNString(2, name);
+    }, () -> "Failed to create tag: " + id + " - \"" + name + "\"");
   }
 
   /**
@@ -430,10 +942,7 @@ public class DatabaseManager extends Thread {
    * @throws SQLException If database update fails.
    */
   public void deleteTag(int id) throws SQLException {
-    synchronized (PS_DELETE_TAG) {
-      PS_DELETE_TAG.setInt(1, id);
-      PS_DELETE_TAG.executeUpdate();
-    }
+    executeNow(PS_DELETE_TAG, ps -> ps.setInt(1, id));
   }
 
   /**
@@ -448,26 +957,12 @@ public class DatabaseManager extends Thread {
   }
 
   private void createMediaData(MediaItem media) throws SQLException {
-    synchronized (PS_CREATE_MEDIA) {
-      PS_CREATE_MEDIA.setInt(1, media.getId());
-      PS_CREATE_MEDIA.setNString(2, media.getFile().getAbsolutePath());
-      PS_CREATE_MEDIA.setNString(3, media.getMD5());
-      PS_CREATE_MEDIA.setBinaryStream(4, null);
-      PS_CREATE_MEDIA.setBinaryStream(5, null);
-      PS_CREATE_MEDIA.setBinaryStream(6, null);
-      PS_CREATE_MEDIA.setBinaryStream(7, null);
-      setMediaHistogramData(media);
-      PS_CREATE_MEDIA.executeUpdate();
-    }
-  }
-
-  private void setMediaHistogramData(MediaItem media) throws SQLException {
-    if (media.getHistogram() != null) {
-      PS_CREATE_MEDIA.setBinaryStream(4, media.getHistogram().getAlphaAsInputStream());
-      PS_CREATE_MEDIA.setBinaryStream(5, media.getHistogram().getRedAsInputStream());
-      PS_CREATE_MEDIA.setBinaryStream(6, media.getHistogram().getGreenAsInputStream());
-      PS_CREATE_MEDIA.setBinaryStream(7, media.getHistogram().getBlueAsInputStream());
-    }
+    executeNow(PS_CREATE_MEDIA, ps -> {
+      ps.setInt(1, media.getId());
+      ps.setNString(2, media.getFile().getAbsolutePath());
+      ps.setNString(3, media.getMD5());
+      ps.setBytes(4, media.getHistogram() != null ? media.getHistogram().toPackedBytes() : null);
+    });
   }
 
   /**
@@ -482,64 +977,34 @@ public class DatabaseManager extends Thread {
   }
 
   private void createGroupData(GroupItem group) throws SQLException {
-    synchronized (PS_CREATE_GROUP) {
-      PS_CREATE_GROUP.setInt(1, group.getId());
-      PS_CREATE_GROUP.setNString(2, group.getTitle());
-      PS_CREATE_GROUP.executeUpdate();
-    }
+    executeNow(PS_CREATE_GROUP, ps -> {
+      ps.setInt(1, group.getId());
+      ps.setNString(2, group.getTitle());
+    });
   }
 
   private void createItem(int id, long dateAdded) throws SQLException {
-    synchronized (PS_CREATE_ITEM) {
-      PS_CREATE_ITEM.setInt(1, id);
-      PS_CREATE_ITEM.setLong(2, dateAdded);
-      PS_CREATE_ITEM.executeUpdate();
-    }
+    executeNow(PS_CREATE_ITEM, ps -> {
+      ps.setInt(1, id);
+      ps.setLong(2, dateAdded);
+    });
   }
 
   /**
-   * Sets the GID (parent group ID) of a media item.
+   * Queues an update to set the GID (parent group ID) of a media item.
    *
    * @param id  ID of media.
    * @param gid ID of group.
-   * @throws SQLException When database update fails.
    */
-  private void setMediaGID(int id, Integer gid) throws SQLException {
-    synchronized (PS_SET_MEDIA_GID) {
+  public void setMediaGIDAsync(int id, Integer gid) {
+    executeCoalescedAsync(Priority.INTERACTIVE, PS_SET_MEDIA_GID, id, ps -> {
       if (gid == null) {
-        PS_SET_MEDIA_GID.setNull(1, Types.INTEGER);
+        ps.setNull(1, Types.INTEGER);
       } else {
-        PS_SET_MEDIA_GID.setInt(1, gid);
+        ps.setInt(1, gid);
       }
-      PS_SET_MEDIA_GID.setInt(2, id);
-      PS_SET_MEDIA_GID.executeUpdate();
-    }
-  }
-
-  /**
-   * Queues an update to set the GID of a media item.
-   *
-   * @param id  ID of media.
-   * @param gid ID of group.
-   */
-  public void setMediaGIDAsync(int id, Integer gid) {
-    executeAsync(() -> setMediaGID(id, gid),
-        () -> String.format("Failed to set media GID async. ID: %d, GID: %d", id, gid));
-  }
-
-  /**
-   * Sets the page index of a media item.
-   *
-   * @param id   ID of media item.
-   * @param page Page index to set.
-   * @throws SQLException If database update fails.
-   */
-  private void setMediaPage(int id, int page) throws SQLException {
-    synchronized (PS_SET_MEDIA_PAGE) {
-      PS_SET_MEDIA_PAGE.setInt(1, page);
-      PS_SET_MEDIA_PAGE.setInt(2, id);
-      PS_SET_MEDIA_PAGE.executeUpdate();
-    }
+      ps.setInt(2, id);
+    }, () -> String.format("Failed to set media GID async. ID: %d, GID: %d", id, gid));
   }
 
   /**
@@ -549,22 +1014,10 @@ public class DatabaseManager extends Thread {
    * @param page Page index to set.
    */
   public void setMediaPageAsync(int id, int page) {
-    executeAsync(() -> setMediaPage(id, page),
-        () -> String.format("Failed to set media page index. ID: %d, Page: %d", id, page));
-  }
-
-  /**
-   * Sets the title of a group.
-   *
-   * @param id    ID of group.
-   * @param title Title to set to.
-   */
-  private void setGroupTitle(int id, String title) throws SQLException {
-    synchronized (PS_SET_GROUP_TITLE) {
-      PS_SET_GROUP_TITLE.setNString(1, title);
-      PS_SET_GROUP_TITLE.setInt(2, id);
-      PS_SET_GROUP_TITLE.executeUpdate();
-    }
+    executeCoalescedAsync(Priority.INTERACTIVE, PS_SET_MEDIA_PAGE, id, ps -> {
+      ps.setInt(1, page);
+      ps.setInt(2, id);
+    }, () -> String.format("Failed to set media page index. ID: %d, Page: %d", id, page));
   }
 
   /**
@@ -574,23 +1027,10 @@ public class DatabaseManager extends Thread {
    * @param title Title to set.
    */
   public void setGroupTitleAsync(int id, String title) {
-    executeAsync(() -> setGroupTitle(id, title),
-        () -> "Failed to set group title. ID: " + id + ", Title: " + title);
-  }
-
-  /**
-   * Inserts a note into the tag_notes table.
-   *
-   * @param id   ID of tag note is attached to.
-   * @param note The note.
-   * @throws SQLException When database update fails.
-   */
-  private void addTagNote(int id, String note) throws SQLException {
-    synchronized (PS_ADD_TAG_NOTE) {
-      PS_ADD_TAG_NOTE.setInt(1, id);
-      PS_ADD_TAG_NOTE.setNString(2, note);
-      PS_ADD_TAG_NOTE.executeUpdate();
-    }
+    executeCoalescedAsync(Priority.INTERACTIVE, PS_SET_GROUP_TITLE, id, ps -> {
+      ps.setNString(1, title);
+      ps.setInt(2, id);
+    }, () -> "Failed to set group title. ID: " + id + ", Title: " + title);
   }
 
   /**
@@ -600,49 +1040,23 @@ public class DatabaseManager extends Thread {
    * @param note The note.
    */
   public void addTagNoteAsync(int id, String note) {
-    executeAsync(() -> addTagNote(id, note),
-        () -> String.format("Failed to insert tag note. Tag ID: %d, Note: \"%s\"", id, note));
+    executeAsync(Priority.INTERACTIVE, PS_ADD_TAG_NOTE, ps -> {
+      ps.setInt(1, id);
+      ps.setNString(2, note);
+    }, () -> String.format("Failed to insert tag note. Tag ID: %d, Note: \"%s\"", id, note));
   }
 
   /**
-   * Deletes a note from the tag_notes table.
-   *
-   * @param id   ID of tag note is attached to.
-   * @param note The note.
-   * @throws SQLException If database update fails.
-   */
-  private void removeTagNote(int id, String note) throws SQLException {
-    synchronized (PS_REMOVE_TAG_NOTE) {
-      PS_REMOVE_TAG_NOTE.setInt(1, id);
-      PS_REMOVE_TAG_NOTE.setNString(2, note);
-      PS_REMOVE_TAG_NOTE.executeUpdate();
-    }
-  }
-
-  /**
-   * Queues a tag note to be deleted.
+   * Queues a tag note to be deleted from the tag_notes table.
    *
    * @param id   ID of tag.
    * @param note The note.
    */
   public void removeTagNoteAsync(int id, String note) {
-    executeAsync(() -> removeTagNote(id, note),
-        () -> String.format("Failed to remove tag note. Tag ID: %d, Note: \"%s\"", id, note));
-  }
-
-  /**
-   * Sets the color of a tag.
-   *
-   * @param id    ID of tag.
-   * @param color Color to set.
-   * @throws SQLException If database update fails.
-   */
-  private void setTagColor(int id, String color) throws SQLException {
-    synchronized (PS_SET_TAG_COLOR) {
-      PS_SET_TAG_COLOR.setNString(1, color);
-      PS_SET_TAG_COLOR.setInt(2, id);
-      PS_SET_TAG_COLOR.executeUpdate();
-    }
+    executeAsync(Priority.INTERACTIVE, PS_REMOVE_TAG_NOTE, ps -> {
+      ps.setInt(1, id);
+      ps.setNString(2, note);
+    }, () -> String.format("Failed to remove tag note. Tag ID: %d, Note: \"%s\"", id, note));
   }
 
   /**
@@ -652,98 +1066,105 @@ public class DatabaseManager extends Thread {
    * @param color Color to set.
    */
   public void setTagColorAsync(int id, String color) {
-    executeAsync(() -> setTagColor(id, color),
-        () -> String.format("Failed to set tag color: ID: %d, Color: %s", id, color));
+    executeCoalescedAsync(Priority.INTERACTIVE, PS_SET_TAG_COLOR, id, ps -> {
+      ps.setNString(1, color);
+      ps.setInt(2, id);
+    }, () -> String.format("Failed to set tag color: ID: %d, Color: %s", id, color));
   }
 
   /**
-   * Sets the flag of a media item signifying it has no similar items with the weakest confidence.
+   * Queues a value to be set for the media no_similar flag, signifying it has no similar items with the weakest
+   * confidence.
    *
    * @param id ID of media.
-   * @param b  noSimilar value.
-   * @throws SQLException When database update fails.
+   * @param b  Flag.
    */
-  private void setMediaNoSimilar(int id, boolean b) throws SQLException {
-    synchronized (PS_SET_MEDIA_NOSIMILAR) {
-      PS_SET_MEDIA_NOSIMILAR.setBoolean(1, b);
-      PS_SET_MEDIA_NOSIMILAR.setInt(2, id);
-      PS_SET_MEDIA_NOSIMILAR.executeUpdate();
-    }
+  public void setMediaNoSimilarAsync(int id, boolean b) {
+    executeCoalescedAsync(Priority.BACKGROUND, PS_SET_MEDIA_NOSIMILAR, id, ps -> {
+      ps.setBoolean(1, b);
+      ps.setInt(2, id);
+    }, () -> "Failed to set media no_similar. ID: " + id + ", no_similar: " + b);
   }
 
   /**
-   * Queues a value to be set for the media no_similar flag.
+   * Normalizes an unordered pair of item IDs to the value of the non_dupes pair column.
    *
-   * @param id ID of media.
-   * @param b  Flag.
+   * @param id1 First item ID.
+   * @param id2 Second item ID.
+   * @return Smaller ID in the high 32 bits, larger ID in the low 32 bits.
    */
-  public void setMediaNoSimilarAsync(int id, boolean b) {
-    executeAsync(() -> setMediaNoSimilar(id, b),
-        () -> "Failed to set media no_similar. ID: " + id + ", no_similar: " + b);
-  }
-
-  private void addNonDuplicate(int id1, int id2) throws SQLException {
-    synchronized (PS_ADD_NON_DUPE) {
-      PS_ADD_NON_DUPE.setInt(1, id1);
-      PS_ADD_NON_DUPE.setInt(2, id2);
-      PS_ADD_NON_DUPE.executeUpdate();
-    }
+  static long nonDuplicatePair(int id1, int id2) {
+    return PendingKey.pair(Math.min(id1, id2), Math.max(id1, id2));
   }
 
   public void addNonDuplicateAsync(int id1, int id2) {
-    executeAsync(() -> addNonDuplicate(id1, id2),
-        () -> "Failed to add to non_dupes: " + id1 + ", " + id2);
-  }
-
-  private void removeNonDuplicate(int id1, int id2) throws SQLException {
-    synchronized (PS_REMOVE_NON_DUPE) {
-      PS_REMOVE_NON_DUPE.setInt(1, id1);
-      PS_REMOVE_NON_DUPE.setInt(2, id2);
-      PS_REMOVE_NON_DUPE.setInt(3, id1);
-      PS_REMOVE_NON_DUPE.setInt(4, id2);
-      PS_REMOVE_NON_DUPE.executeUpdate();
-    }
+    final long pair = nonDuplicatePair(id1, id2);
+    final PendingKey key = new PendingKey(PS_ADD_NON_DUPE, pair);
+    executeCoalescedAsync(Priority.INTERACTIVE, key, PS_ADD_NON_DUPE, ps -> {
+      ps.setInt(1, Math.min(id1, id2));
+      ps.setInt(2, Math.max(id1, id2));
+      ps.setLong(3, pair);
+    }, () -> "Failed to add to non_dupes: " + id1 + ", " + id2);
   }
 
   public void removeNonDuplicateAsync(int id1, int id2) {
-    executeAsync(() -> removeNonDuplicate(id1, id2),
-        () -> "Failed to remove from non_dupes: " + id1 + ", " + id2);
+    final long pair = nonDuplicatePair(id1, id2);
+    final PendingKey key = new PendingKey(PS_ADD_NON_DUPE, pair);
+    executeCoalescedAsync(Priority.INTERACTIVE, key, PS_REMOVE_NON_DUPE,
+        ps -> ps.setLong(1, pair), () -> "Failed to remove from non_dupes: " + id1 + ", " + id2);
   }
-
   /**
-   * Finds the highest item ID value.
+   * Reads the item ID high-water mark. No item ID at or above the mark has been handed out.
    *
-   * @return Highest ID value, or 0 if none.
+   * @return First item ID that has not been reserved.
    * @throws SQLException If database query fails.
    */
-  public int getHighestItemID() throws SQLException {
-    synchronized (PS_GET_HIGHEST_ITEM_ID) {
-      try (ResultSet rs = PS_GET_HIGHEST_ITEM_ID.executeQuery()) {
-        if (rs.next()) {
-          return rs.getInt(1);
-        }
-      }
-    }
+  public int getNextItemID() throws SQLException {
+    return getIdMark(PS_GET_NEXT_ITEM_ID);
+  }
 
-    return 0;
+  /**
+   * Stores the item ID high-water mark. Executed immediately, so that the mark is persisted before any item using a
+   * reserved ID is created.
+   *
+   * @param mark First item ID that has not been reserved.
+   * @throws SQLException If database update fails.
+   */
+  public void setNextItemID(int mark) throws SQLException {
+    executeNow(PS_SET_NEXT_ITEM_ID, ps -> ps.setInt(1, mark));
   }
 
   /**
-   * Finds the highest tag ID value.
+   * Reads the tag ID high-water mark. No tag ID at or above the mark has been handed out.
    *
-   * @return Highest ID value, or 0 if none.
+   * @return First tag ID that has not been reserved.
    * @throws SQLException If database query fails.
    */
-  public int getHighestTagID() throws SQLException {
-    synchronized (PS_GET_HIGHEST_TAG_ID) {
-      try (ResultSet rs = PS_GET_HIGHEST_TAG_ID.executeQuery()) {
+  public int getNextTagID() throws SQLException {
+    return getIdMark(PS_GET_NEXT_TAG_ID);
+  }
+
+  /**
+   * Stores the tag ID high-water mark. Executed immediately, so that the mark is persisted before any tag using a
+   * reserved ID is created.
+   *
+   * @param mark First tag ID that has not been reserved.
+   * @throws SQLException If database update fails.
+   */
+  public void setNextTagID(int mark) throws SQLException {
+    executeNow(PS_SET_NEXT_TAG_ID, ps -> ps.setInt(1, mark));
+  }
+
+  private int getIdMark(PreparedStatement ps) throws SQLException {
+    synchronized (ps) {
+      try (ResultSet rs = ps.executeQuery()) {
         if (rs.next()) {
           return rs.getInt(1);
         }
       }
     }
 
-    return 0;
+    return 1;
   }
 
   /**
@@ -754,24 +1175,99 @@ public class DatabaseManager extends Thread {
    * @param menagerie Menagerie to load objects into.
    */
   public void loadIntoMenagerie(Menagerie menagerie) throws SQLException {
-    loadTags(menagerie);
+    metrics.clearLoadPhases();
+    final long changeCount = getChangeCount();
+
+    boolean loaded = false;
+    if (snapshotFile != null) {
+      final DatabaseMetrics.PhaseTimer phase = metrics.startPhase("snapshot");
+      loaded = MenagerieSnapshot.read(menagerie, changeCount, snapshotFile, loadListener);
+      phase.finish();
+    }
+    if (loaded) {
+      LOGGER.info(() -> String.format("Finished loading %d items from snapshot %s",
+          menagerie.getItems().size(), snapshotFile));
+    } else if (loadConnections != null && loadThreads > 1) {
+      new ParallelDatabaseLoader(loadConnections, loadThreads, loadListener, metrics).load(menagerie);
+    } else {
+      loadFromDatabase(menagerie);
+    }
+
+    // Any snapshot written before this session is stale from now on
+    incrementChangeCount();
+  }
+
+  /**
+   * Writes a snapshot of the library for the next startup, if snapshots are enabled. Should only be called at clean
+   * shutdown, after all queued updates have been run.
+   *
+   * @param menagerie Menagerie to write.
+   */
+  public void writeSnapshot(Menagerie menagerie) {
+    if (snapshotFile == null) {
+      return;
+    }
+
+    try {
+      final long t = System.currentTimeMillis();
+      MenagerieSnapshot.write(menagerie, getChangeCount(), snapshotFile);
+      LOGGER.info(() -> String.format("Wrote snapshot %s in %.2fs", snapshotFile,
+          (System.currentTimeMillis() - t) / 1000.0));
+    } catch (IOException | SQLException e) {
+      LOGGER.log(Level.SEVERE, "Failed to write snapshot: " + snapshotFile, e);
+    }
+  }
+
+  private long getChangeCount() throws SQLException {
+    synchronized (PS_GET_CHANGE_COUNT) {
+      try (ResultSet rs = PS_GET_CHANGE_COUNT.executeQuery()) {
+        if (rs.next()) {
+          return rs.getLong(1);
+        }
+      }
+    }
+
+    return 0;
+  }
+
+  private void incrementChangeCount() throws SQLException {
+    executeNow(PS_INCREMENT_CHANGE_COUNT, ps -> {
+    });
+  }
+
+  private void loadFromDatabase(Menagerie menagerie) throws SQLException {
+    // Id lookups for the duration of the load, the menagerie builds its own indexes once loading has finished
+    final Map<Integer, Tag> tagsById = new HashMap<>();
+    final Map<Integer, Item> itemsById = new HashMap<>();
+
+    DatabaseMetrics.PhaseTimer phase = metrics.startPhase("tags");
+    loadTags(menagerie, tagsById);
+    phase.finish();
     LOGGER.info(() -> FINISHED_LOADING_LOG_TEMPLATE
         .formatted(menagerie.getTags().size(), "tags"));
 
-    loadTagNotes(menagerie);
+    phase = metrics.startPhase("tag notes");
+    loadTagNotes(tagsById);
+    phase.finish();
     LOGGER.info(() -> FINISHED_LOADING_LOG_TEMPLATE
         .formatted("all", "tag notes into tags"));
 
-    loadItems(menagerie);
+    phase = metrics.startPhase("items");
+    loadItems(menagerie, itemsById);
     sortGroupElements(menagerie);
+    phase.finish();
     LOGGER.info(() -> FINISHED_LOADING_LOG_TEMPLATE
         .formatted(menagerie.getItems().size(), "items"));
 
-    loadTagsForItems(menagerie);
+    phase = metrics.startPhase("tagged");
+    loadTagsForItems(itemsById, tagsById);
+    phase.finish();
     LOGGER.info(() -> FINISHED_LOADING_LOG_TEMPLATE
-        .formatted(menagerie.getItems().size(), "items"));
+        .formatted("all", "tags into items"));
 
-    loadNonDupes(menagerie);
+    phase = metrics.startPhase("non-duplicates");
+    loadNonDupes(menagerie, itemsById);
+    phase.finish();
     LOGGER.info(() -> FINISHED_LOADING_LOG_TEMPLATE
         .formatted(menagerie.getNonDuplicates().size(), "non-duplicates"));
   }
@@ -781,7 +1277,7 @@ public class DatabaseManager extends Thread {
    *
    * @param menagerie Menagerie to sort groups in.
    */
-  private void sortGroupElements(Menagerie menagerie) {
+  static void sortGroupElements(Menagerie menagerie) {
     for (Item item : menagerie.getItems()) {
       Items.get(ItemGroupHandler.class, item).ifPresent(itemGroupHandler -> itemGroupHandler.sortItems(item));
     }
@@ -790,15 +1286,15 @@ public class DatabaseManager extends Thread {
   /**
    * Loads all tag notes into their tags.
    *
-   * @param menagerie Menagerie to load tag notes into.
+   * @param tagsById Loaded tags by id.
    * @throws SQLException When database query fails.
    */
-  private void loadTagNotes(Menagerie menagerie) throws SQLException {
+  private void loadTagNotes(Map<Integer, Tag> tagsById) throws SQLException {
     synchronized (PS_GET_TAG_NOTES) {
       try (ResultSet rs = PS_GET_TAG_NOTES.executeQuery()) {
         while (rs.next()) {
           final var tagId = rs.getInt("tag_id");
-          Tag tag = menagerie.getTagByID(tagId);
+          Tag tag = tagsById.get(tagId);
 
           if (tag != null) {
             tag.getNotes().add(rs.getNString("note"));
@@ -817,20 +1313,21 @@ public class DatabaseManager extends Thread {
    * WARNING: This call is expensive and should only be called once per Menagerie environment.
    *
    * @param menagerie Menagerie to load tags into.
+   * @param tagsById  Map to put loaded tags into by id.
    * @throws SQLException When database query fails.
    */
-  private void loadTags(Menagerie menagerie) throws SQLException {
+  private void loadTags(Menagerie menagerie, Map<Integer, Tag> tagsById) throws SQLException {
     int total = getTagCount();
     if (loadListener != null) {
       loadListener.startTagLoading(total);
     }
-    getAllTags(menagerie, total);
+    getAllTags(menagerie, tagsById, total);
   }
 
   private int getTagCount() throws SQLException {
     int total = 0;
     synchronized (PS_GET_TAG_COUNT) {
-      try (ResultSet rs = PS_GET_TAG_NOTES.executeQuery()) {
+      try (ResultSet rs = PS_GET_TAG_COUNT.executeQuery()) {
         if (rs.next()) {
           total = rs.getInt(1);
         }
@@ -839,7 +1336,8 @@ public class DatabaseManager extends Thread {
     return total;
   }
 
-  private void getAllTags(Menagerie menagerie, int totalTagCount) throws SQLException {
+  private void getAllTags(Menagerie menagerie, Map<Integer, Tag> tagsById, int totalTagCount)
+      throws SQLException {
     synchronized (PS_GET_TAGS) {
       try (ResultSet rs = PS_GET_TAGS.executeQuery()) {
         int i = 0;
@@ -848,7 +1346,9 @@ public class DatabaseManager extends Thread {
           final var id = rs.getInt("id");
           final var name = rs.getNString("name");
           final var color = rs.getNString("color");
-          menagerie.getTags().add(new Tag(menagerie, id, name, color));
+          final Tag tag = new Tag(menagerie, id, name, color);
+          menagerie.getTags().add(tag);
+          tagsById.put(id, tag);
           if (loadListener != null) {
             loadListener.tagsLoading(i, totalTagCount);
           }
@@ -857,7 +1357,8 @@ public class DatabaseManager extends Thread {
     }
   }
 
-  private void loadNonDupes(Menagerie menagerie) throws SQLException {
+  private void loadNonDupes(Menagerie menagerie, Map<Integer, Item> itemsById)
+      throws SQLException {
     if (loadListener != null) {
       loadListener.gettingNonDupeList();
     }
@@ -867,7 +1368,7 @@ public class DatabaseManager extends Thread {
       loadListener.startNonDupeLoading(total);
     }
 
-    getAllDupes(menagerie, total);
+    getAllDupes(menagerie, itemsById, total);
   }
 
   private int getDupesCount() throws SQLException {
@@ -882,15 +1383,16 @@ public class DatabaseManager extends Thread {
     return total;
   }
 
-  private void getAllDupes(Menagerie menagerie, int totalDupesCount) throws SQLException {
+  private void getAllDupes(Menagerie menagerie, Map<Integer, Item> itemsById, int totalDupesCount)
+      throws SQLException {
     synchronized (PS_GET_NON_DUPES) {
       try (ResultSet rs = PS_GET_NON_DUPES.executeQuery()) {
         int i = 0;
         while (rs.next()) {
           i++;
           menagerie.getNonDuplicates().add(
-              new SimilarPair<>((MediaItem) menagerie.getItemByID(rs.getInt(1)),
-                  (MediaItem) menagerie.getItemByID(rs.getInt(2)), 0));
+              new SimilarPair<>((MediaItem) itemsById.get(rs.getInt(1)),
+                  (MediaItem) itemsById.get(rs.getInt(2)), 0));
           if (loadListener != null) {
             loadListener.nonDupeLoading(i, totalDupesCount);
           }
@@ -907,15 +1409,16 @@ public class DatabaseManager extends Thread {
    * WARNING: This call is very expensive and should only be called once.
    *
    * @param menagerie Menagerie to load items into.
+   * @param itemsById Map to put loaded items into by id.
    * @throws SQLException When database query fails.
    */
-  private void loadItems(Menagerie menagerie) throws SQLException {
+  private void loadItems(Menagerie menagerie, Map<Integer, Item> itemsById) throws SQLException {
     if (loadListener != null) {
       loadListener.gettingItemList();
     }
 
     int totalItemCount = getItemCount();
-    int currentItemCount = getAllGroups(menagerie, totalItemCount);
+    int currentItemCount = getAllGroups(menagerie, itemsById, totalItemCount);
 
     synchronized (PS_GET_MEDIA) {
       try (ResultSet rs = PS_GET_MEDIA.executeQuery()) {
@@ -929,10 +1432,11 @@ public class DatabaseManager extends Thread {
 
           // Try to get group
           int gid = rs.getInt("media.gid");
-          GroupItem group = getGroup(menagerie, gid);
+          GroupItem group = getGroup(itemsById, gid);
 
           final MediaItem media = getMediaItem(menagerie, rs, histogram, group);
           menagerie.getItems().add(media);
+          itemsById.put(media.getId(), media);
           if (group != null) {
             group.getElements().add(media);
           }
@@ -945,7 +1449,7 @@ public class DatabaseManager extends Thread {
     }
   }
 
-  private MediaItem getMediaItem(Menagerie menagerie, ResultSet rs, ImageHistogram histogram, GroupItem group) throws SQLException {
+  static MediaItem getMediaItem(Menagerie menagerie, ResultSet rs, ImageHistogram histogram, GroupItem group) throws SQLException {
     final var id = rs.getInt("items.id");
     final var added = rs.getLong("items.added");
     final var pageIndex = rs.getInt("media.page");
@@ -956,28 +1460,19 @@ public class DatabaseManager extends Thread {
         menagerie, id, added, pageIndex, noSimilar, group, file, hash, histogram);
   }
 
-  private GroupItem getGroup(Menagerie menagerie, int gid) {
-    GroupItem group = null;
-    if (gid != 0) {
-      for (Item item : menagerie.getItems()) {
-        if (item instanceof GroupItem && item.getId() == gid) {
-          group = (GroupItem) item;
-          break;
-        }
-      }
+  private GroupItem getGroup(Map<Integer, Item> itemsById, int gid) {
+    if (gid != 0 && itemsById.get(gid) instanceof GroupItem group) {
+      return group;
     }
-    return group;
+    return null;
   }
 
-  private ImageHistogram getImageHistogram(ResultSet rs) throws SQLException {
+  static ImageHistogram getImageHistogram(ResultSet rs) throws SQLException {
     ImageHistogram histogram = null;
-    InputStream histAlpha = rs.getBinaryStream("media.hist_a");
-    if (histAlpha != null) {
+    byte[] packed = rs.getBytes("media.hist");
+    if (packed != null) {
       try {
-        final var histRed = rs.getBinaryStream("media.hist_r");
-        final var histGreen = rs.getBinaryStream("media.hist_g");
-        final var histBlue = rs.getBinaryStream("media.hist_b");
-        histogram = new ImageHistogram(histAlpha, histRed, histGreen, histBlue);
+        histogram = new ImageHistogram(packed);
       } catch (HistogramReadException e) {
         LOGGER.log(Level.SEVERE, "Histogram failed to load from database", e);
       }
@@ -997,7 +1492,8 @@ public class DatabaseManager extends Thread {
     return total;
   }
 
-  private int getAllGroups(Menagerie menagerie, int totalItemCount) throws SQLException {
+  private int getAllGroups(Menagerie menagerie, Map<Integer, Item> itemsById, int totalItemCount)
+      throws SQLException {
     int i = 0;
     synchronized (PS_GET_GROUPS) {
       try (ResultSet rs = PS_GET_GROUPS.executeQuery()) {
@@ -1006,7 +1502,9 @@ public class DatabaseManager extends Thread {
           final var id = rs.getInt("items.id");
           final var added = rs.getLong("items.added");
           final var title = rs.getNString("groups.title");
-          menagerie.getItems().add(new GroupItem(menagerie, id, added, title));
+          final GroupItem group = new GroupItem(menagerie, id, added, title);
+          menagerie.getItems().add(group);
+          itemsById.put(id, group);
           if (loadListener != null) {
             loadListener.itemsLoading(i, totalItemCount);
           }
@@ -1017,41 +1515,90 @@ public class DatabaseManager extends Thread {
   }
 
   /**
-   * Loads tags for items from the database.
+   * Loads tags for items from the database. Streams the whole tagged table once and adds each run of rows of the same
+   * item in one go. Rows may arrive in any order, so an item can get several runs, which
+   * {@link Item#addLoadedTags(java.util.Collection)} merges into its tags.
    *
-   * @param menagerie Menagerie environment to work in.
+   * @param itemsById Loaded items by id.
+   * @param tagsById  Loaded tags by id.
    * @throws SQLException If database query fails.
    */
-  private void loadTagsForItems(Menagerie menagerie) throws SQLException {
-    for (Item item : menagerie.getItems()) {
-      synchronized (PS_GET_TAGS_FOR_ITEM) {
-        PS_GET_TAGS_FOR_ITEM.setInt(1, item.getId());
-        try (ResultSet rs = PS_GET_TAGS_FOR_ITEM.executeQuery()) {
-          while (rs.next()) {
-            final var id = rs.getInt("tag_id");
-            Tag tag = menagerie.getTagByID(id);
-            if (tag != null) {
-              tag.incrementFrequency();
-              item.getTags().add(tag);
-            } else {
-              LOGGER.warning(() ->
-                  "Major issue, tag wasn't loaded in but somehow still exists in the database: " +
-                  id);
+  private void loadTagsForItems(Map<Integer, Item> itemsById, Map<Integer, Tag> tagsById)
+      throws SQLException {
+    int total = getTaggedCount();
+    if (loadListener != null) {
+      loadListener.startTaggedLoading(total);
+    }
+
+    synchronized (PS_GET_TAGGED) {
+      try (ResultSet rs = PS_GET_TAGGED.executeQuery()) {
+        final List<Tag> itemTags = new ArrayList<>();
+        Item item = null;
+        int itemId = Integer.MIN_VALUE;
+        int i = 0;
+        while (rs.next()) {
+          i++;
+          final var id = rs.getInt(1);
+          if (id != itemId) {
+            addTagsToItem(item, itemTags);
+            itemId = id;
+            item = itemsById.get(id);
+            if (item == null) {
+              LOGGER.warning(() -> "Item wasn't loaded in but has tags in the database: " + id);
+            }
+          }
+
+          final var tagId = rs.getInt(2);
+          Tag tag = tagsById.get(tagId);
+          if (tag != null) {
+            if (item != null) {
+              itemTags.add(tag);
             }
+          } else {
+            LOGGER.warning(() ->
+                "Major issue, tag wasn't loaded in but somehow still exists in the database: " +
+                tagId);
+          }
+
+          if (loadListener != null) {
+            loadListener.taggedLoading(i, total);
           }
         }
+        addTagsToItem(item, itemTags);
       }
     }
   }
 
+  static void addTagsToItem(Item item, List<Tag> itemTags) {
+    if (item != null && !itemTags.isEmpty()) {
+      item.addLoadedTags(itemTags);
+    }
+    itemTags.clear();
+  }
+
+  private int getTaggedCount() throws SQLException {
+    int total = 0;
+    synchronized (PS_GET_TAGGED_COUNT) {
+      try (ResultSet rs = PS_GET_TAGGED_COUNT.executeQuery()) {
+        if (rs.next()) {
+          total = rs.getInt(1);
+        }
+      }
+    }
+    return total;
+  }
+
   /**
    * Shuts down the database and runs a defrag operation to compress database file size.
    *
    * @throws SQLException If exception occurs.
    */
   public void shutdownDefrag() throws SQLException {
-    synchronized (PS_SHUTDOWN_DEFRAG) {
-      PS_SHUTDOWN_DEFRAG.executeUpdate();
+    metrics.unregisterMBean();
+    synchronized (transactionLock) {
+      synchronized (PS_SHUTDOWN_DEFRAG) {
+        PS_SHUTDOWN_DEFRAG.executeUpdate();
+      }
     }
   }
 
@@ -0,0 +1,305 @@
+package menagerie.model.menagerie.db;
+
+import jdk.jfr.FlightRecorder;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Statement latencies, queue state, and load phase timings of a {@link DatabaseManager}. Exposed over JMX as
+ * {@value #OBJECT_NAME} and as Java Flight Recorder events, see {@link DatabaseEvents}.
+ */
+public class DatabaseMetrics implements DatabaseMetricsMXBean {
+
+  private static final Logger LOGGER = Logger.getLogger(DatabaseMetrics.class.getName());
+
+  public static final String OBJECT_NAME = "menagerie:type=Database";
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  /**
+   * Statistics of a single prepared statement.
+   */
+  private static final class StatementStats {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    private StatementStats(String name) {
+      this.name = name;
+    }
+
+  }
+
+  /**
+   * Times one execution of a statement.
+   */
+  final class StatementTimer {
+
+    private final StatementStats stats;
+    private final DatabaseEvents.StatementEvent event = new DatabaseEvents.StatementEvent();
+    private final long start;
+
+    private StatementTimer(StatementStats stats) {
+      this.stats = stats;
+      event.begin();
+      start = System.nanoTime();
+    }
+
+    /**
+     * Records the execution.
+     *
+     * @param updates Number of updates executed.
+     * @param failed  True if the execution threw.
+     */
+    void finish(int updates, boolean failed) {
+      final long nanos = System.nanoTime() - start;
+      if (updates > 0) {
+        stats.latency.record(nanos / updates, updates);
+        updateCount.add(updates);
+      }
+      if (failed) {
+        stats.errors.add(Math.max(1, updates));
+      }
+
+      event.end();
+      if (event.shouldCommit()) {
+        event.statement = stats.name;
+        event.updates = updates;
+        event.failed = failed;
+        event.commit();
+      }
+    }
+
+  }
+
+  /**
+   * Times one phase of a library load.
+   */
+  final class PhaseTimer {
+
+    private final String phase;
+    private final DatabaseEvents.LoadPhaseEvent event = new DatabaseEvents.LoadPhaseEvent();
+    private final long start;
+
+    private PhaseTimer(String phase) {
+      this.phase = phase;
+      event.begin();
+      start = System.nanoTime();
+    }
+
+    /**
+     * Records the phase.
+     */
+    void finish() {
+      final long nanos = System.nanoTime() - start;
+      synchronized (loadPhases) {
+        loadPhases.put(phase, nanos);
+      }
+
+      event.end();
+      if (event.shouldCommit()) {
+        event.phase = phase;
+        event.commit();
+      }
+    }
+
+  }
+
+  private final Map<PreparedStatement, StatementStats> statements = new ConcurrentHashMap<>();
+  private final LongAdder updateCount = new LongAdder();
+  private volatile LatencyHistogram queueWait = new LatencyHistogram();
+  private final Map<String, Long> loadPhases = new LinkedHashMap<>();
+  private final IntSupplier queueDepth;
+
+  private long lastSampleTime = System.nanoTime();
+  private long lastSampleCount = 0;
+  private volatile double drainThroughput = 0;
+
+  private final Runnable queueEventHook = this::emitQueueEvent;
+
+
+  /**
+   * @param queueDepth Supplies the current number of queued jobs.
+   */
+  DatabaseMetrics(IntSupplier queueDepth) {
+    this.queueDepth = queueDepth;
+  }
+
+  /**
+   * Names a statement. Only named statements are tracked individually.
+   *
+   * @param statement Statement to track.
+   * @param name      Name to report the statement under.
+   */
+  void register(PreparedStatement statement, String name) {
+    statements.put(statement, new StatementStats(name));
+  }
+
+  /**
+   * Starts timing an execution of a statement.
+   *
+   * @param statement Statement about to be executed.
+   * @return Timer to finish once the statement has been executed.
+   */
+  StatementTimer startStatement(PreparedStatement statement) {
+    StatementStats stats = statements.get(statement);
+    if (stats == null) {
+      stats = statements.computeIfAbsent(statement, s -> new StatementStats("unnamed"));
+    }
+    return new StatementTimer(stats);
+  }
+
+  /**
+   * Starts timing a phase of a library load.
+   *
+   * @param phase Name of the phase.
+   * @return Timer to finish once the phase is done.
+   */
+  PhaseTimer startPhase(String phase) {
+    return new PhaseTimer(phase);
+  }
+
+  /**
+   * Clears the phase timings of a previous load.
+   */
+  void clearLoadPhases() {
+    synchronized (loadPhases) {
+      loadPhases.clear();
+    }
+  }
+
+  /**
+   * Records how long a job waited in the queue.
+   *
+   * @param nanos Wait time in nanoseconds.
+   */
+  void recordQueueWait(long nanos) {
+    queueWait.record(nanos, 1);
+  }
+
+  /**
+   * Updates the drain throughput from the updates executed since the last sample. Called regularly by the database
+   * manager.
+   */
+  synchronized void sample() {
+    final long now = System.nanoTime();
+    final long count = updateCount.sum();
+    if (now > lastSampleTime) {
+      drainThroughput = (count - lastSampleCount) * 1e9 / (now - lastSampleTime);
+    }
+    lastSampleTime = now;
+    lastSampleCount = count;
+  }
+
+  /**
+   * Registers this as the platform MBean {@value #OBJECT_NAME}, replacing any previously registered instance, and
+   * starts emitting periodic queue events to Java Flight Recorder.
+   */
+  void registerMBean() {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(this, name);
+    } catch (JMException e) {
+      LOGGER.log(Level.WARNING, "Failed to register database metrics MBean", e);
+    }
+
+    FlightRecorder.addPeriodicEvent(DatabaseEvents.QueueEvent.class, queueEventHook);
+  }
+
+  /**
+   * Unregisters the MBean and the periodic queue events.
+   */
+  void unregisterMBean() {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException e) {
+      LOGGER.log(Level.WARNING, "Failed to unregister database metrics MBean", e);
+    }
+
+    FlightRecorder.removePeriodicEvent(queueEventHook);
+  }
+
+  private void emitQueueEvent() {
+    final DatabaseEvents.QueueEvent event = new DatabaseEvents.QueueEvent();
+    final LatencyHistogram wait = queueWait;
+    event.depth = queueDepth.getAsInt();
+    event.waitP50 = wait.getPercentileNanos(0.5);
+    event.waitP99 = wait.getPercentileNanos(0.99);
+    event.throughput = drainThroughput;
+    event.commit();
+  }
+
+  @Override
+  public int getQueueDepth() {
+    return queueDepth.getAsInt();
+  }
+
+  @Override
+  public double getQueueWaitP50Millis() {
+    return queueWait.getPercentileNanos(0.5) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getQueueWaitP99Millis() {
+    return queueWait.getPercentileNanos(0.99) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getDrainThroughput() {
+    return drainThroughput;
+  }
+
+  @Override
+  public long getUpdateCount() {
+    return updateCount.sum();
+  }
+
+  @Override
+  public Map<String, Long> getLoadPhaseMillis() {
+    final Map<String, Long> millis = new LinkedHashMap<>();
+    synchronized (loadPhases) {
+      loadPhases.forEach((phase, nanos) -> millis.put(phase, Math.round(nanos / NANOS_PER_MILLI)));
+    }
+    return millis;
+  }
+
+  @Override
+  public List<StatementMetrics> getStatements() {
+    final List<StatementMetrics> results = new ArrayList<>();
+    for (StatementStats stats : statements.values()) {
+      final LatencyHistogram latency = stats.latency;
+      if (latency.getCount() == 0 && stats.errors.sum() == 0) {
+        continue;
+      }
+      results.add(new StatementMetrics(stats.name, latency.getCount(), stats.errors.sum(),
+          latency.getMeanNanos() / NANOS_PER_MILLI, latency.getPercentileNanos(0.5) / NANOS_PER_MILLI,
+          latency.getPercentileNanos(0.99) / NANOS_PER_MILLI));
+    }
+    results.sort(Comparator.comparingDouble(m -> -m.getMeanMillis() * m.getCount()));
+    return results;
+  }
+
+  @Override
+  public void reset() {
+    statements.replaceAll((statement, stats) -> new StatementStats(stats.name));
+    queueWait = new LatencyHistogram();
+  }
+
+}
@@ -0,0 +1,51 @@
+package menagerie.model.menagerie.db;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX view of the database layer, registered as {@value DatabaseMetrics#OBJECT_NAME}.
+ */
+public interface DatabaseMetricsMXBean {
+
+  /**
+   * @return Number of jobs waiting in the update queue.
+   */
+  int getQueueDepth();
+
+  /**
+   * @return Median time queued jobs waited before they were run, in milliseconds.
+   */
+  double getQueueWaitP50Millis();
+
+  /**
+   * @return 99th percentile of the time queued jobs waited before they were run, in milliseconds.
+   */
+  double getQueueWaitP99Millis();
+
+  /**
+   * @return Updates executed per second, averaged over the last sampling interval.
+   */
+  double getDrainThroughput();
+
+  /**
+   * @return Total number of updates executed.
+   */
+  long getUpdateCount();
+
+  /**
+   * @return Duration of each phase of the last library load, in milliseconds, in phase order.
+   */
+  Map<String, Long> getLoadPhaseMillis();
+
+  /**
+   * @return Execution statistics of every prepared statement that has been executed.
+   */
+  List<StatementMetrics> getStatements();
+
+  /**
+   * Clears all statement and queue wait statistics.
+   */
+  void reset();
+
+}
@@ -14,6 +14,8 @@ public class DatabaseUtil {
 
   private static final Logger LOGGER = Logger.getLogger(DatabaseUtil.class.getName());
 
+  private static final long SNAPSHOT_QUEUE_TIMEOUT = 30000;
+
   private DatabaseUtil() {
     // util class
   }
@@ -21,6 +23,10 @@ public class DatabaseUtil {
   public static void shutDownDatabase(boolean revertDatabase, Menagerie menagerie, String dbUrl) {
     new Thread(() -> {
       try {
+        if (!revertDatabase) {
+          writeSnapshot(menagerie);
+        }
+
         LOGGER.info("Attempting to shut down Menagerie database and defragment the file");
         menagerie.getDatabaseManager().shutdownDefrag();
         LOGGER.info("Done defragging database file");
@@ -45,6 +51,30 @@ public class DatabaseUtil {
     }, "Shutdown Menagerie").start();
   }
 
+  private static void writeSnapshot(Menagerie menagerie) {
+    try {
+      if (menagerie.getDatabaseManager().awaitQueued(SNAPSHOT_QUEUE_TIMEOUT)) {
+        menagerie.getDatabaseManager().writeSnapshot(menagerie);
+      } else {
+        LOGGER.warning("Database updates still queued, not writing snapshot");
+      }
+    } catch (InterruptedException e) {
+      LOGGER.log(Level.WARNING, "Interrupted while waiting for database updates, not writing snapshot", e);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Resolves the path of the library snapshot that is kept next to the database file.
+   *
+   * @param databaseURL JDBC style path to database.
+   * @return Snapshot file.
+   */
+  public static File resolveSnapshotFile(String databaseURL) {
+    final String path = resolveDatabaseFile(databaseURL).getPath();
+    return new File(path.substring(0, path.length() - ".mv.db".length()) + ".snapshot");
+  }
+
   /**
    * Attempts to resolve the actual path to the database file by java path standards, given a JDBC database path.
    *
@@ -26,6 +26,8 @@ package menagerie.model.menagerie.db;
 
 
 import menagerie.model.menagerie.Tag;
+import menagerie.model.menagerie.histogram.HistogramReadException;
+import menagerie.model.menagerie.histogram.ImageHistogram;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -40,6 +42,8 @@ public class DatabaseVersionUpdater {
 
   private static final String DROP_TABLES =
       "DROP TABLE IF EXISTS imgs; DROP TABLE IF EXISTS tags; DROP TABLE IF EXISTS tagged; DROP TABLE IF EXISTS version; DROP TABLE IF EXISTS items; DROP TABLE IF EXISTS groups; DROP TABLE IF EXISTS media;";
+  private static final int HISTOGRAM_MIGRATION_PAGE_SIZE = 1000;
+
   private static final String CREATE_VERSION_TABLE =
       "CREATE TABLE version(version INT NOT NULL PRIMARY KEY);";
 
@@ -118,6 +122,26 @@ public class DatabaseVersionUpdater {
       version++;
     }
     if (version == 8) {
+      logUpdateWarning(version);
+      updateFromV8ToV9(db);
+      version++;
+    }
+    if (version == 9) {
+      logUpdateWarning(version);
+      updateFromV9ToV10(db);
+      version++;
+    }
+    if (version == 10) {
+      logUpdateWarning(version);
+      updateFromV10ToV11(db);
+      version++;
+    }
+    if (version == 11) {
+      logUpdateWarning(version);
+      updateFromV11ToV12(db);
+      version++;
+    }
+    if (version == 12) {
       LOGGER.info("Database is up to date");
     }
   }
@@ -448,6 +472,129 @@ public class DatabaseVersionUpdater {
     }
   }
 
+  /**
+   * Packs the four per-channel histogram BLOBs of each media row into a single {@link ImageHistogram#PACKED_SIZE} byte
+   * column. Rows are converted in id order, one page at a time, so the migration never holds more than a page of
+   * histograms in memory.
+   *
+   * @param db Database
+   * @throws SQLException If database upgrade fails.
+   */
+  private static void updateFromV8ToV9(Connection db) throws SQLException {
+    LOGGER.warning("Database updating from v8 to v9...");
+    long t = System.currentTimeMillis();
+    try (Statement s = db.createStatement()) {
+      LOGGER.info("Adding packed 'hist' column to 'media'");
+      s.executeUpdate("ALTER TABLE media ADD COLUMN hist VARBINARY(" + ImageHistogram.PACKED_SIZE + ");");
+
+      LOGGER.info("Packing media histograms");
+      int converted = 0;
+      try (PreparedStatement select = db.prepareStatement(
+          "SELECT TOP ? id, hist_a, hist_r, hist_g, hist_b FROM media WHERE id>? AND hist_a IS NOT NULL ORDER BY id;");
+           PreparedStatement update = db.prepareStatement("UPDATE media SET hist=? WHERE id=?;")) {
+        int lastId = Integer.MIN_VALUE;
+        int page;
+        do {
+          page = 0;
+          select.setInt(1, HISTOGRAM_MIGRATION_PAGE_SIZE);
+          select.setInt(2, lastId);
+          try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+              page++;
+              lastId = rs.getInt("id");
+              try {
+                ImageHistogram hist = new ImageHistogram(rs.getBinaryStream("hist_a"),
+                    rs.getBinaryStream("hist_r"), rs.getBinaryStream("hist_g"),
+                    rs.getBinaryStream("hist_b"));
+                update.setBytes(1, hist.toPackedBytes());
+                update.setInt(2, lastId);
+                update.addBatch();
+              } catch (HistogramReadException e) {
+                final int id = lastId;
+                LOGGER.warning(() -> "Dropping unreadable histogram of media: " + id);
+              }
+            }
+          }
+          converted += update.executeBatch().length;
+        } while (page == HISTOGRAM_MIGRATION_PAGE_SIZE);
+      }
+      final int total = converted;
+      LOGGER.info(() -> "  Packed " + total + " histograms");
+
+      LOGGER.info("Dropping per-channel histogram columns from 'media'");
+      s.executeUpdate("ALTER TABLE media DROP COLUMN hist_a;");
+      s.executeUpdate("ALTER TABLE media DROP COLUMN hist_r;");
+      s.executeUpdate("ALTER TABLE media DROP COLUMN hist_g;");
+      s.executeUpdate("ALTER TABLE media DROP COLUMN hist_b;");
+
+      logSettingDatabaseVersion();
+      s.executeUpdate("INSERT INTO version(version) VALUES (9);");
+
+      logUpdateTime((System.currentTimeMillis() - t) / 1000.0);
+    }
+  }
+
+  private static void updateFromV9ToV10(Connection db) throws SQLException {
+    LOGGER.warning("Database updating from v9 to v10...");
+    long t = System.currentTimeMillis();
+    try (Statement s = db.createStatement()) {
+      LOGGER.info("Creating 'db_info' table with change counter");
+      s.executeUpdate("CREATE TABLE db_info(change_count BIGINT NOT NULL);");
+      s.executeUpdate("INSERT INTO db_info(change_count) VALUES (0);");
+
+      logSettingDatabaseVersion();
+      s.executeUpdate("INSERT INTO version(version) VALUES (10);");
+
+      logUpdateTime((System.currentTimeMillis() - t) / 1000.0);
+    }
+  }
+
+  private static void updateFromV10ToV11(Connection db) throws SQLException {
+    LOGGER.warning("Database updating from v10 to v11...");
+    long t = System.currentTimeMillis();
+    try (Statement s = db.createStatement()) {
+      // media.gid, tagged.tag_id, and non_dupes.item_1/item_2 are already indexed by their foreign key constraints
+      LOGGER.info("Indexing media md5");
+      s.executeUpdate("CREATE INDEX IF NOT EXISTS media_md5 ON media(md5);");
+
+      // Rebuilt rather than altered in place, updating every row of a large table in one transaction is very slow
+      LOGGER.info("Rebuilding 'non_dupes' table with normalized pair column");
+      s.executeUpdate(
+          "CREATE TABLE non_dupes_v11(item_1 INT NOT NULL, item_2 INT NOT NULL, pair BIGINT NOT NULL);");
+      s.executeUpdate(
+          "INSERT INTO non_dupes_v11(item_1, item_2, pair) SELECT DISTINCT LEAST(item_1, item_2), GREATEST(item_1, item_2), CAST(LEAST(item_1, item_2) AS BIGINT)*4294967296+GREATEST(item_1, item_2) FROM non_dupes WHERE item_1 IS NOT NULL AND item_2 IS NOT NULL;");
+      s.executeUpdate("DROP TABLE non_dupes;");
+      s.executeUpdate("ALTER TABLE non_dupes_v11 RENAME TO non_dupes;");
+      s.executeUpdate("ALTER TABLE non_dupes ADD CONSTRAINT non_dupes_pair UNIQUE(pair);");
+      s.executeUpdate(
+          "ALTER TABLE non_dupes ADD FOREIGN KEY (item_1) REFERENCES items(id) ON DELETE CASCADE;");
+      s.executeUpdate(
+          "ALTER TABLE non_dupes ADD FOREIGN KEY (item_2) REFERENCES items(id) ON DELETE CASCADE;");
+
+      logSettingDatabaseVersion();
+      s.executeUpdate("INSERT INTO version(version) VALUES (11);");
+
+      logUpdateTime((System.currentTimeMillis() - t) / 1000.0);
+    }
+  }
+
+  private static void updateFromV11ToV12(Connection db) throws SQLException {
+    LOGGER.warning("Database updating from v11 to v12...");
+    long t = System.currentTimeMillis();
+    try (Statement s = db.createStatement()) {
+      LOGGER.info("Adding item and tag ID high-water marks to 'db_info'");
+      s.executeUpdate("ALTER TABLE db_info ADD COLUMN next_item_id INT NOT NULL DEFAULT 1;");
+      s.executeUpdate("ALTER TABLE db_info ADD COLUMN next_tag_id INT NOT NULL DEFAULT 1;");
+      s.executeUpdate(
+          "UPDATE db_info SET next_item_id=(SELECT COALESCE(MAX(id), 0)+1 FROM items), next_tag_id=(SELECT COALESCE(MAX(id), 0)+1 FROM tags);");
+
+      logSettingDatabaseVersion();
+      s.executeUpdate("INSERT INTO version(version) VALUES (12);");
+
+      logUpdateTime((System.currentTimeMillis() - t) / 1000.0);
+    }
+  }
+
   /**
    * @param tags List of available tags to get from.
    * @param name Name of tag to get.
@@ -0,0 +1,94 @@
+package menagerie.model.menagerie.db;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds. Each power of two is split into {@link #SUB_BUCKETS} linear buckets,
+ * so percentiles are accurate to within about 12%.
+ */
+class LatencyHistogram {
+
+  private static final int SUB_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos  Duration in nanoseconds.
+   * @param weight Number of operations that took this long each.
+   */
+  void record(long nanos, int weight) {
+    if (weight <= 0) {
+      return;
+    }
+    nanos = Math.max(0, nanos);
+    buckets.addAndGet(bucket(nanos), weight);
+    count.add(weight);
+    totalNanos.add(nanos * weight);
+  }
+
+  /**
+   * @return Number of recorded operations.
+   */
+  long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * @return Mean duration in nanoseconds, 0 if nothing was recorded.
+   */
+  double getMeanNanos() {
+    final long n = count.sum();
+    return n == 0 ? 0 : (double) totalNanos.sum() / n;
+  }
+
+  /**
+   * @param percentile Percentile in [0, 1].
+   * @return Estimated duration in nanoseconds at the percentile, 0 if nothing was recorded.
+   */
+  long getPercentileNanos(double percentile) {
+    long total = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      total += buckets.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    final long rank = Math.max(1, (long) Math.ceil(percentile * total));
+    long seen = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return midpoint(i);
+      }
+    }
+    return midpoint(buckets.length() - 1);
+  }
+
+  static int bucket(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) nanos;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    final int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  static long midpoint(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    final int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+    final int sub = bucket % SUB_BUCKETS;
+    final long width = 1L << (exponent - SUB_BITS);
+    return ((long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width / 2;
+  }
+
+}
@@ -36,6 +36,14 @@ public interface MenagerieDatabaseLoadListener {
 
   void tagsLoading(int count, int total);
 
+  void startTaggedLoading(int total);
+
+  void taggedLoading(int count, int total);
+
+  void startedParallelLoading(int total);
+
+  void parallelLoading(int count, int total);
+
   void gettingNonDupeList();
 
   void startNonDupeLoading(int total);
@@ -0,0 +1,279 @@
+package menagerie.model.menagerie.db;
+
+import menagerie.model.SimilarPair;
+import menagerie.model.menagerie.*;
+import menagerie.model.menagerie.histogram.HistogramReadException;
+import menagerie.model.menagerie.histogram.ImageHistogram;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Versioned binary image of the in-memory library, written at clean shutdown and read back in one go at the next startup
+ * instead of rebuilding the menagerie row by row from the database.
+ * <p>
+ * A snapshot stores the database change counter it was written at, and is only used while the database still has that
+ * counter value.
+ */
+final class MenagerieSnapshot {
+
+  private static final Logger LOGGER = Logger.getLogger(MenagerieSnapshot.class.getName());
+
+  private static final int MAGIC = 0x4D534E50; // "MSNP"
+  private static final int VERSION = 1;
+
+  private MenagerieSnapshot() {
+  }
+
+  /**
+   * Writes a snapshot of a menagerie. The snapshot is written to a temporary file first and then moved over the
+   * previous snapshot.
+   *
+   * @param menagerie   Menagerie to write.
+   * @param changeCount Current database change counter.
+   * @param file        Snapshot file.
+   * @throws IOException If the snapshot could not be written.
+   */
+  static void write(Menagerie menagerie, long changeCount, File file) throws IOException {
+    final File temp = new File(file.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(changeCount);
+
+      out.writeInt(menagerie.getTags().size());
+      for (Tag tag : menagerie.getTags()) {
+        out.writeInt(tag.getId());
+        writeString(out, tag.getName());
+        writeString(out, tag.getColor());
+        out.writeInt(tag.getNotes().size());
+        for (String note : tag.getNotes()) {
+          writeString(out, note);
+        }
+      }
+
+      final List<GroupItem> groups = new ArrayList<>();
+      final List<MediaItem> media = new ArrayList<>();
+      for (Item item : menagerie.getItems()) {
+        if (item instanceof GroupItem group) {
+          groups.add(group);
+        } else if (item instanceof MediaItem mediaItem) {
+          media.add(mediaItem);
+        }
+      }
+
+      out.writeInt(groups.size());
+      for (GroupItem group : groups) {
+        out.writeInt(group.getId());
+        out.writeLong(group.getDateAdded());
+        writeString(out, group.getTitle());
+      }
+
+      out.writeInt(media.size());
+      for (MediaItem item : media) {
+        out.writeInt(item.getId());
+        out.writeLong(item.getDateAdded());
+        out.writeInt(item.getGroup() != null ? item.getGroup().getId() : 0);
+        out.writeInt(item.getPageIndex());
+        out.writeBoolean(item.hasNoSimilar());
+        writeString(out, item.getFile().getAbsolutePath());
+        writeString(out, item.getMD5());
+        final ImageHistogram histogram = item.getHistogram();
+        out.writeBoolean(histogram != null);
+        if (histogram != null) {
+          out.write(histogram.toPackedBytes());
+        }
+      }
+
+      out.writeInt(menagerie.getItems().size());
+      for (Item item : menagerie.getItems()) {
+        out.writeInt(item.getId());
+        out.writeInt(item.getTagCount());
+        for (Tag tag : item.getTagSnapshot()) {
+          out.writeInt(tag.getId());
+        }
+      }
+
+      out.writeInt(menagerie.getNonDuplicates().size());
+      for (SimilarPair<MediaItem> pair : menagerie.getNonDuplicates()) {
+        out.writeInt(pair.getObject1().getId());
+        out.writeInt(pair.getObject2().getId());
+      }
+    }
+
+    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Loads a menagerie from a snapshot. Nothing is added to the menagerie unless the whole snapshot was read.
+   *
+   * @param menagerie    Menagerie to load into.
+   * @param changeCount  Current database change counter. Snapshots written at any other value are stale.
+   * @param file         Snapshot file.
+   * @param loadListener Listener to report progress to, may be null.
+   * @return True if the menagerie was loaded from the snapshot, false if the snapshot is missing, stale, or unreadable.
+   */
+  static boolean read(Menagerie menagerie, long changeCount, File file,
+                      MenagerieDatabaseLoadListener loadListener) {
+    if (!file.isFile()) {
+      return false;
+    }
+
+    final ByteBuffer in;
+    try (FileChannel channel = FileChannel.open(file.toPath())) {
+      // Read onto the heap rather than mapped, a mapping outlives the channel and locks the file on Windows, which
+      // would make the next write fail to replace it
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot too large: " + channel.size() + " bytes");
+      }
+      in = ByteBuffer.allocate((int) channel.size());
+      while (in.hasRemaining()) {
+        if (channel.read(in) < 0) {
+          throw new EOFException("Snapshot ended early: " + file);
+        }
+      }
+      in.flip();
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to read snapshot, loading from database: " + file, e);
+      return false;
+    }
+
+    try {
+      if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+        LOGGER.warning(() -> "Ignoring snapshot of unknown format: " + file);
+        return false;
+      }
+      final long snapshotCount = in.getLong();
+      if (snapshotCount != changeCount) {
+        LOGGER.info(() -> String.format("Snapshot is stale (written at change %d, database is at %d)",
+            snapshotCount, changeCount));
+        return false;
+      }
+
+      final Map<Integer, Tag> tagsById = new HashMap<>();
+      final List<Tag> tags = new ArrayList<>();
+      final int tagCount = in.getInt();
+      for (int i = 0; i < tagCount; i++) {
+        final Tag tag = new Tag(menagerie, in.getInt(), readString(in), readString(in));
+        final int noteCount = in.getInt();
+        for (int j = 0; j < noteCount; j++) {
+          tag.getNotes().add(readString(in));
+        }
+        tags.add(tag);
+        tagsById.put(tag.getId(), tag);
+      }
+
+      final Map<Integer, Item> itemsById = new HashMap<>();
+      final List<Item> items = new ArrayList<>();
+      final int groupCount = in.getInt();
+      for (int i = 0; i < groupCount; i++) {
+        final GroupItem group = new GroupItem(menagerie, in.getInt(), in.getLong(), readString(in));
+        items.add(group);
+        itemsById.put(group.getId(), group);
+      }
+
+      final int mediaCount = in.getInt();
+      final int total = groupCount + mediaCount;
+      if (loadListener != null) {
+        loadListener.startedItemLoading(total);
+      }
+      final byte[] packed = new byte[ImageHistogram.PACKED_SIZE];
+      for (int i = 0; i < mediaCount; i++) {
+        final int id = in.getInt();
+        final long added = in.getLong();
+        final GroupItem group = itemsById.get(in.getInt()) instanceof GroupItem g ? g : null;
+        final int page = in.getInt();
+        final boolean noSimilar = in.get() != 0;
+        final File mediaFile = new File(readString(in));
+        final String md5 = readString(in);
+        ImageHistogram histogram = null;
+        if (in.get() != 0) {
+          in.get(packed);
+          histogram = new ImageHistogram(packed);
+        }
+
+        final MediaItem media =
+            new MediaItem(menagerie, id, added, page, noSimilar, group, mediaFile, md5, histogram);
+        items.add(media);
+        itemsById.put(id, media);
+        if (group != null) {
+          group.getElements().add(media);
+        }
+        if (loadListener != null) {
+          loadListener.itemsLoading(groupCount + i + 1, total);
+        }
+      }
+
+      final int taggedCount = in.getInt();
+      final List<Tag> itemTags = new ArrayList<>();
+      for (int i = 0; i < taggedCount; i++) {
+        final Item item = itemsById.get(in.getInt());
+        final int count = in.getInt();
+        for (int j = 0; j < count; j++) {
+          final Tag tag = tagsById.get(in.getInt());
+          if (tag == null) {
+            throw new IOException("Snapshot references unknown tag");
+          }
+          itemTags.add(tag);
+        }
+        DatabaseManager.addTagsToItem(item, itemTags);
+      }
+
+      final List<SimilarPair<MediaItem>> nonDupes = new ArrayList<>();
+      final int nonDupeCount = in.getInt();
+      for (int i = 0; i < nonDupeCount; i++) {
+        if (itemsById.get(in.getInt()) instanceof MediaItem item1 &&
+            itemsById.get(in.getInt()) instanceof MediaItem item2) {
+          nonDupes.add(new SimilarPair<>(item1, item2, 0));
+        } else {
+          throw new IOException("Snapshot references unknown non-duplicate item");
+        }
+      }
+
+      menagerie.getTags().addAll(tags);
+      menagerie.getItems().addAll(items);
+      menagerie.getNonDuplicates().addAll(nonDupes);
+      DatabaseManager.sortGroupElements(menagerie);
+      return true;
+    } catch (IOException | HistogramReadException | RuntimeException e) {
+      // Runtime exceptions cover truncation (BufferUnderflowException) and corrupt values rejected by the model
+      LOGGER.log(Level.WARNING, "Failed to read snapshot, loading from database: " + file, e);
+      return false;
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+    } else {
+      final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(ByteBuffer in) throws IOException {
+    final int length = in.getInt();
+    if (length < 0) {
+      return null;
+    }
+    if (length > in.remaining()) {
+      throw new IOException("Snapshot string length out of bounds: " + length);
+    }
+    final byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+}
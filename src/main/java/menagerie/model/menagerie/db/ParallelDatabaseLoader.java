@@ -0,0 +1,250 @@
+package menagerie.model.menagerie.db;
+
+import menagerie.model.SimilarPair;
+import menagerie.model.menagerie.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Loads a menagerie from the database on several read-only connections at once. Independent tables are read
+ * concurrently on a small executor and joined into the menagerie on the calling thread once all of them are in
+ * memory.
+ */
+class ParallelDatabaseLoader {
+
+  private static final Logger LOGGER = Logger.getLogger(ParallelDatabaseLoader.class.getName());
+
+  private final DatabaseManager.ConnectionSupplier connections;
+  private final int threads;
+  private final MenagerieDatabaseLoadListener loadListener;
+  private final DatabaseMetrics metrics;
+
+  private final AtomicInteger rowsRead = new AtomicInteger();
+  private int totalRows = 0;
+
+  /**
+   * Maps the current row of a result set to an object.
+   */
+  @FunctionalInterface
+  private interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+  }
+
+  private record TagNote(int tagId, String note) {
+  }
+
+  private record IdPair(int first, int second) {
+  }
+
+  ParallelDatabaseLoader(DatabaseManager.ConnectionSupplier connections, int threads,
+                         MenagerieDatabaseLoadListener loadListener, DatabaseMetrics metrics) {
+    this.connections = connections;
+    this.threads = threads;
+    this.loadListener = loadListener;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Loads tags, groups, and media into a menagerie from the database.
+   *
+   * @param menagerie Menagerie to load objects into.
+   * @throws SQLException If any database query fails.
+   */
+  void load(Menagerie menagerie) throws SQLException {
+    if (loadListener != null) {
+      loadListener.gettingItemList();
+    }
+    totalRows = countRows();
+    if (loadListener != null) {
+      loadListener.startedParallelLoading(totalRows);
+    }
+
+    final long start = System.currentTimeMillis();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "Database Loader Thread");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      // Groups are submitted before media, media rows resolve their group while they are read
+      Future<List<GroupItem>> groups = executor.submit(() -> query(DatabaseManager.SQL_GET_GROUPS,
+          rs -> new GroupItem(menagerie, rs.getInt("items.id"), rs.getLong("items.added"),
+              rs.getNString("groups.title"))));
+      Future<List<Tag>> tags = executor.submit(() -> query("SELECT id, name, color FROM tags;",
+          rs -> new Tag(menagerie, rs.getInt(1), rs.getNString(2), rs.getNString(3))));
+      Future<List<MediaItem>> media = executor.submit(() -> {
+        final Map<Integer, GroupItem> groupsById = new HashMap<>();
+        groups.get().forEach(group -> groupsById.put(group.getId(), group));
+        return query(DatabaseManager.SQL_GET_MEDIA,
+            rs -> DatabaseManager.getMediaItem(menagerie, rs, DatabaseManager.getImageHistogram(rs),
+                groupsById.get(rs.getInt("media.gid"))));
+      });
+      Future<List<IdPair>> tagged = executor.submit(() -> query(
+          "SELECT item_id, tag_id FROM tagged;", rs -> new IdPair(rs.getInt(1), rs.getInt(2))));
+      Future<List<TagNote>> tagNotes = executor.submit(() -> query(
+          "SELECT tag_id, note FROM tag_notes;", rs -> new TagNote(rs.getInt(1), rs.getNString(2))));
+      Future<List<IdPair>> nonDupes = executor.submit(() -> query(
+          "SELECT item_1, item_2 FROM non_dupes;", rs -> new IdPair(rs.getInt(1), rs.getInt(2))));
+
+      DatabaseMetrics.PhaseTimer phase = metrics.startPhase("parallel read");
+      final List<Tag> tagRows = get(tags);
+      final List<TagNote> tagNoteRows = get(tagNotes);
+      final List<GroupItem> groupRows = get(groups);
+      final List<MediaItem> mediaRows = get(media);
+      final List<IdPair> taggedRows = get(tagged);
+      final List<IdPair> nonDupeRows = get(nonDupes);
+      phase.finish();
+
+      phase = metrics.startPhase("join");
+      join(menagerie, tagRows, tagNoteRows, groupRows, mediaRows, taggedRows, nonDupeRows);
+      phase.finish();
+    } finally {
+      executor.shutdownNow();
+    }
+
+    LOGGER.info(() -> String.format("Finished loading %d database rows on %d threads in %.2fs",
+        totalRows, threads, (System.currentTimeMillis() - start) / 1000.0));
+  }
+
+  /**
+   * Joins the loaded rows into the menagerie.
+   */
+  private void join(Menagerie menagerie, List<Tag> tags, List<TagNote> tagNotes,
+                    List<GroupItem> groups, List<MediaItem> media, List<IdPair> tagged,
+                    List<IdPair> nonDupes) {
+    final Map<Integer, Tag> tagsById = new HashMap<>();
+    for (Tag tag : tags) {
+      menagerie.getTags().add(tag);
+      tagsById.put(tag.getId(), tag);
+    }
+    for (TagNote note : tagNotes) {
+      Tag tag = tagsById.get(note.tagId());
+      if (tag != null) {
+        tag.getNotes().add(note.note());
+      } else {
+        LOGGER.severe(() -> String.format(
+            "Tag with id %d does not exist, but exists in tag_notes", note.tagId()));
+      }
+    }
+
+    final Map<Integer, Item> itemsById = new HashMap<>();
+    for (GroupItem group : groups) {
+      menagerie.getItems().add(group);
+      itemsById.put(group.getId(), group);
+    }
+    for (MediaItem item : media) {
+      menagerie.getItems().add(item);
+      itemsById.put(item.getId(), item);
+      if (item.getGroup() != null) {
+        item.getGroup().getElements().add(item);
+      }
+    }
+    DatabaseManager.sortGroupElements(menagerie);
+
+    joinTagged(tagged, itemsById, tagsById);
+
+    for (IdPair pair : nonDupes) {
+      menagerie.getNonDuplicates().add(new SimilarPair<>((MediaItem) itemsById.get(pair.first()),
+          (MediaItem) itemsById.get(pair.second()), 0));
+    }
+  }
+
+  private void joinTagged(List<IdPair> tagged, Map<Integer, Item> itemsById,
+                          Map<Integer, Tag> tagsById) {
+    if (loadListener != null) {
+      loadListener.startTaggedLoading(tagged.size());
+    }
+
+    final List<Tag> itemTags = new ArrayList<>();
+    Item item = null;
+    int itemId = Integer.MIN_VALUE;
+    int i = 0;
+    for (IdPair pair : tagged) {
+      i++;
+      if (pair.first() != itemId) {
+        DatabaseManager.addTagsToItem(item, itemTags);
+        itemId = pair.first();
+        item = itemsById.get(itemId);
+        if (item == null) {
+          LOGGER.warning(() -> "Item wasn't loaded in but has tags in the database: " + pair.first());
+        }
+      }
+
+      Tag tag = tagsById.get(pair.second());
+      if (tag != null) {
+        if (item != null) {
+          itemTags.add(tag);
+        }
+      } else {
+        LOGGER.warning(() ->
+            "Major issue, tag wasn't loaded in but somehow still exists in the database: " +
+            pair.second());
+      }
+
+      if (loadListener != null) {
+        loadListener.taggedLoading(i, tagged.size());
+      }
+    }
+    DatabaseManager.addTagsToItem(item, itemTags);
+  }
+
+  /**
+   * Runs a query on a new read-only connection and maps every row.
+   *
+   * @param sql    Query to run.
+   * @param mapper Maps a row to an object.
+   * @param <T>    Type of the mapped objects.
+   * @return Mapped rows, in result set order.
+   * @throws SQLException If the query fails.
+   */
+  private <T> List<T> query(String sql, RowMapper<T> mapper) throws SQLException {
+    final List<T> results = new ArrayList<>();
+    try (Connection connection = connections.get()) {
+      connection.setReadOnly(true);
+      try (Statement s = connection.createStatement(); ResultSet rs = s.executeQuery(sql)) {
+        while (rs.next()) {
+          results.add(mapper.map(rs));
+          final int count = rowsRead.incrementAndGet();
+          if (loadListener != null) {
+            loadListener.parallelLoading(count, totalRows);
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  private int countRows() throws SQLException {
+    int total = 0;
+    try (Connection connection = connections.get(); Statement s = connection.createStatement();
+         ResultSet rs = s.executeQuery(
+             "SELECT (SELECT count(*) FROM items) + (SELECT count(*) FROM tags) + (SELECT count(*) FROM tagged) + (SELECT count(*) FROM tag_notes) + (SELECT count(*) FROM non_dupes);")) {
+      if (rs.next()) {
+        total = rs.getInt(1);
+      }
+    }
+    return total;
+  }
+
+  private static <T> T get(Future<T> future) throws SQLException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while loading database", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SQLException sqlException) {
+        throw sqlException;
+      }
+      throw new SQLException("Failed to load database", e.getCause());
+    }
+  }
+
+}
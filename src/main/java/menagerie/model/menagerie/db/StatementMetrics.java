@@ -0,0 +1,67 @@
+package menagerie.model.menagerie.db;
+
+/**
+ * Execution statistics of a single prepared statement.
+ */
+public class StatementMetrics {
+
+  private final String name;
+  private final long count;
+  private final long errors;
+  private final double meanMillis;
+  private final double p50Millis;
+  private final double p99Millis;
+
+
+  StatementMetrics(String name, long count, long errors, double meanMillis, double p50Millis, double p99Millis) {
+    this.name = name;
+    this.count = count;
+    this.errors = errors;
+    this.meanMillis = meanMillis;
+    this.p50Millis = p50Millis;
+    this.p99Millis = p99Millis;
+  }
+
+  /**
+   * @return Name of the statement field in {@link DatabaseManager}.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return Number of executions. Each update of a batch counts as one execution.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return Number of failed executions.
+   */
+  public long getErrors() {
+    return errors;
+  }
+
+  /**
+   * @return Mean execution time in milliseconds. Batched updates are counted with their share of the batch.
+   */
+  public double getMeanMillis() {
+    return meanMillis;
+  }
+
+  /**
+   * @return Median execution time in milliseconds.
+   */
+  public double getP50Millis() {
+    return p50Millis;
+  }
+
+  /**
+   * @return 99th percentile execution time in milliseconds.
+   */
+  public double getP99Millis() {
+    return p99Millis;
+  }
+
+}
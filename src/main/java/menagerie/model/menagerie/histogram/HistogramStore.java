@@ -0,0 +1,202 @@
+package menagerie.model.menagerie.histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Contiguous off-heap store of float32 histograms, indexed by dense slot. Each slot holds
+ * {@link ImageHistogram#NUM_CHANNELS} channels of {@link ImageHistogram#BIN_SIZE} bins in alpha, red, green, blue
+ * order.
+ * <p>
+ * Slots live in fixed size segments of a memory-mapped temporary file, so histograms are neither on the heap nor traced
+ * by the GC, and the operating system can page them out. If the file cannot be mapped, segments fall back to direct
+ * buffers. Slots are written once and read concurrently.
+ */
+class HistogramStore {
+
+  private static final Logger LOGGER = Logger.getLogger(HistogramStore.class.getName());
+
+  static final int SLOT_FLOATS = ImageHistogram.BIN_SIZE * ImageHistogram.NUM_CHANNELS;
+  private static final int SLOT_BYTES = SLOT_FLOATS * Float.BYTES;
+
+  private final int segmentShift;
+  private final int segmentMask;
+  private final FileChannel channel;
+
+  // Replaced on growth, so readers never need a lock
+  private volatile FloatBuffer[] segments = new FloatBuffer[0];
+  private int nextSlot = 0;
+  private int[] freeSlots = new int[16];
+  private int freeCount = 0;
+
+
+  /**
+   * Constructs a store backed by a temporary file. The file is unlinked as soon as it is opened, or on exit if the
+   * operating system does not allow deleting open files.
+   *
+   * @param segmentShift Log2 of the number of slots per segment.
+   */
+  HistogramStore(int segmentShift) {
+    this.segmentShift = segmentShift;
+    this.segmentMask = (1 << segmentShift) - 1;
+
+    FileChannel fc = null;
+    try {
+      File file = File.createTempFile("menagerie-histograms", ".bin");
+      fc = new RandomAccessFile(file, "rw").getChannel();
+      // The open channel keeps the data, so the name can go right away where the OS allows deleting open files
+      if (!file.delete()) {
+        file.deleteOnExit();
+      }
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to create histogram store file, using direct memory", e);
+    }
+    this.channel = fc;
+  }
+
+  /**
+   * Reserves a slot. Released slots are reused before the store grows.
+   *
+   * @return Reserved slot.
+   */
+  synchronized int allocate() {
+    if (freeCount > 0) {
+      return freeSlots[--freeCount];
+    }
+
+    final int slot = nextSlot++;
+    final int segment = slot >>> segmentShift;
+    if (segment >= segments.length) {
+      FloatBuffer[] grown = Arrays.copyOf(segments, segment + 1);
+      grown[segment] = createSegment(segment);
+      segments = grown;
+    }
+    return slot;
+  }
+
+  /**
+   * Makes a slot available for reuse.
+   *
+   * @param slot Slot to release.
+   */
+  synchronized void release(int slot) {
+    if (freeCount == freeSlots.length) {
+      freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+    }
+    freeSlots[freeCount++] = slot;
+  }
+
+  private FloatBuffer createSegment(int segment) {
+    final long size = (long) SLOT_BYTES << segmentShift;
+    ByteBuffer buffer = null;
+    if (channel != null) {
+      try {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, segment * size, size);
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Failed to map histogram store segment, using direct memory", e);
+      }
+    }
+    if (buffer == null) {
+      buffer = ByteBuffer.allocateDirect((int) size);
+    }
+    return buffer.order(ByteOrder.nativeOrder()).asFloatBuffer();
+  }
+
+  private FloatBuffer segment(int slot) {
+    return segments[slot >>> segmentShift];
+  }
+
+  private int offset(int slot) {
+    return (slot & segmentMask) * SLOT_FLOATS;
+  }
+
+  /**
+   * Writes one channel of a slot.
+   *
+   * @param slot    Slot to write.
+   * @param channel Channel index.
+   * @param bins    Bins of the channel.
+   */
+  void put(int slot, int channel, double[] bins) {
+    final FloatBuffer fb = segment(slot);
+    final int offset = offset(slot) + channel * ImageHistogram.BIN_SIZE;
+    for (int i = 0; i < ImageHistogram.BIN_SIZE; i++) {
+      fb.put(offset + i, (float) bins[i]);
+    }
+  }
+
+  /**
+   * Reads one channel of a slot.
+   *
+   * @param slot    Slot to read.
+   * @param channel Channel index.
+   * @return New array containing the bins of the channel.
+   */
+  double[] get(int slot, int channel) {
+    final FloatBuffer fb = segment(slot);
+    final int offset = offset(slot) + channel * ImageHistogram.BIN_SIZE;
+    double[] bins = new double[ImageHistogram.BIN_SIZE];
+    for (int i = 0; i < ImageHistogram.BIN_SIZE; i++) {
+      bins[i] = fb.get(offset + i);
+    }
+    return bins;
+  }
+
+  /**
+   * Copies all channels of a slot into an array.
+   *
+   * @param slot   Slot to read.
+   * @param dest   Destination array.
+   * @param offset Index in dest to copy to. {@link #SLOT_FLOATS} floats are written.
+   */
+  void copyInto(int slot, float[] dest, int offset) {
+    segment(slot).get(offset(slot), dest, offset, SLOT_FLOATS);
+  }
+
+  /**
+   * Sums the absolute differences of all bins of two slots.
+   *
+   * @param slot1 First slot.
+   * @param slot2 Second slot.
+   * @return Sum of absolute bin differences over all channels.
+   */
+  double distance(int slot1, int slot2) {
+    final FloatBuffer fb1 = segment(slot1);
+    final FloatBuffer fb2 = segment(slot2);
+    final int offset1 = offset(slot1);
+    final int offset2 = offset(slot2);
+    double d = 0;
+    for (int i = 0; i < SLOT_FLOATS; i++) {
+      d += Math.abs(fb1.get(offset1 + i) - fb2.get(offset2 + i));
+    }
+    return d;
+  }
+
+  /**
+   * Sums the spread between the largest and smallest of the red, green, and blue bins of a slot.
+   *
+   * @param slot Slot to read.
+   * @return Color spread of the slot.
+   */
+  double colorSpread(int slot) {
+    final FloatBuffer fb = segment(slot);
+    final int red = offset(slot) + ImageHistogram.BIN_SIZE;
+    final int green = red + ImageHistogram.BIN_SIZE;
+    final int blue = green + ImageHistogram.BIN_SIZE;
+    double d = 0;
+    for (int i = 0; i < ImageHistogram.BIN_SIZE; i++) {
+      final float r = fb.get(red + i), g = fb.get(green + i), b = fb.get(blue + i);
+      d += Math.max(Math.max(r, g), b) - Math.min(Math.min(r, g), b);
+    }
+    return d;
+  }
+
+}
@@ -28,30 +28,47 @@ package menagerie.model.menagerie.histogram;
 import javafx.scene.image.Image;
 import javafx.scene.image.PixelReader;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
 import java.nio.ByteBuffer;
 
 /**
  * A 4 channel histogram of an image that can be used to find similarity between two images.
+ * <p>
+ * Bins are kept as float32 in a shared off-heap {@link HistogramStore}, this object is only a view of its slot. The slot
+ * is released when the histogram becomes unreachable, so every read of the slot keeps this object reachable with
+ * {@link Reference#reachabilityFence(Object)} until the read is done.
  */
 public class ImageHistogram {
 
   public static final int BIN_SIZE = 32;
   public static final int NUM_CHANNELS = 4;
+  /**
+   * Size in bytes of a histogram in the packed format, see {@link #toPackedBytes()}.
+   */
+  public static final int PACKED_SIZE = BIN_SIZE * NUM_CHANNELS * 2;
+  private static final double PACKED_SCALE = 0xFFFF;
   private static final double BLACK_AND_WHITE_CONFIDENCE = 0.25;
 
-  private final double[] alpha;
-  private final double[] red;
-  private final double[] green;
-  private final double[] blue;
+  private static final int ALPHA = 0;
+  private static final int RED = 1;
+  private static final int GREEN = 2;
+  private static final int BLUE = 3;
+
+  // 8192 slots (4 MiB) per segment
+  private static final HistogramStore STORE = new HistogramStore(13);
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  private final int slot;
 
   private Boolean colorful = null;
 
 
   /**
-   * Constructs a histogram from streams as created by {@link #arrayAsInputStream(double[])}
+   * Constructs a histogram from the legacy per-channel format, where each channel is stored as {@link #BIN_SIZE}
+   * big-endian doubles. Only used to migrate databases older than v9.
    *
    * @param a Alpha channel stream.
    * @param r Red channel stream.
@@ -62,15 +79,28 @@ public class ImageHistogram {
   public ImageHistogram(InputStream a, InputStream r, InputStream g, InputStream b)
       throws HistogramReadException {
     try {
-      this.alpha = inputStreamAsArray(a);
-      this.red = inputStreamAsArray(r);
-      this.green = inputStreamAsArray(g);
-      this.blue = inputStreamAsArray(b);
+      this.slot = store(inputStreamAsArray(a), inputStreamAsArray(r), inputStreamAsArray(g),
+          inputStreamAsArray(b));
     } catch (IOException e) {
       throw new HistogramReadException("InputStream of invalid length");
     }
   }
 
+  /**
+   * Constructs a histogram from the packed format as created by {@link #toPackedBytes()}.
+   *
+   * @param packed Packed histogram bytes.
+   * @throws HistogramReadException If the packed bytes are not of length {@link #PACKED_SIZE}.
+   */
+  public ImageHistogram(byte[] packed) throws HistogramReadException {
+    if (packed.length != PACKED_SIZE) {
+      throw new HistogramReadException("Packed histogram of invalid length: " + packed.length);
+    }
+
+    slot = store(unpackChannel(packed, ALPHA), unpackChannel(packed, RED),
+        unpackChannel(packed, GREEN), unpackChannel(packed, BLUE));
+  }
+
   /**
    * Constructs a histogram from a JavaFX image.
    *
@@ -78,10 +108,10 @@ public class ImageHistogram {
    * @throws HistogramReadException If image is not loaded yet, or image cannot retrieve pixel reader.
    */
   public ImageHistogram(Image image) throws HistogramReadException {
-    alpha = new double[BIN_SIZE];
-    red = new double[BIN_SIZE];
-    green = new double[BIN_SIZE];
-    blue = new double[BIN_SIZE];
+    final double[] alpha = new double[BIN_SIZE];
+    final double[] red = new double[BIN_SIZE];
+    final double[] green = new double[BIN_SIZE];
+    final double[] blue = new double[BIN_SIZE];
 
     if (image.isBackgroundLoading() && image.getProgress() != 1) {
       throw new HistogramReadException("Given media is not loaded yet");
@@ -113,50 +143,100 @@ public class ImageHistogram {
       green[i] /= pixelCount;
       blue[i] /= pixelCount;
     }
-  }
 
-  public double[] getAlpha() {
-    return alpha;
+    slot = store(alpha, red, green, blue);
   }
 
-  public double[] getRed() {
-    return red;
+  /**
+   * Writes the channels into a new store slot and releases the slot once this histogram is unreachable.
+   *
+   * @return The slot.
+   */
+  private int store(double[] alpha, double[] red, double[] green, double[] blue) {
+    final int s = STORE.allocate();
+    STORE.put(s, ALPHA, alpha);
+    STORE.put(s, RED, red);
+    STORE.put(s, GREEN, green);
+    STORE.put(s, BLUE, blue);
+    CLEANER.register(this, () -> STORE.release(s));
+    return s;
   }
 
-  public double[] getGreen() {
-    return green;
+  /**
+   * @return Copy of the alpha buckets.
+   */
+  public double[] getAlpha() {
+    try {
+      return STORE.get(slot, ALPHA);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
   }
 
-  public double[] getBlue() {
-    return blue;
+  /**
+   * @return Copy of the red buckets.
+   */
+  public double[] getRed() {
+    try {
+      return STORE.get(slot, RED);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
   }
 
   /**
-   * @return Alpha buckets as a stream.
+   * @return Copy of the green buckets.
    */
-  public ByteArrayInputStream getAlphaAsInputStream() {
-    return arrayAsInputStream(alpha);
+  public double[] getGreen() {
+    try {
+      return STORE.get(slot, GREEN);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
   }
 
   /**
-   * @return Red buckets as a stream.
+   * @return Copy of the blue buckets.
    */
-  public ByteArrayInputStream getRedAsInputStream() {
-    return arrayAsInputStream(red);
+  public double[] getBlue() {
+    try {
+      return STORE.get(slot, BLUE);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
   }
 
   /**
-   * @return Green buckets as a stream.
+   * Copies all bins as float32 into an array, in alpha, red, green, blue channel order.
+   *
+   * @param dest   Destination array.
+   * @param offset Index in dest to copy to. {@link #BIN_SIZE} * {@link #NUM_CHANNELS} floats are written.
    */
-  public ByteArrayInputStream getGreenAsInputStream() {
-    return arrayAsInputStream(green);
+  public void copyInto(float[] dest, int offset) {
+    try {
+      STORE.copyInto(slot, dest, offset);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
   }
 
   /**
-   * @return Blue buckets as a stream.
+   * Packs this histogram into {@link #PACKED_SIZE} bytes. Channels are stored in alpha, red, green, blue order, each bin
+   * as a big-endian unsigned 16-bit fraction of the pixel count.
+   *
+   * @return Packed histogram bytes.
    */
-  public ByteArrayInputStream getBlueAsInputStream() {
-    return arrayAsInputStream(blue);
+  public byte[] toPackedBytes() {
+    byte[] packed = new byte[PACKED_SIZE];
+    try {
+      packChannel(STORE.get(slot, ALPHA), packed, ALPHA);
+      packChannel(STORE.get(slot, RED), packed, RED);
+      packChannel(STORE.get(slot, GREEN), packed, GREEN);
+      packChannel(STORE.get(slot, BLUE), packed, BLUE);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+    return packed;
   }
 
   /**
@@ -166,14 +246,11 @@ public class ImageHistogram {
    */
   public boolean isColorful() {
     if (colorful == null) {
-      double d = 0;
-
-      for (int i = 0; i < BIN_SIZE; i++) {
-        d += Math.max(Math.max(red[i], green[i]), blue[i]) -
-             Math.min(Math.min(red[i], green[i]), blue[i]);
+      try {
+        colorful = STORE.colorSpread(slot) > BLACK_AND_WHITE_CONFIDENCE;
+      } finally {
+        Reference.reachabilityFence(this);
       }
-
-      colorful = d > BLACK_AND_WHITE_CONFIDENCE;
     }
 
     return colorful;
@@ -186,32 +263,31 @@ public class ImageHistogram {
    * @return Percent similarity [0.0-1.0]. 1.0 being a perfect pixel-per-pixel match. 0.0 being the perfect opposite of each other.
    */
   public double getSimilarity(ImageHistogram other) {
-    double da = 0, dr = 0, dg = 0, db = 0;
-
-    for (int i = 0; i < BIN_SIZE; i++) {
-      da += Math.abs(alpha[i] - other.alpha[i]);
-      dr += Math.abs(red[i] - other.red[i]);
-      dg += Math.abs(green[i] - other.green[i]);
-      db += Math.abs(blue[i] - other.blue[i]);
+    try {
+      return 1 - STORE.distance(slot, other.slot) / 8;
+    } finally {
+      Reference.reachabilityFence(this);
+      Reference.reachabilityFence(other);
     }
-
-    return 1 - (da + dr + dg + db) / 8;
   }
 
-  /**
-   * Converts an array into a stream.
-   *
-   * @param array Array to convert.
-   * @return Stream containing array in byte format.
-   */
-  private static ByteArrayInputStream arrayAsInputStream(double[] array) {
-    ByteBuffer bb = ByteBuffer.wrap(new byte[BIN_SIZE * 8]);
-
-    for (double d : array) {
-      bb.putDouble(d);
+  private static void packChannel(double[] channel, byte[] packed, int index) {
+    int offset = index * BIN_SIZE * 2;
+    for (double d : channel) {
+      int bin = (int) Math.round(Math.min(Math.max(d, 0), 1) * PACKED_SCALE);
+      packed[offset++] = (byte) (bin >>> 8);
+      packed[offset++] = (byte) bin;
     }
+  }
 
-    return new ByteArrayInputStream(bb.array());
+  private static double[] unpackChannel(byte[] packed, int index) {
+    final double[] channel = new double[BIN_SIZE];
+    int offset = index * BIN_SIZE * 2;
+    for (int i = 0; i < BIN_SIZE; i++) {
+      channel[i] = (((packed[offset] & 0xFF) << 8) | (packed[offset + 1] & 0xFF)) / PACKED_SCALE;
+      offset += 2;
+    }
+    return channel;
   }
 
   /**
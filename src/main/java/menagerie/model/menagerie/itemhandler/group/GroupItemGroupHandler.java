@@ -22,7 +22,7 @@ public class GroupItemGroupHandler implements ItemGroupHandler {
   @Override
   public void addToGroup(Item item, GroupItem group) {
     List<MediaItem> e = new ArrayList<>(((GroupItem) item).getElements());
-    item.getTags().forEach(group::addTag);
+    item.getTagSnapshot().forEach(group::addTag);
     item.getMenagerie().forgetItem(item);
     e.forEach(group::addItem);
   }
@@ -65,12 +65,17 @@ public class GroupSearch extends Search {
   }
 
   @Override
-  protected boolean isItemValid(Item item) {
+  protected boolean isSortedById() {
+    return false;
+  }
+
+  @Override
+  protected boolean isItemInScope(Item item) {
     Optional<ItemProperties> itemProps = Items.get(ItemProperties.class, item);
     if (itemProps.isEmpty() || !itemProps.get().isInGroup(item) || !itemProps.get().getParentGroup(item).equals(group)) {
       return false;
     }
-    return super.isItemValid(item);
+    return super.isItemInScope(item);
   }
 
   public GroupItem getGroup() {
@@ -0,0 +1,200 @@
+package menagerie.model.search;
+
+import javafx.collections.ModifiableObservableListBase;
+import menagerie.model.menagerie.Item;
+import menagerie.util.IntBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Observable list of search results that tracks the IDs of its items, so membership checks don't scan the list.
+ * <p>
+ * Batches of additions and removals are merged into the list in a single pass with {@link #update(Collection,
+ * Collection, Comparator, boolean)}, which notifies listeners with one change whose sub-changes give the position of
+ * every removed and added item.
+ */
+final class ResultList extends ModifiableObservableListBase<Item> {
+
+  private List<Item> items = new ArrayList<>();
+  private final IntBitmap ids = new IntBitmap();
+
+  @Override
+  public Item get(int index) {
+    return items.get(index);
+  }
+
+  @Override
+  public int size() {
+    return items.size();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof Item item && ids.contains(item.getId());
+  }
+
+  @Override
+  protected void doAdd(int index, Item element) {
+    items.add(index, element);
+    ids.add(element.getId());
+  }
+
+  @Override
+  protected Item doSet(int index, Item element) {
+    final Item old = items.set(index, element);
+    ids.remove(old.getId());
+    ids.add(element.getId());
+    return old;
+  }
+
+  @Override
+  protected Item doRemove(int index) {
+    final Item old = items.remove(index);
+    ids.remove(old.getId());
+    return old;
+  }
+
+  /**
+   * Stably sorts the list and notifies listeners with a single permutation.
+   *
+   * @param c Comparator to sort by.
+   */
+  @Override
+  public void sort(Comparator<? super Item> c) {
+    final Integer[] order = new Integer[items.size()];
+    Arrays.setAll(order, i -> i);
+    Arrays.sort(order, (a, b) -> c.compare(items.get(a), items.get(b)));
+
+    final List<Item> sorted = new ArrayList<>(items.size());
+    final int[] permutation = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      permutation[order[i]] = i;
+      sorted.add(items.get(order[i]));
+    }
+
+    beginChange();
+    items = sorted;
+    nextPermutation(0, permutation.length, permutation);
+    endChange();
+  }
+
+  /**
+   * Removes and adds items in one pass over the list. The list is expected to be sorted by the comparator; if it is not,
+   * it is sorted first.
+   *
+   * @param toAdd    Items to add. Items already in the list are ignored.
+   * @param toRemove Items to remove. Items not in the list are ignored.
+   * @param order    Comparator the list is sorted by. Added items are merged in at their sorted positions.
+   * @param shuffled Insert added items at random positions instead of sorted ones.
+   */
+  void update(Collection<Item> toAdd, Collection<Item> toRemove, Comparator<Item> order, boolean shuffled) {
+    final IntBitmap removed = new IntBitmap();
+    for (Item item : toRemove) {
+      if (contains(item)) {
+        removed.add(item.getId());
+      }
+    }
+    final IntBitmap seen = new IntBitmap();
+    final List<Item> added = new ArrayList<>();
+    for (Item item : toAdd) {
+      if (!contains(item) && !seen.contains(item.getId())) {
+        seen.add(item.getId());
+        added.add(item);
+      }
+    }
+    if (removed.isEmpty() && added.isEmpty()) {
+      return;
+    }
+
+    // Index of the old item each addition is inserted before
+    final int[] positions = new int[added.size()];
+    if (shuffled) {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      Arrays.setAll(positions, i -> random.nextInt(items.size() + 1));
+      Arrays.sort(positions);
+    } else {
+      if (!isSorted(order)) {
+        sort(order);
+      }
+      added.sort(order);
+      int j = added.isEmpty() ? 0 : upperBound(added.get(0), order);
+      for (int i = 0; i < added.size(); i++) {
+        while (j < items.size() && order.compare(items.get(j), added.get(i)) <= 0) {
+          j++;
+        }
+        positions[i] = j;
+      }
+    }
+
+    if (removed.isEmpty() && positions[0] == items.size()) {
+      // Everything goes at the end, so append without copying the list
+      beginChange();
+      final int from = items.size();
+      for (Item item : added) {
+        items.add(item);
+        ids.add(item.getId());
+      }
+      nextAdd(from, items.size());
+      endChange();
+      return;
+    }
+
+    final List<Item> merged = new ArrayList<>(items.size() + added.size() - removed.getCardinality());
+    beginChange();
+    int a = 0;
+    for (int i = 0; i <= items.size(); i++) {
+      while (a < added.size() && positions[a] == i) {
+        final Item item = added.get(a++);
+        nextAdd(merged.size(), merged.size() + 1);
+        merged.add(item);
+        ids.add(item.getId());
+      }
+      if (i == items.size()) {
+        break;
+      }
+      final Item item = items.get(i);
+      if (removed.contains(item.getId())) {
+        nextRemove(merged.size(), item);
+        ids.remove(item.getId());
+      } else {
+        merged.add(item);
+      }
+    }
+    items = merged;
+    endChange();
+  }
+
+  /**
+   * @param item  Item to find a position for.
+   * @param order Comparator the list is sorted by.
+   * @return Index of the first item in the list that sorts after the given item, or the size of the list.
+   */
+  private int upperBound(Item item, Comparator<Item> order) {
+    int low = 0;
+    int high = items.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (order.compare(items.get(mid), item) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private boolean isSorted(Comparator<Item> order) {
+    for (int i = 1; i < items.size(); i++) {
+      if (order.compare(items.get(i - 1), items.get(i)) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
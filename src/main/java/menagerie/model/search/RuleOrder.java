@@ -0,0 +1,104 @@
+package menagerie.model.search;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.search.rules.SearchRule;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders the rules of a search so that the rules most likely to reject an item for the least cost are checked first.
+ * <p>
+ * A rule's rank is its cost per check divided by the fraction of items it rejects. Checking conjunctive rules in
+ * ascending rank minimizes the expected cost of checking an item. Pass rates and costs are taken from the rules' own
+ * statistics once they have checked enough items. Before that, pass rates come from the rules' estimates, or from
+ * checking a small sample of the Menagerie's items, which also times the rules.
+ */
+final class RuleOrder {
+
+  /**
+   * Number of checks after which a rule's measured pass rate is trusted over its estimate.
+   */
+  static final int MEASURED_CHECKS = 64;
+
+  /**
+   * Number of items sampled to measure rules that have no estimate.
+   */
+  static final int SAMPLE_SIZE = 256;
+
+  /**
+   * Cost assumed for rules that have never been timed, in nanoseconds.
+   */
+  private static final double DEFAULT_NANOS = 100;
+
+  /**
+   * Smallest rejection rate used in ranks, so rules that reject nothing still rank by cost.
+   */
+  private static final double MIN_REJECTION = 1e-3;
+
+  private RuleOrder() {
+  }
+
+  /**
+   * Sorts rules in place by ascending rank.
+   *
+   * @param rules     Rules to sort.
+   * @param menagerie Menagerie to estimate and sample pass rates in. May be null, in which case only measured
+   *                  statistics are used.
+   */
+  static void sort(List<SearchRule> rules, Menagerie menagerie) {
+    if (rules.size() < 2) {
+      return;
+    }
+
+    final Map<SearchRule, Double> ranks = new HashMap<>();
+    for (SearchRule rule : rules) {
+      ranks.put(rule, rank(rule, menagerie));
+    }
+    // Stable, so rules of equal rank keep their priority order
+    rules.sort(Comparator.comparingDouble(ranks::get));
+  }
+
+  private static double rank(SearchRule rule, Menagerie menagerie) {
+    double passRate = rule.getPassRate();
+    if (rule.getCheckCount() < MEASURED_CHECKS && menagerie != null) {
+      final double estimate = rule.estimateMatchRate(menagerie);
+      if (!Double.isNaN(estimate)) {
+        passRate = rule.isInverted() ? 1 - estimate : estimate;
+      } else {
+        sample(rule, menagerie.getItems());
+        passRate = rule.getPassRate();
+      }
+    }
+    if (Double.isNaN(passRate)) {
+      passRate = 0.5;
+    }
+
+    double nanos = rule.getAverageNanos();
+    if (Double.isNaN(nanos)) {
+      nanos = DEFAULT_NANOS;
+    }
+
+    return nanos / Math.max(1 - passRate, MIN_REJECTION);
+  }
+
+  /**
+   * Checks a rule against items spread evenly over a list.
+   *
+   * @param rule  Rule to measure.
+   * @param items Items to sample.
+   */
+  private static void sample(SearchRule rule, List<Item> items) {
+    if (items.isEmpty()) {
+      return;
+    }
+    final double stride = Math.max(1, items.size() / (double) SAMPLE_SIZE);
+    for (double i = 0; i < items.size(); i += stride) {
+      rule.accept(items.get((int) i));
+    }
+  }
+
+}
@@ -24,30 +24,44 @@
 
 package menagerie.model.search;
 
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import menagerie.gui.itemhandler.Items;
 import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
 import menagerie.model.menagerie.itemhandler.properties.ItemProperties;
 import menagerie.model.search.rules.SearchRule;
+import menagerie.util.IntBitmap;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Data class that contains results of a search filtered and sorted by the given rules.
  */
 public class Search {
 
+  private static final Logger LOGGER = Logger.getLogger(Search.class.getName());
+
+  /**
+   * Number of items checked between reorderings of the rules by their measured statistics.
+   */
+  static final int REORDER_INTERVAL = 4096;
+
   List<SearchRule> rules = new ArrayList<>();
+  private final SearchPlan plan;
   private final boolean showGrouped;
   private final boolean descending;
   private final boolean shuffled;
   private final String searchString;
 
-  private final ObservableList<Item> results = FXCollections.observableArrayList();
+  private final ResultList results = new ResultList();
 
   protected Comparator<Item> comparator;
 
@@ -68,6 +82,7 @@ public class Search {
       rules = SearchRuleParser.parseRules(search);
     }
     rules.sort(null);
+    plan = new SearchPlan(rules);
 
     comparator = getItemComparator(descending, shuffled);
   }
@@ -86,12 +101,27 @@ public class Search {
   }
 
   /**
-   * @return List of all results currently in the search. Is a direct reference to the backing list.
+   * @return True if the results are ordered by item ID, so items collected in ID order don't need to be sorted.
+   */
+  protected boolean isSortedById() {
+    return !shuffled;
+  }
+
+  /**
+   * @return List of all results currently in the search. Is a direct reference to the backing list. Its contains check
+   * doesn't scan the list, and refreshes notify its listeners with a single change.
    */
   public ObservableList<Item> getResults() {
     return results;
   }
 
+  /**
+   * @return The rules of this search, in the order they are currently checked. Their statistics can be used for tuning.
+   */
+  public List<SearchRule> getRules() {
+    return Collections.unmodifiableList(rules);
+  }
+
   public String getSearchString() {
     return searchString;
   }
@@ -115,6 +145,45 @@ public class Search {
     return comparator;
   }
 
+  /**
+   * Checks every item in a Menagerie. Tag, ID, date added and file path rules are looked up in the Menagerie's indexes
+   * when they narrow down the items, and only the remaining rules are checked on each candidate.
+   *
+   * @param menagerie Menagerie to search.
+   */
+  public void refreshSearch(Menagerie menagerie) {
+    final IntBitmap candidates = plan.findCandidates(menagerie);
+    if (candidates == null) {
+      RuleOrder.sort(rules, menagerie);
+      refreshSearch(menagerie.getItems());
+      logRuleStatistics(rules);
+      return;
+    }
+
+    final List<SearchRule> residualRules = plan.getResidualRules();
+    RuleOrder.sort(residualRules, menagerie);
+    final Set<Item> matches = new LinkedHashSet<>();
+    final int[] checked = {0};
+    candidates.forEach(id -> {
+      final Item item = menagerie.getItemByID(id);
+      if (item != null && plan.isInRange(item) && isItemInScope(item) && acceptsAll(residualRules, item)) {
+        matches.add(item);
+      }
+      if (++checked[0] % REORDER_INTERVAL == 0) {
+        RuleOrder.sort(residualRules, null);
+      }
+    });
+    logRuleStatistics(residualRules);
+
+    final List<Item> toRemove = new ArrayList<>();
+    for (Item item : results) {
+      if (!matches.contains(item)) {
+        toRemove.add(item);
+      }
+    }
+    results.update(matches, toRemove, getComparator(), isShuffled());
+  }
+
   /**
    * Checks items to see if they need to be removed from or added to this search.
    *
@@ -123,7 +192,11 @@ public class Search {
   public void refreshSearch(List<Item> check) {
     List<Item> toRemove = new ArrayList<>();
     List<Item> toAdd = new ArrayList<>();
+    int checked = 0;
     for (Item item : check) {
+      if (++checked % REORDER_INTERVAL == 0) {
+        RuleOrder.sort(rules, null);
+      }
       if (isItemValid(item)) {
         if (!results.contains(item)) {
           toAdd.add(item);
@@ -133,32 +206,57 @@ public class Search {
       }
     }
 
-    sort();
+    results.update(toAdd, toRemove, getComparator(), isShuffled());
+  }
 
-    results.removeAll(toRemove);
-    if (isShuffled()) {
-      toAdd.forEach(item -> results.add((int) Math.floor(Math.random() * results.size()), item));
-    } else {
-      results.addAll(toAdd);
-    }
+  /**
+   * Adds matches found by a {@link SearchTask}. The matches were checked on the search thread, so they are checked
+   * again here, and items that were removed, retagged or otherwise changed to not match anymore are skipped.
+   *
+   * @param matches Matching items, in the order they should appear in unless they sort elsewhere.
+   */
+  void addResults(List<Item> matches) {
+    matches.removeIf(item -> !isItemValid(item));
+    // Shuffled tasks shuffle the matches themselves, so they're appended in the order given
+    results.update(matches, Collections.emptyList(), getComparator(), false);
+  }
+
+  SearchPlan getPlan() {
+    return plan;
   }
 
   protected boolean isItemValid(Item item) {
+    return isItemInScope(item) && acceptsAll(rules, item);
+  }
+
+  /**
+   * @param item Item to check.
+   * @return True if the item can be a result of this search, regardless of the search rules.
+   */
+  protected boolean isItemInScope(Item item) {
     if (item.isInvalidated()) {
       return false;
     }
 
     Optional<ItemProperties> itemProps = Items.get(ItemProperties.class, item);
-    if (itemProps.isEmpty() || (itemProps.get().isInGroup(item) && !showGrouped)) {
-      return false;
-    } else {
+    return itemProps.isPresent() && (!itemProps.get().isInGroup(item) || showGrouped);
+  }
+
+  private static void logRuleStatistics(List<SearchRule> rules) {
+    if (LOGGER.isLoggable(Level.FINE)) {
       for (SearchRule rule : rules) {
-        if (!rule.accept(item)) {
-          return false;
-        }
+        LOGGER.fine(String.format("%s: %d checked, pass rate %.3f, %.0f ns/check", rule, rule.getCheckCount(),
+            rule.getPassRate(), rule.getAverageNanos()));
       }
     }
+  }
 
+  static boolean acceptsAll(List<SearchRule> rules, Item item) {
+    for (SearchRule rule : rules) {
+      if (!rule.accept(item)) {
+        return false;
+      }
+    }
     return true;
   }
 
@@ -0,0 +1,147 @@
+package menagerie.model.search;
+
+import menagerie.model.menagerie.GroupItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.search.rules.MissingRule;
+import menagerie.model.search.rules.SearchRule;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+/**
+ * Least recently used cache of finished searches, so revisiting a search doesn't evaluate the library again.
+ * <p>
+ * A cached search keeps its compiled plan, its rule statistics and its results with their ID set. Searches are keyed
+ * by their normalized rules, group scope and flags. When a search is cached, the Menagerie's mutation epochs it depends
+ * on are recorded with it, and it is only handed out again while they are unchanged. A search answered entirely by tag
+ * posting lists depends on the epochs of its tags, and on the epoch of groups if grouping affects its scope. Any other
+ * search depends on every change to items or their tags. Searches for missing files are never cached, since files can
+ * disappear without any change to the Menagerie.
+ */
+public class SearchCache {
+
+  private static final Logger LOGGER = Logger.getLogger(SearchCache.class.getName());
+
+  private record Key(String rules, int scope, boolean descending, boolean showGrouped, boolean shuffled) {
+  }
+
+  private record Entry(Search search, List<Object> epochs) {
+  }
+
+  private final Map<Key, Entry> entries;
+
+  /**
+   * @param capacity Maximum number of searches to keep.
+   */
+  public SearchCache(int capacity) {
+    entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Caches a search whose results are complete and up to date. No effect if the search can't be cached.
+   *
+   * @param search    Search to cache. Must not be registered with the Menagerie while it is cached.
+   * @param menagerie Menagerie the search was run on.
+   */
+  public void put(Search search, Menagerie menagerie) {
+    if (!isCacheable(search)) {
+      return;
+    }
+    entries.put(getKey(search.getSearchString(), getScope(search), search.isDescending(), search.isShowGrouped(),
+        search.isShuffled()), new Entry(search, getEpochs(search, menagerie)));
+  }
+
+  /**
+   * Removes a cached search from the cache, if it is still up to date.
+   *
+   * @param search      Search string.
+   * @param scope       Group scope of the search, or null.
+   * @param descending  Results are sorted descending.
+   * @param showGrouped Results include items in groups.
+   * @param shuffled    Results are shuffled.
+   * @param menagerie   Menagerie to search.
+   * @return The cached search with up to date results, or null if there is none.
+   */
+  public Search take(String search, GroupItem scope, boolean descending, boolean showGrouped, boolean shuffled,
+                     Menagerie menagerie) {
+    final Entry entry = entries.remove(getKey(search, scope, descending, showGrouped, shuffled));
+    if (entry == null) {
+      return null;
+    }
+    if (!entry.epochs().equals(getEpochs(entry.search(), menagerie))) {
+      LOGGER.fine(() -> "Dropping outdated cached search: " + search);
+      return null;
+    }
+    return entry.search();
+  }
+
+  /**
+   * @return Number of cached searches.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * @return False if the results of the search depend on something no mutation epoch tracks, such as files on disk.
+   */
+  private static boolean isCacheable(Search search) {
+    for (SearchRule rule : search.getRules()) {
+      if (rule instanceof MissingRule missing && missing.getType() == MissingRule.Type.FILE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static GroupItem getScope(Search search) {
+    return search instanceof GroupSearch groupSearch ? groupSearch.getGroup() : null;
+  }
+
+  /**
+   * Normalizes the search string to its rules, ignoring their order, duplicates and spacing.
+   */
+  private static Key getKey(String search, GroupItem scope, boolean descending, boolean showGrouped,
+                            boolean shuffled) {
+    final TreeSet<String> rules = new TreeSet<>();
+    if (search != null) {
+      for (SearchRule rule : SearchRuleParser.parseRules(search)) {
+        rules.add(rule.toString());
+      }
+    }
+    return new Key(String.join("\n", rules), scope == null ? -1 : scope.getId(), descending,
+        showGrouped || scope != null, shuffled);
+  }
+
+  /**
+   * @return The current values of the mutation epochs the results of a search depend on.
+   */
+  private static List<Object> getEpochs(Search search, Menagerie menagerie) {
+    final SearchPlan plan = search.getPlan();
+    final List<Object> epochs = new ArrayList<>();
+    for (String tag : plan.getTagNames()) {
+      epochs.add(menagerie.getTagEpoch(tag));
+    }
+    if (!plan.isAnsweredByTags()) {
+      epochs.add(menagerie.getTaggingEpoch());
+      epochs.add(menagerie.getTypeEpochs());
+    } else if (!search.isShowGrouped() || search instanceof GroupSearch) {
+      epochs.add(menagerie.getTypeEpoch(GroupItem.class));
+    }
+    return epochs;
+  }
+
+}
@@ -0,0 +1,347 @@
+package menagerie.model.search;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.ItemColumns;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.Tag;
+import menagerie.model.search.rules.DateAddedRule;
+import menagerie.model.search.rules.FilePathRule;
+import menagerie.model.search.rules.IDRule;
+import menagerie.model.search.rules.MissingRule;
+import menagerie.model.search.rules.SearchRule;
+import menagerie.model.search.rules.TagCountRule;
+import menagerie.model.search.rules.TagRule;
+import menagerie.model.search.rules.TitleRule;
+import menagerie.model.search.rules.TypeRule;
+import menagerie.util.IntBitmap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Search rules compiled into a plan that narrows the items of a Menagerie with its indexes before checking any item.
+ * <p>
+ * Tag rules are resolved to the tags' posting lists: included tags are intersected, smallest first, and excluded tags
+ * are subtracted. ID rules and date added rules are folded into one inclusive ID range and one inclusive date range,
+ * which resolve to slices of the Menagerie's range indexes. File path rules narrow the candidates to the items whose
+ * paths contain the trigrams of the text, but stay residual rules to verify the text itself. Title rules narrow the
+ * candidates to the groups whose title tokens contain their words, and stay residual rules as well. Tag count, type
+ * and missing MD5 or histogram rules become filters over the Menagerie's item columns, evaluated in one pass over
+ * the columns or over the candidates. Every other rule is a residual rule, checked per item on the candidates that
+ * are left.
+ */
+class SearchPlan {
+
+  /**
+   * A range is only sliced before a pass over the item columns if it holds fewer than one in this many items.
+   */
+  private static final int RANGE_SCAN_RATIO = 8;
+
+  private final List<String> includedTags = new ArrayList<>();
+  private final List<String> excludedTags = new ArrayList<>();
+  private final List<String> pathTexts = new ArrayList<>();
+  private final List<String> titleWords = new ArrayList<>();
+  private final List<ItemColumns.Filter> columnFilters = new ArrayList<>();
+  private final List<SearchRule> residualRules = new ArrayList<>();
+  private int minId = 0;
+  private int maxId = Integer.MAX_VALUE;
+  private long minDate = Long.MIN_VALUE;
+  private long maxDate = Long.MAX_VALUE;
+
+
+  /**
+   * @param rules Parsed search rules.
+   */
+  SearchPlan(List<SearchRule> rules) {
+    for (SearchRule rule : rules) {
+      if (rule instanceof TagRule tagRule) {
+        (tagRule.isInverted() ? excludedTags : includedTags).add(tagRule.getTag());
+      } else if (!(rule instanceof IDRule idRule && addIdRange(idRule)) &&
+                 !(rule instanceof DateAddedRule dateRule && addDateRange(dateRule)) && !addColumnFilter(rule)) {
+        if (rule instanceof FilePathRule pathRule && !pathRule.isInverted()) {
+          pathTexts.add(pathRule.getText());
+        } else if (rule instanceof TitleRule titleRule && !titleRule.isInverted()) {
+          titleWords.addAll(titleRule.getWords());
+        }
+        residualRules.add(rule);
+      }
+    }
+  }
+
+  /**
+   * Narrows the ID range by an ID rule.
+   *
+   * @param rule Rule to fold into the range.
+   * @return False if the rule can't be expressed as a range, which is the case for an inverted equality.
+   */
+  private boolean addIdRange(IDRule rule) {
+    final long value = rule.getId();
+    long min = Integer.MIN_VALUE;
+    long max = Integer.MAX_VALUE;
+    switch (rule.getType()) {
+      case LESS_THAN -> {
+        if (rule.isInverted()) {
+          min = value;
+        } else {
+          max = value - 1;
+        }
+      }
+      case GREATER_THAN -> {
+        if (rule.isInverted()) {
+          max = value;
+        } else {
+          min = value + 1;
+        }
+      }
+      case EQUAL_TO -> {
+        if (rule.isInverted()) {
+          return false;
+        }
+        min = max = value;
+      }
+    }
+
+    minId = (int) Math.max(minId, Math.min(min, Integer.MAX_VALUE));
+    maxId = (int) Math.min(maxId, Math.max(max, -1));
+    return true;
+  }
+
+  /**
+   * Narrows the date range by a date added rule.
+   *
+   * @param rule Rule to fold into the range.
+   * @return False if the rule can't be expressed as a range, which is the case for an inverted equality.
+   */
+  private boolean addDateRange(DateAddedRule rule) {
+    final long value = rule.getTime();
+    long min = Long.MIN_VALUE;
+    long max = Long.MAX_VALUE;
+    switch (rule.getType()) {
+      case LESS_THAN -> {
+        if (rule.isInverted()) {
+          min = value;
+        } else if (value == Long.MIN_VALUE) {
+          min = 0;
+          max = -1;
+        } else {
+          max = value - 1;
+        }
+      }
+      case GREATER_THAN -> {
+        if (rule.isInverted()) {
+          max = value;
+        } else if (value == Long.MAX_VALUE) {
+          min = 0;
+          max = -1;
+        } else {
+          min = value + 1;
+        }
+      }
+      case EQUAL_TO -> {
+        if (rule.isInverted()) {
+          return false;
+        }
+        min = max = value;
+      }
+    }
+
+    if (min > max) {
+      // Nothing matches, keep the range empty
+      minDate = 0;
+      maxDate = -1;
+    } else {
+      minDate = Math.max(minDate, min);
+      maxDate = Math.min(maxDate, max);
+    }
+    return true;
+  }
+
+  /**
+   * Translates a rule into a filter over the item columns.
+   *
+   * @param rule Rule to translate.
+   * @return False if the rule isn't answered by the item columns.
+   */
+  private boolean addColumnFilter(SearchRule rule) {
+    ItemColumns.Filter filter;
+    if (rule instanceof TagCountRule tagCountRule) {
+      final long value = tagCountRule.getValue();
+      filter = switch (tagCountRule.getType()) {
+        case EQUAL_TO -> tagCountFilter(value, value);
+        case LESS_THAN -> tagCountFilter(Integer.MIN_VALUE, value - 1);
+        case GREATER_THAN -> tagCountFilter(value + 1, Integer.MAX_VALUE);
+      };
+    } else if (rule instanceof TypeRule typeRule) {
+      filter = ItemColumns.typeIs(switch (typeRule.getType()) {
+        case MEDIA -> ItemColumns.MEDIA;
+        case IMAGE -> ItemColumns.IMAGE;
+        case VIDEO -> ItemColumns.VIDEO;
+        case GROUP -> ItemColumns.GROUP;
+      });
+    } else if (rule instanceof MissingRule missingRule) {
+      switch (missingRule.getType()) {
+        case MD5 -> filter = ItemColumns.flagged(ItemColumns.MISSING_MD5);
+        case HISTOGRAM -> filter = ItemColumns.flagged(ItemColumns.MISSING_HISTOGRAM);
+        default -> {
+          // Whether a file exists is only known by checking the disk
+          return false;
+        }
+      }
+    } else {
+      return false;
+    }
+
+    columnFilters.add(rule.isInverted() ? filter.negate() : filter);
+    return true;
+  }
+
+  private static ItemColumns.Filter tagCountFilter(long min, long max) {
+    if (min > max) {
+      return (columns, slot) -> false;
+    }
+    return ItemColumns.tagCountBetween((int) Math.max(min, Integer.MIN_VALUE), (int) Math.min(max, Integer.MAX_VALUE));
+  }
+
+  /**
+   * @return Rules that are not answered by {@link #findCandidates(Menagerie)} and must be checked per candidate. Is a
+   * direct reference, so the rules can be reordered in place.
+   */
+  List<SearchRule> getResidualRules() {
+    return residualRules;
+  }
+
+  /**
+   * @return Names of the tags of all tag rules, included and excluded.
+   */
+  List<String> getTagNames() {
+    final List<String> names = new ArrayList<>(includedTags);
+    names.addAll(excludedTags);
+    return names;
+  }
+
+  /**
+   * @return True if the candidates are found from tag posting lists and no rule has to be checked per item, so the
+   * matches only change when those posting lists do.
+   */
+  boolean isAnsweredByTags() {
+    return !includedTags.isEmpty() && residualRules.isEmpty() && columnFilters.isEmpty();
+  }
+
+  /**
+   * @param item Item to check.
+   * @return True if the item satisfies the ID and date added rules.
+   */
+  boolean isInRange(Item item) {
+    return isInIdRange(item.getId()) && item.getDateAdded() >= minDate && item.getDateAdded() <= maxDate;
+  }
+
+  /**
+   * @param id Item ID.
+   * @return True if the ID satisfies the ID rules.
+   */
+  boolean isInIdRange(int id) {
+    return id >= minId && id <= maxId;
+  }
+
+  private boolean isIdLimited() {
+    return minId > 0 || maxId < Integer.MAX_VALUE;
+  }
+
+  private boolean isDateLimited() {
+    return minDate > Long.MIN_VALUE || maxDate < Long.MAX_VALUE;
+  }
+
+  /**
+   * Finds the IDs of the items that satisfy the tag, ID, date, title and column rules, and may satisfy the file path
+   * rules.
+   * Candidates must still be checked with {@link #isInRange(Item)} and the residual rules.
+   * <p>
+   * Range slices are only intersected with the tag candidates when they are smaller, otherwise the ranges are left to
+   * the per item check. Candidates are always in ascending ID order.
+   *
+   * @param menagerie Menagerie to search.
+   * @return The candidate item IDs, or null if the indexes don't narrow the search and every item must be checked
+   * against every rule. May be a tag's own posting list, so it must not be modified.
+   */
+  IntBitmap findCandidates(Menagerie menagerie) {
+    if (minId > maxId || minDate > maxDate) {
+      return new IntBitmap();
+    }
+
+    IntBitmap candidates = null;
+    if (!includedTags.isEmpty()) {
+      final List<Tag> tags = new ArrayList<>();
+      for (String name : includedTags) {
+        final Tag t = menagerie.getTagByName(name);
+        if (t == null) {
+          return new IntBitmap();
+        }
+        tags.add(t);
+      }
+      tags.sort(Comparator.comparingInt(t -> t.getItemIds().getCardinality()));
+
+      candidates = tags.get(0).getItemIds();
+      for (int i = 1; i < tags.size() && !candidates.isEmpty(); i++) {
+        candidates = candidates.and(tags.get(i).getItemIds());
+      }
+    }
+
+    if (!titleWords.isEmpty() && (candidates == null || !candidates.isEmpty())) {
+      final IntBitmap groups = menagerie.findGroupIdsByTitle(titleWords);
+      candidates = candidates == null ? groups : groups.and(candidates);
+    }
+
+    for (String text : pathTexts) {
+      if (candidates != null && candidates.isEmpty()) {
+        break;
+      }
+      final IntBitmap paths = menagerie.findItemIdsByPath(text);
+      if (paths != null) {
+        candidates = candidates == null ? paths : candidates.and(paths);
+      }
+    }
+
+    // A range is sliced when the slice is smaller than what it narrows: the candidates so far, or a part of a pass over
+    // the columns, which checks the ranges anyway
+    long limit = candidates != null ? candidates.getCardinality() :
+        columnFilters.isEmpty() ? Long.MAX_VALUE : menagerie.getColumnSize() / RANGE_SCAN_RATIO;
+    if (isDateLimited() && menagerie.countItemsAddedBetween(minDate, maxDate) < limit) {
+      final IntBitmap slice = menagerie.getItemIdsAddedBetween(minDate, maxDate);
+      candidates = candidates == null ? slice : slice.and(candidates);
+      limit = candidates.getCardinality();
+    }
+    if (isIdLimited() && (long) maxId - minId < limit) {
+      final IntBitmap slice = menagerie.getItemIdsInRange(minId, maxId);
+      candidates = candidates == null ? slice : slice.and(candidates);
+    }
+    if (!columnFilters.isEmpty()) {
+      if (candidates == null) {
+        // One pass over the columns, checking the ranges on the way
+        final List<ItemColumns.Filter> filters = new ArrayList<>(columnFilters);
+        if (isIdLimited()) {
+          filters.add(ItemColumns.idBetween(minId, maxId));
+        }
+        if (isDateLimited()) {
+          filters.add(ItemColumns.addedBetween(minDate, maxDate));
+        }
+        candidates = menagerie.selectItems(ItemColumns.Filter.all(filters));
+      } else if (!candidates.isEmpty()) {
+        candidates = menagerie.selectItems(ItemColumns.Filter.all(columnFilters), candidates);
+      }
+    }
+    if (candidates == null) {
+      return null;
+    }
+
+    for (String name : excludedTags) {
+      final Tag t = menagerie.getTagByName(name);
+      if (t != null && !candidates.isEmpty()) {
+        candidates = candidates.andNot(t.getItemIds());
+      }
+    }
+
+    return candidates;
+  }
+
+}
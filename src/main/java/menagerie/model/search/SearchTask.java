@@ -0,0 +1,206 @@
+package menagerie.model.search;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.search.rules.SearchRule;
+import menagerie.model.search.rules.TagRule;
+import menagerie.util.IntBitmap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fills the results of a new search on a background thread.
+ * <p>
+ * The items to check are collected when the task is constructed, which must happen on the thread that modifies the
+ * Menagerie. Rules that read the Menagerie's shared state are replaced by snapshots of it at the same time, see
+ * {@link TagRule#snapshot(Menagerie)}. Running the task checks the items in result order and hands the matches to the
+ * publisher in chunks: the first chunk as soon as it fills a screen, the rest in larger chunks or whenever matches have
+ * waited too long. Items can change while the task runs, so the search checks matches again when they are published.
+ * The task can be cancelled at any time, after which it publishes nothing more.
+ */
+public class SearchTask implements Runnable {
+
+  private static final Logger LOGGER = Logger.getLogger(SearchTask.class.getName());
+
+  /**
+   * Number of matches published at a time after the first chunk.
+   */
+  static final int CHUNK_SIZE = 5000;
+
+  /**
+   * Longest time matches are held back before being published, in nanoseconds.
+   */
+  private static final long PUBLISH_INTERVAL_NANOS = 100_000_000;
+
+  private final Search search;
+  private final Executor publisher;
+  private final int firstChunkSize;
+  private final List<Item> candidates;
+  private final List<SearchRule> rules;
+  /**
+   * True if the candidates were collected in ascending ID order.
+   */
+  private final boolean sortedById;
+
+  private Runnable onProgress = null;
+  private Runnable onFinished = null;
+
+  private volatile boolean cancelled = false;
+  private volatile boolean finished = false;
+
+  /**
+   * Collects the items to check. Must be called on the thread that modifies the Menagerie.
+   *
+   * @param search         New search to fill. Its results are only modified through the publisher.
+   * @param menagerie      Menagerie to search.
+   * @param publisher      Executor that runs on the thread that owns the search results, e.g. the JavaFX application
+   *                       thread.
+   * @param firstChunkSize Number of matches to publish first, e.g. the number of items that fit on screen.
+   */
+  public SearchTask(Search search, Menagerie menagerie, Executor publisher, int firstChunkSize) {
+    this.search = search;
+    this.publisher = publisher;
+    this.firstChunkSize = Math.max(1, firstChunkSize);
+
+    final SearchPlan plan = search.getPlan();
+    final IntBitmap ids = plan.findCandidates(menagerie);
+    if (ids == null) {
+      candidates = new ArrayList<>(menagerie.getItems());
+      rules = snapshotRules(search.rules, menagerie);
+      sortedById = false;
+    } else {
+      candidates = new ArrayList<>(ids.getCardinality());
+      ids.forEach(id -> {
+        final Item item = menagerie.getItemByID(id);
+        if (item != null && plan.isInRange(item)) {
+          candidates.add(item);
+        }
+      });
+      rules = snapshotRules(plan.getResidualRules(), menagerie);
+      sortedById = true;
+    }
+    RuleOrder.sort(rules, menagerie);
+  }
+
+  /**
+   * @param rules     Rules to check on the search thread.
+   * @param menagerie Menagerie the rules are checked against.
+   * @return The rules, with the ones that read tags from the Menagerie replaced by snapshots of the tags.
+   */
+  private static List<SearchRule> snapshotRules(List<SearchRule> rules, Menagerie menagerie) {
+    final List<SearchRule> result = new ArrayList<>(rules.size());
+    for (SearchRule rule : rules) {
+      result.add(rule instanceof TagRule tagRule ? tagRule.snapshot(menagerie) : rule);
+    }
+    return result;
+  }
+
+  /**
+   * @param onProgress Called by the publisher after each chunk of matches is added to the results.
+   */
+  public void setOnProgress(Runnable onProgress) {
+    this.onProgress = onProgress;
+  }
+
+  /**
+   * @param onFinished Called by the publisher after the last matches are added to the results. Not called if the task
+   *                   is cancelled.
+   */
+  public void setOnFinished(Runnable onFinished) {
+    this.onFinished = onFinished;
+  }
+
+  /**
+   * Stops the task. Chunks that have not been published yet are dropped.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * @return True once the last matches have been added to the results.
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  public Search getSearch() {
+    return search;
+  }
+
+  @Override
+  public void run() {
+    final long start = System.nanoTime();
+    List<Item> matches = new ArrayList<>();
+    try {
+      if (search.isShuffled()) {
+        Collections.shuffle(candidates);
+      } else if (sortedById && search.isSortedById()) {
+        // Index candidates are already in ID order
+        if (search.isDescending()) {
+          Collections.reverse(candidates);
+        }
+      } else {
+        candidates.sort(search.getComparator());
+      }
+
+      int chunkSize = firstChunkSize;
+      long lastPublished = System.nanoTime();
+      for (int i = 0; i < candidates.size(); i++) {
+        if (cancelled) {
+          return;
+        }
+        if (i > 0 && i % Search.REORDER_INTERVAL == 0) {
+          RuleOrder.sort(rules, null);
+        }
+
+        final Item item = candidates.get(i);
+        if (search.isItemInScope(item) && Search.acceptsAll(rules, item)) {
+          matches.add(item);
+        }
+
+        if (matches.size() >= chunkSize ||
+            (i % 1024 == 0 && !matches.isEmpty() && System.nanoTime() - lastPublished > PUBLISH_INTERVAL_NANOS)) {
+          publish(matches, false);
+          matches = new ArrayList<>();
+          chunkSize = CHUNK_SIZE;
+          lastPublished = System.nanoTime();
+        }
+      }
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.SEVERE, "Search failed: " + search.getSearchString(), e);
+    }
+
+    LOGGER.fine(() -> String.format("Checked %d candidates for \"%s\" in %.1f ms", candidates.size(),
+        search.getSearchString(), (System.nanoTime() - start) / 1e6));
+    publish(matches, true);
+  }
+
+  private void publish(List<Item> matches, boolean last) {
+    publisher.execute(() -> {
+      if (cancelled) {
+        return;
+      }
+      search.addResults(matches);
+      if (last) {
+        finished = true;
+      }
+      if (onProgress != null) {
+        onProgress.run();
+      }
+      if (last && onFinished != null) {
+        onFinished.run();
+      }
+    });
+  }
+
+}
@@ -51,6 +51,10 @@ public class FilePathRule extends SearchRule {
         .orElse(false);
   }
 
+  public String getText() {
+    return text;
+  }
+
   @Override
   public String toString() {
     String result = "File Path Rule: \"" + text + "\"";
@@ -61,6 +61,10 @@ public class MissingRule extends SearchRule {
     }).orElse(false);
   }
 
+  public Type getType() {
+    return type;
+  }
+
   @Override
   public String toString() {
     String result = "Missing Rule: " + type;
@@ -25,19 +25,34 @@
 package menagerie.model.search.rules;
 
 import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
 
 /**
  * Abstract class defining a search rule.
+ * <p>
+ * Rules keep statistics of their checks: how many items they checked and accepted, and the time taken by a sample of
+ * the checks. Searches use them to order their rules, and they are exposed for tuning. The statistics are not
+ * synchronized and are only approximate if a rule is checked from several threads at once.
  */
 public abstract class SearchRule implements Comparable<SearchRule> {
 
   /**
-   * Sort order priority of the rule.
+   * One in this many checks is timed, so timing doesn't dominate the cost of cheap rules.
+   */
+  private static final int TIMING_INTERVAL = 16;
+
+  /**
+   * Sort order priority of the rule, used before anything is known about the rule's pass rate or cost.
    */
   int priority = Integer.MAX_VALUE;
 
   private final boolean inverted;
 
+  private long checks = 0;
+  private long accepts = 0;
+  private long timedChecks = 0;
+  private long timedNanos = 0;
+
 
   /**
    * Constructs this rule and initializes the inverted state.
@@ -62,13 +77,63 @@ public abstract class SearchRule implements Comparable<SearchRule> {
    * @return True if the item is accepted by this rule.
    */
   public boolean accept(Item item) {
+    final boolean timed = checks % TIMING_INTERVAL == 0;
+    final long start = timed ? System.nanoTime() : 0;
     boolean result = checkRule(item);
+    if (timed) {
+      timedNanos += System.nanoTime() - start;
+      timedChecks++;
+    }
+
     if (isInverted()) {
       result = !result;
     }
+    checks++;
+    if (result) {
+      accepts++;
+    }
     return result;
   }
 
+  /**
+   * @return Number of items this rule has checked.
+   */
+  public long getCheckCount() {
+    return checks;
+  }
+
+  /**
+   * @return Number of items this rule has accepted.
+   */
+  public long getAcceptCount() {
+    return accepts;
+  }
+
+  /**
+   * @return Fraction of checked items this rule accepted, or NaN if it hasn't checked any.
+   */
+  public double getPassRate() {
+    return checks == 0 ? Double.NaN : (double) accepts / checks;
+  }
+
+  /**
+   * @return Average time of a timed check in nanoseconds, or NaN if no check has been timed.
+   */
+  public double getAverageNanos() {
+    return timedChecks == 0 ? Double.NaN : (double) timedNanos / timedChecks;
+  }
+
+  /**
+   * Estimates the fraction of a Menagerie's items the non-inverted rule accepts, without checking any items. Rules
+   * without a cheap estimate return NaN, and are measured on a sample of items instead.
+   *
+   * @param menagerie Menagerie to estimate for.
+   * @return Estimated fraction of items accepted, or NaN.
+   */
+  public double estimateMatchRate(Menagerie menagerie) {
+    return Double.NaN;
+  }
+
   /**
    * Check if an item aligns with the non-inverted rule.
    *
@@ -53,12 +53,20 @@ public class TagCountRule extends SearchRule {
   @Override
   protected boolean checkRule(Item item) {
     return switch (type) {
-      case EQUAL_TO -> item.getTags().size() == value;
-      case LESS_THAN -> item.getTags().size() < value;
-      case GREATER_THAN -> item.getTags().size() > value;
+      case EQUAL_TO -> item.getTagCount() == value;
+      case LESS_THAN -> item.getTagCount() < value;
+      case GREATER_THAN -> item.getTagCount() > value;
     };
   }
 
+  public Type getType() {
+    return type;
+  }
+
+  public int getValue() {
+    return value;
+  }
+
   @Override
   public String toString() {
     String result = "Tag Count Rule: " + type + " " + value;
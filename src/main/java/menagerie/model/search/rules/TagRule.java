@@ -25,7 +25,9 @@
 package menagerie.model.search.rules;
 
 import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
 import menagerie.model.menagerie.Tag;
+import menagerie.util.IntBitmap;
 
 /**
  * Rule that checks if an item has a tag.
@@ -33,6 +35,10 @@ import menagerie.model.menagerie.Tag;
 public class TagRule extends SearchRule {
 
   private final String tag;
+  /**
+   * IDs of the tag's items when this rule was snapshotted, or null to check the live tag.
+   */
+  private final IntBitmap snapshot;
 
   /**
    * @param tag     Tag to find.
@@ -43,11 +49,41 @@ public class TagRule extends SearchRule {
     priority = 25;
 
     this.tag = tag;
+    this.snapshot = null;
+  }
+
+  private TagRule(String tag, boolean exclude, IntBitmap snapshot) {
+    super(exclude);
+    priority = 25;
+
+    this.tag = tag;
+    this.snapshot = snapshot;
+  }
+
+  /**
+   * Copies this rule with the IDs of the tag's items as they are now. The copy doesn't read the Menagerie or the tag, so
+   * it can be checked off the thread that modifies them. Must be called on that thread.
+   *
+   * @param menagerie Menagerie to look up the tag in.
+   * @return A rule that checks the current items of the tag.
+   */
+  public TagRule snapshot(Menagerie menagerie) {
+    final Tag t = menagerie.getTagByName(tag);
+    return new TagRule(tag, isInverted(), t == null ? new IntBitmap() : t.getItemIds().copy());
   }
 
   @Override
   protected boolean checkRule(Item item) {
-    for (Tag t : item.getTags()) {
+    if (snapshot != null) {
+      return snapshot.contains(item.getId());
+    }
+    final Menagerie menagerie = item.getMenagerie();
+    if (menagerie != null) {
+      final Tag t = menagerie.getTagByName(tag);
+      return t != null && t.getItemIds().contains(item.getId());
+    }
+
+    for (Tag t : item.getTagSnapshot()) {
       if (t.getName().equalsIgnoreCase(tag)) {
         return true;
       }
@@ -55,6 +91,22 @@ public class TagRule extends SearchRule {
     return false;
   }
 
+  @Override
+  public double estimateMatchRate(Menagerie menagerie) {
+    if (menagerie.getItems().isEmpty()) {
+      return Double.NaN;
+    }
+    final Tag t = menagerie.getTagByName(tag);
+    return t == null ? 0 : (double) t.getFrequency() / menagerie.getItems().size();
+  }
+
+  /**
+   * @return Name of the tag to find.
+   */
+  public String getTag() {
+    return tag;
+  }
+
   @Override
   public String toString() {
     String result = "Tag Rule: \"" + tag + "\"";
@@ -58,6 +58,13 @@ public class TitleRule extends SearchRule {
     return Items.get(ItemSearch.class, item).map(itemSearch -> itemSearch.titleContains(item, words)).orElse(false);
   }
 
+  /**
+   * @return The lower case words a title must contain.
+   */
+  public List<String> getWords() {
+    return words;
+  }
+
   @Override
   public String toString() {
     String result = "Group Title Rule: \"" + words + "\"";
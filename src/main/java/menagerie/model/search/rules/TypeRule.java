@@ -66,6 +66,10 @@ public class TypeRule extends SearchRule {
     }).orElse(false);
   }
 
+  public Type getType() {
+    return type;
+  }
+
   @Override
   public String toString() {
     String result = "Type Rule: " + type;
@@ -37,7 +37,7 @@ public class MenagerieSettings extends Settings {
   private static final Logger LOGGER = Logger.getLogger(MenagerieSettings.class.getName());
 
   public GroupSetting importGroup, autoImportGroup, duplicatesGroup, videoGroup, dbGroup,
-      explorerGroup, slideshowGroup, findOnlineGroup;
+      dbWriteBehindGroup, explorerGroup, slideshowGroup, findOnlineGroup;
   public FolderSetting defaultFolder, autoImportFolder, vlcFolder, lastImportFolder;
   public StringSetting userFileTypes, dbUrl, dbUser, dbPass, tagWithOnImport,
       importItemsIntoGroupName, importOrder;
@@ -45,9 +45,10 @@ public class MenagerieSettings extends Settings {
       muteVideo, dbBackup, helpOnStart, windowMaximized, expandItemInfo, recursivelyImport,
       tagParentFolderOnImport, doTagWithOnImport, doImportItemsIntoGroup, renameToHashOnImport,
       duplicatesIncludeGroups, slideshowPreload, duplicatePreload, explorerGroupAscending,
-      cudaDuplicates;
+      cudaDuplicates, dbSnapshot;
   public DoubleSetting duplicatesConfidence, slideshowInterval;
-  public IntSetting gridWidth, windowX, windowY, windowWidth, windowHeight, onlineLoadAhead;
+  public IntSetting gridWidth, windowX, windowY, windowWidth, windowHeight, onlineLoadAhead,
+      dbBurstSize, dbCommitLatency, dbLoadThreads, dbBackgroundQueueLimit;
 
 
   public MenagerieSettings() {
@@ -120,7 +121,22 @@ public class MenagerieSettings extends Settings {
     dbUser = new StringSetting("db-user", "sa").label("Database User").tip("\"sa\" by default");
     dbPass = new StringSetting("db-pass", "").label("Database Pass").tip("Empty by default");
     dbBackup = new BooleanSetting("db-backup", true).label("Backup database on launch");
-    Collections.addAll(dbGroup.getChildren(), dbUrl, dbUser, dbPass, dbBackup);
+    dbSnapshot = new BooleanSetting("db-snapshot", false).label("Fast-start snapshot")
+        .tip("Write a snapshot of the library next to the database on exit and load it on the next start");
+    dbLoadThreads = new IntSetting("db-load-threads", Math.min(4, Runtime.getRuntime().availableProcessors()))
+        .min(1).label("Startup load threads")
+        .tip("Number of database connections used to load the library at startup");
+    dbBackgroundQueueLimit = new IntSetting("db-background-queue-limit", 10000).min(0)
+        .label("Background update queue limit")
+        .tip("Imports and hashing wait while this many background updates are queued. 0 for no limit");
+    dbWriteBehindGroup = new GroupSetting("db-write-behind-group").label("Batch database writes")
+        .tip("Commit queued database updates in batched transactions").toggleable().disable();
+    dbBurstSize = new IntSetting("db-burst-size", 1000).min(1).label("Updates per commit");
+    dbCommitLatency = new IntSetting("db-commit-latency", 100).min(0)
+        .label("Max commit delay (ms)");
+    Collections.addAll(dbWriteBehindGroup.getChildren(), dbBurstSize, dbCommitLatency);
+    Collections.addAll(dbGroup.getChildren(), dbUrl, dbUser, dbPass, dbBackup, dbSnapshot, dbLoadThreads,
+        dbBackgroundQueueLimit, dbWriteBehindGroup);
     getSettings().add(dbGroup);
 
     helpOnStart = new BooleanSetting("help-on-start", true).hide();
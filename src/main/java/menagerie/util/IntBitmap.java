@@ -0,0 +1,565 @@
+package menagerie.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints, laid out like a roaring bitmap.
+ * <p>
+ * Values are split into a 16 bit high key and a 16 bit low part. Each key that has values owns one container: a sorted
+ * array of low parts while it holds at most {@link #ARRAY_MAX} values, and a 65536 bit bitmap once it holds more. Sparse
+ * sets cost two bytes per value, dense sets one bit per value.
+ * <p>
+ * Not thread safe.
+ */
+public class IntBitmap {
+
+  /**
+   * Largest number of values kept in an array container. Past this a bitmap container is smaller.
+   */
+  static final int ARRAY_MAX = 4096;
+
+  private static final char[] NO_KEYS = new char[0];
+  private static final Container[] NO_CONTAINERS = new Container[0];
+
+  private char[] keys = NO_KEYS;
+  private Container[] containers = NO_CONTAINERS;
+  private int size = 0;
+  private int cardinality = 0;
+
+
+  /**
+   * @return A copy of this set that can be modified independently.
+   */
+  public IntBitmap copy() {
+    final IntBitmap copy = new IntBitmap();
+    copy.keys = Arrays.copyOf(keys, size);
+    copy.containers = new Container[size];
+    for (int i = 0; i < size; i++) {
+      copy.containers[i] = containers[i].copy();
+    }
+    copy.size = size;
+    copy.cardinality = cardinality;
+    return copy;
+  }
+
+  /**
+   * @param min Smallest value, inclusive.
+   * @param max Largest value, inclusive.
+   * @return A new set of the values of this set in the range. Containers entirely inside the range are copied whole.
+   */
+  public IntBitmap range(int min, int max) {
+    final IntBitmap result = new IntBitmap();
+    if (max < 0 || min > max) {
+      return result;
+    }
+    final int from = Math.max(min, 0);
+    for (int i = 0; i < size; i++) {
+      final int high = keys[i] << 16;
+      if (high + 0xFFFF < from) {
+        continue;
+      }
+      if (high > max) {
+        break;
+      }
+      if (high >= from && high + 0xFFFF <= max) {
+        result.appendContainer(keys[i], containers[i].copy());
+      } else {
+        containers[i].forEach(high, value -> {
+          if (value >= from && value <= max) {
+            result.add(value);
+          }
+        });
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param other Set to intersect with.
+   * @return A new set of the values in both this set and the other.
+   */
+  public IntBitmap and(IntBitmap other) {
+    final IntBitmap result = new IntBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        result.appendContainer(keys[i], containers[i].and(other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param other Set of values to leave out.
+   * @return A new set of the values in this set but not in the other.
+   */
+  public IntBitmap andNot(IntBitmap other) {
+    final IntBitmap result = new IntBitmap();
+    int j = 0;
+    for (int i = 0; i < size; i++) {
+      while (j < other.size && other.keys[j] < keys[i]) {
+        j++;
+      }
+      if (j < other.size && other.keys[j] == keys[i]) {
+        result.appendContainer(keys[i], containers[i].andNot(other.containers[j]));
+      } else {
+        result.appendContainer(keys[i], containers[i].copy());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds a value. Adding values in ascending order is the fast path.
+   *
+   * @param value Value to add. Must not be negative.
+   * @return True if the value was not in this set.
+   */
+  public boolean add(int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative value: " + value);
+    }
+
+    final char key = (char) (value >>> 16);
+    int index = indexOfKey(key);
+    if (index < 0) {
+      index = -(index + 1);
+      insertContainer(index, key, new ArrayContainer());
+    }
+
+    Container container = containers[index];
+    if (!container.add((char) value)) {
+      return false;
+    }
+    if (container instanceof ArrayContainer array && array.size > ARRAY_MAX) {
+      containers[index] = array.toBitmap();
+    }
+    cardinality++;
+    return true;
+  }
+
+  /**
+   * @param value Value to remove.
+   * @return True if the value was in this set.
+   */
+  public boolean remove(int value) {
+    if (value < 0) {
+      return false;
+    }
+
+    final int index = indexOfKey((char) (value >>> 16));
+    if (index < 0) {
+      return false;
+    }
+
+    Container container = containers[index];
+    if (!container.remove((char) value)) {
+      return false;
+    }
+    if (container.cardinality() == 0) {
+      removeContainer(index);
+    } else if (container instanceof BitmapContainer bitmap && bitmap.cardinality <= ARRAY_MAX) {
+      containers[index] = bitmap.toArrayContainer();
+    }
+    cardinality--;
+    return true;
+  }
+
+  /**
+   * Adds every value of another set.
+   *
+   * @param other Values to add.
+   */
+  public void addAll(IntBitmap other) {
+    other.forEach(this::add);
+  }
+
+  /**
+   * @param value Value to find.
+   * @return True if the value is in this set.
+   */
+  public boolean contains(int value) {
+    if (value < 0) {
+      return false;
+    }
+
+    final int index = indexOfKey((char) (value >>> 16));
+    return index >= 0 && containers[index].contains((char) value);
+  }
+
+  /**
+   * @return Number of values in this set.
+   */
+  public int getCardinality() {
+    return cardinality;
+  }
+
+  /**
+   * @return True if this set has no values.
+   */
+  public boolean isEmpty() {
+    return cardinality == 0;
+  }
+
+  /**
+   * Calls the action with every value, in ascending order.
+   *
+   * @param action Action to call.
+   */
+  public void forEach(IntConsumer action) {
+    for (int i = 0; i < size; i++) {
+      containers[i].forEach(keys[i] << 16, action);
+    }
+  }
+
+  /**
+   * @return All values in ascending order.
+   */
+  public int[] toArray() {
+    final int[] values = new int[cardinality];
+    int offset = 0;
+    for (int i = 0; i < size; i++) {
+      offset = containers[i].toArray(keys[i] << 16, values, offset);
+    }
+    return values;
+  }
+
+  /**
+   * Releases capacity that array containers grew into but don't use. Worth calling after a bulk build.
+   */
+  public void trim() {
+    if (keys.length != size) {
+      keys = Arrays.copyOf(keys, size);
+      containers = Arrays.copyOf(containers, size);
+    }
+    for (int i = 0; i < size; i++) {
+      if (containers[i] instanceof ArrayContainer array) {
+        array.trim();
+      }
+    }
+  }
+
+  /**
+   * @return Estimate of the heap used by this set, in bytes.
+   */
+  public long getSizeInBytes() {
+    long bytes = 16 + 8 + 16 + 2L * keys.length + 16 + 4L * containers.length;
+    for (int i = 0; i < size; i++) {
+      bytes += containers[i].sizeInBytes();
+    }
+    return bytes;
+  }
+
+  private int indexOfKey(char key) {
+    // Values usually arrive in ascending order, so check the last container before searching
+    if (size > 0 && keys[size - 1] == key) {
+      return size - 1;
+    }
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  private void insertContainer(int index, char key, Container container) {
+    if (size == keys.length) {
+      final int capacity = Math.max(4, size * 2);
+      keys = Arrays.copyOf(keys, capacity);
+      containers = Arrays.copyOf(containers, capacity);
+    }
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(containers, index, containers, index + 1, size - index);
+    keys[index] = key;
+    containers[index] = container;
+    size++;
+  }
+
+  private void appendContainer(char key, Container container) {
+    if (container.cardinality() == 0) {
+      return;
+    }
+    insertContainer(size, key, container);
+    cardinality += container.cardinality();
+  }
+
+  private void removeContainer(int index) {
+    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+    size--;
+    containers[size] = null;
+  }
+
+  @Override
+  public String toString() {
+    return "IntBitmap (" + cardinality + " values, " + size + " containers)";
+  }
+
+  /**
+   * Values sharing one high key, stored by their low 16 bits.
+   */
+  private abstract static class Container {
+
+    abstract boolean add(char low);
+
+    abstract boolean remove(char low);
+
+    abstract boolean contains(char low);
+
+    abstract int cardinality();
+
+    abstract void forEach(int high, IntConsumer action);
+
+    abstract int toArray(int high, int[] out, int offset);
+
+    abstract long sizeInBytes();
+
+    abstract Container copy();
+
+    Container and(Container other) {
+      if (this instanceof ArrayContainer array) {
+        return array.filter(other, true);
+      } else if (other instanceof ArrayContainer array) {
+        return array.filter(this, true);
+      }
+      return ((BitmapContainer) this).combine((BitmapContainer) other, false);
+    }
+
+    Container andNot(Container other) {
+      if (this instanceof ArrayContainer array) {
+        return array.filter(other, false);
+      }
+
+      final BitmapContainer bitmap = (BitmapContainer) this;
+      if (other instanceof BitmapContainer otherBitmap) {
+        return bitmap.combine(otherBitmap, true);
+      }
+      final BitmapContainer result = bitmap.copy();
+      other.forEach(0, value -> result.remove((char) value));
+      return result.shrink();
+    }
+
+  }
+
+  /**
+   * Sorted array of low parts, for containers with at most {@link #ARRAY_MAX} values.
+   */
+  private static final class ArrayContainer extends Container {
+
+    private char[] values = new char[4];
+    private int size = 0;
+
+    @Override
+    boolean add(char low) {
+      int index;
+      if (size == 0 || values[size - 1] < low) {
+        index = size;
+      } else {
+        index = Arrays.binarySearch(values, 0, size, low);
+        if (index >= 0) {
+          return false;
+        }
+        index = -(index + 1);
+      }
+
+      if (size == values.length) {
+        values = Arrays.copyOf(values, Math.min(Math.max(4, size * 2), ARRAY_MAX + 1));
+      }
+      System.arraycopy(values, index, values, index + 1, size - index);
+      values[index] = low;
+      size++;
+      return true;
+    }
+
+    @Override
+    boolean remove(char low) {
+      final int index = Arrays.binarySearch(values, 0, size, low);
+      if (index < 0) {
+        return false;
+      }
+      System.arraycopy(values, index + 1, values, index, size - index - 1);
+      size--;
+      return true;
+    }
+
+    @Override
+    boolean contains(char low) {
+      return Arrays.binarySearch(values, 0, size, low) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+      return size;
+    }
+
+    @Override
+    void forEach(int high, IntConsumer action) {
+      for (int i = 0; i < size; i++) {
+        action.accept(high | values[i]);
+      }
+    }
+
+    @Override
+    int toArray(int high, int[] out, int offset) {
+      for (int i = 0; i < size; i++) {
+        out[offset++] = high | values[i];
+      }
+      return offset;
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 16 + 4 + 16 + 2L * values.length;
+    }
+
+    @Override
+    ArrayContainer copy() {
+      final ArrayContainer copy = new ArrayContainer();
+      copy.values = Arrays.copyOf(values, Math.max(size, 1));
+      copy.size = size;
+      return copy;
+    }
+
+    /**
+     * @param other Container to check values against.
+     * @param keep  Whether to keep the values that are in the other container, or the ones that aren't.
+     * @return A new container with the kept values.
+     */
+    private ArrayContainer filter(Container other, boolean keep) {
+      final ArrayContainer result = new ArrayContainer();
+      result.values = new char[Math.max(size, 1)];
+      for (int i = 0; i < size; i++) {
+        if (other.contains(values[i]) == keep) {
+          result.values[result.size++] = values[i];
+        }
+      }
+      return result;
+    }
+
+    private void trim() {
+      if (values.length != size) {
+        values = Arrays.copyOf(values, Math.max(size, 1));
+      }
+    }
+
+    private BitmapContainer toBitmap() {
+      final BitmapContainer bitmap = new BitmapContainer();
+      for (int i = 0; i < size; i++) {
+        bitmap.add(values[i]);
+      }
+      return bitmap;
+    }
+
+  }
+
+  /**
+   * One bit per possible low part, for containers with more than {@link #ARRAY_MAX} values.
+   */
+  private static final class BitmapContainer extends Container {
+
+    private final long[] words = new long[1 << 10];
+    private int cardinality = 0;
+
+    @Override
+    boolean add(char low) {
+      final long before = words[low >>> 6];
+      final long after = before | (1L << low);
+      words[low >>> 6] = after;
+      if (before == after) {
+        return false;
+      }
+      cardinality++;
+      return true;
+    }
+
+    @Override
+    boolean remove(char low) {
+      final long before = words[low >>> 6];
+      final long after = before & ~(1L << low);
+      words[low >>> 6] = after;
+      if (before == after) {
+        return false;
+      }
+      cardinality--;
+      return true;
+    }
+
+    @Override
+    boolean contains(char low) {
+      return (words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    void forEach(int high, IntConsumer action) {
+      for (int w = 0; w < words.length; w++) {
+        long word = words[w];
+        while (word != 0) {
+          action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    int toArray(int high, int[] out, int offset) {
+      for (int w = 0; w < words.length; w++) {
+        long word = words[w];
+        while (word != 0) {
+          out[offset++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+        }
+      }
+      return offset;
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 16 + 4 + 16 + 8L * words.length;
+    }
+
+    @Override
+    BitmapContainer copy() {
+      final BitmapContainer copy = new BitmapContainer();
+      System.arraycopy(words, 0, copy.words, 0, words.length);
+      copy.cardinality = cardinality;
+      return copy;
+    }
+
+    /**
+     * @param other  Container to combine with.
+     * @param andNot Leave out the other container's values instead of keeping only them.
+     * @return A new container with the combined values, converted to an array container if small enough.
+     */
+    private Container combine(BitmapContainer other, boolean andNot) {
+      final BitmapContainer result = new BitmapContainer();
+      for (int w = 0; w < words.length; w++) {
+        final long word = andNot ? words[w] & ~other.words[w] : words[w] & other.words[w];
+        result.words[w] = word;
+        result.cardinality += Long.bitCount(word);
+      }
+      return result.shrink();
+    }
+
+    private Container shrink() {
+      return cardinality <= ARRAY_MAX ? toArrayContainer() : this;
+    }
+
+    private ArrayContainer toArrayContainer() {
+      final ArrayContainer array = new ArrayContainer();
+      array.values = new char[cardinality];
+      forEach(0, value -> array.values[array.size++] = (char) value);
+      return array;
+    }
+
+  }
+
+}
@@ -0,0 +1,234 @@
+package menagerie.util;
+
+import java.util.Arrays;
+
+/**
+ * Index of (key, id) pairs kept sorted by key, then id, in primitive arrays. A range of keys resolves to one contiguous
+ * slice of the index by binary search.
+ * <p>
+ * Pairs added in ascending order are appended. Others are inserted in place, which moves the pairs after them, so a
+ * large unordered batch should be added with {@link #addUnsorted(long, int)} and then sorted once with
+ * {@link #sort()}.
+ * <p>
+ * Not thread safe.
+ */
+public class RangeIndex {
+
+  private long[] keys = new long[16];
+  private int[] ids = new int[16];
+  private int size = 0;
+
+
+  /**
+   * Adds a pair at its sorted position.
+   *
+   * @param key Key to index the ID by.
+   * @param id  ID.
+   */
+  public void add(long key, int id) {
+    final int index = lowerBound(key, id);
+    if (index < size && keys[index] == key && ids[index] == id) {
+      return;
+    }
+    ensureCapacity(size + 1);
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(ids, index, ids, index + 1, size - index);
+    keys[index] = key;
+    ids[index] = id;
+    size++;
+  }
+
+  /**
+   * Appends a pair without keeping the index sorted. {@link #sort()} must be called before the index is used again.
+   *
+   * @param key Key to index the ID by.
+   * @param id  ID.
+   */
+  public void addUnsorted(long key, int id) {
+    ensureCapacity(size + 1);
+    keys[size] = key;
+    ids[size] = id;
+    size++;
+  }
+
+  /**
+   * @param key Key the ID was indexed by.
+   * @param id  ID.
+   * @return True if the pair was in the index.
+   */
+  public boolean remove(long key, int id) {
+    final int index = lowerBound(key, id);
+    if (index == size || keys[index] != key || ids[index] != id) {
+      return false;
+    }
+    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+    System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+    size--;
+    return true;
+  }
+
+  /**
+   * Removes every pair of a set of IDs in one pass.
+   *
+   * @param remove IDs to remove.
+   */
+  public void removeAll(IntBitmap remove) {
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      if (!remove.contains(ids[i])) {
+        keys[kept] = keys[i];
+        ids[kept] = ids[i];
+        kept++;
+      }
+    }
+    size = kept;
+  }
+
+  /**
+   * @return Number of pairs in the index.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param min Smallest key, inclusive.
+   * @param max Largest key, inclusive.
+   * @return Number of pairs with keys in the range.
+   */
+  public int countInRange(long min, long max) {
+    if (min > max) {
+      return 0;
+    }
+    return firstAfter(max) - firstAtLeast(min);
+  }
+
+  /**
+   * @param min Smallest key, inclusive.
+   * @param max Largest key, inclusive.
+   * @return IDs of the pairs with keys in the range.
+   */
+  public IntBitmap idsInRange(long min, long max) {
+    final IntBitmap result = new IntBitmap();
+    if (min > max) {
+      return result;
+    }
+    final int to = firstAfter(max);
+    for (int i = firstAtLeast(min); i < to; i++) {
+      result.add(ids[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Sorts pairs added with {@link #addUnsorted(long, int)}. Returns immediately if they are already sorted.
+   */
+  public void sort() {
+    boolean sorted = true;
+    for (int i = 1; i < size && sorted; i++) {
+      sorted = compare(keys[i - 1], ids[i - 1], keys[i], ids[i]) <= 0;
+    }
+    if (sorted) {
+      return;
+    }
+
+    // Bottom up merge sort on both arrays at once
+    long[] keysIn = keys;
+    int[] idsIn = ids;
+    long[] keysOut = new long[keys.length];
+    int[] idsOut = new int[ids.length];
+    for (int width = 1; width < size; width *= 2) {
+      for (int from = 0; from < size; from += width * 2) {
+        final int mid = Math.min(from + width, size);
+        final int to = Math.min(from + width * 2, size);
+        int a = from;
+        int b = mid;
+        for (int k = from; k < to; k++) {
+          if (b == to || (a < mid && compare(keysIn[a], idsIn[a], keysIn[b], idsIn[b]) <= 0)) {
+            keysOut[k] = keysIn[a];
+            idsOut[k] = idsIn[a++];
+          } else {
+            keysOut[k] = keysIn[b];
+            idsOut[k] = idsIn[b++];
+          }
+        }
+      }
+      final long[] keysSwap = keysIn;
+      keysIn = keysOut;
+      keysOut = keysSwap;
+      final int[] idsSwap = idsIn;
+      idsIn = idsOut;
+      idsOut = idsSwap;
+    }
+    keys = keysIn;
+    ids = idsIn;
+  }
+
+  /**
+   * Releases unused capacity.
+   */
+  public void trim() {
+    keys = Arrays.copyOf(keys, Math.max(size, 16));
+    ids = Arrays.copyOf(ids, Math.max(size, 16));
+  }
+
+  /**
+   * @return Index of the first pair that is not less than the given pair, or the size of the index.
+   */
+  private int lowerBound(long key, int id) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (compare(keys[mid], ids[mid], key, id) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return Index of the first pair with a key not less than the given key, or the size of the index.
+   */
+  private int firstAtLeast(long key) {
+    return key == Long.MIN_VALUE ? 0 : firstAfter(key - 1);
+  }
+
+  /**
+   * @return Index of the first pair with a key greater than the given key, or the size of the index.
+   */
+  private int firstAfter(long key) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (keys[mid] <= key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static int compare(long key1, int id1, long key2, int id2) {
+    final int c = Long.compare(key1, key2);
+    return c != 0 ? c : Integer.compare(id1, id2);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > keys.length) {
+      final int length = Math.max(capacity, keys.length * 2);
+      keys = Arrays.copyOf(keys, length);
+      ids = Arrays.copyOf(ids, length);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RangeIndex{size=" + size + "}";
+  }
+
+}
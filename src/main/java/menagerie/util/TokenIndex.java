@@ -0,0 +1,132 @@
+package menagerie.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inverted index from the whitespace separated, lower case tokens of some texts to the IDs of the texts containing them.
+ * <p>
+ * Tokens are kept sorted, so all tokens starting with a prefix are found by one range of the map. A word without
+ * whitespace is contained in a text exactly when it is contained in one of its tokens, so substring lookups only scan
+ * the distinct tokens, not the texts.
+ * <p>
+ * Not thread safe.
+ */
+public class TokenIndex {
+
+  private final TreeMap<String, IntBitmap> postings = new TreeMap<>();
+  private final IntBitmap ids = new IntBitmap();
+
+
+  /**
+   * @param text Text to split.
+   * @return The lower case tokens of the text, split on whitespace like search words are.
+   */
+  public static List<String> tokenize(String text) {
+    final List<String> tokens = new ArrayList<>();
+    if (text != null) {
+      for (String token : text.toLowerCase().split("\\s+")) {
+        if (!token.isEmpty()) {
+          tokens.add(token);
+        }
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * @param id   ID of the text.
+   * @param text Text to index.
+   */
+  public void add(int id, String text) {
+    ids.add(id);
+    for (String token : tokenize(text)) {
+      postings.computeIfAbsent(token, k -> new IntBitmap()).add(id);
+    }
+  }
+
+  /**
+   * @param id   ID of the text.
+   * @param text Text the ID was indexed with.
+   */
+  public void remove(int id, String text) {
+    ids.remove(id);
+    for (String token : tokenize(text)) {
+      final IntBitmap posting = postings.get(token);
+      if (posting != null && posting.remove(id) && posting.isEmpty()) {
+        postings.remove(token);
+      }
+    }
+  }
+
+  /**
+   * @param prefix Lower case prefix.
+   * @return New set of the IDs of the texts with a token starting with the prefix.
+   */
+  public IntBitmap findPrefix(String prefix) {
+    final IntBitmap result = new IntBitmap();
+    for (Map.Entry<String, IntBitmap> entry : postings.tailMap(prefix, true).entrySet()) {
+      if (!entry.getKey().startsWith(prefix)) {
+        break;
+      }
+      result.addAll(entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * @param word Lower case word without whitespace.
+   * @return New set of the IDs of the texts that contain the word. Tokens starting with the word are found by their
+   * prefix, the others are scanned.
+   */
+  public IntBitmap findContaining(String word) {
+    if (word.isEmpty()) {
+      return ids.copy();
+    }
+    final IntBitmap result = findPrefix(word);
+    for (Map.Entry<String, IntBitmap> entry : postings.entrySet()) {
+      if (entry.getKey().length() > word.length() && !entry.getKey().startsWith(word) &&
+          entry.getKey().contains(word)) {
+        result.addAll(entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param words Lower case words without whitespace.
+   * @return New set of the IDs of the texts that contain every word, intersected smallest first.
+   */
+  public IntBitmap findContainingAll(List<String> words) {
+    final List<IntBitmap> lists = new ArrayList<>();
+    for (String word : words) {
+      lists.add(findContaining(word));
+    }
+    if (lists.isEmpty()) {
+      return ids.copy();
+    }
+    lists.sort(Comparator.comparingInt(IntBitmap::getCardinality));
+
+    IntBitmap result = lists.get(0);
+    for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+      result = result.and(lists.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * @return Number of distinct tokens in the index.
+   */
+  public int size() {
+    return postings.size();
+  }
+
+  @Override
+  public String toString() {
+    return "TokenIndex{" + postings.size() + " tokens, " + ids.getCardinality() + " texts}";
+  }
+
+}
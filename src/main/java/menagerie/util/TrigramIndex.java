@@ -0,0 +1,156 @@
+package menagerie.util;
+
+import java.util.Arrays;
+
+/**
+ * Inverted index from every three character substring of some texts to the IDs of the texts containing it. A text that
+ * contains a string contains all of its trigrams, so intersecting their posting lists finds every text that may contain
+ * the string. Candidates still have to be checked, since the trigrams can be spread out over the text.
+ * <p>
+ * Trigrams are case sensitive and packed into longs, which are kept in an open addressing table.
+ * <p>
+ * Not thread safe.
+ */
+public class TrigramIndex {
+
+  /**
+   * Number of characters in an indexed substring.
+   */
+  public static final int GRAM_LENGTH = 3;
+
+  private static final long EMPTY = -1;
+
+  private long[] grams = new long[1024];
+  private IntBitmap[] postings = new IntBitmap[1024];
+  private int size = 0;
+
+  public TrigramIndex() {
+    Arrays.fill(grams, EMPTY);
+  }
+
+  /**
+   * @param id   ID of the text.
+   * @param text Text to index.
+   */
+  public void add(int id, String text) {
+    for (long gram : getGrams(text)) {
+      IntBitmap posting = get(gram);
+      if (posting == null) {
+        posting = new IntBitmap();
+        put(gram, posting);
+      }
+      posting.add(id);
+    }
+  }
+
+  /**
+   * @param id   ID of the text.
+   * @param text Text the ID was indexed with.
+   */
+  public void remove(int id, String text) {
+    for (long gram : getGrams(text)) {
+      final IntBitmap posting = get(gram);
+      if (posting != null) {
+        posting.remove(id);
+      }
+    }
+  }
+
+  /**
+   * Intersects the posting lists of every trigram of a string, smallest first.
+   *
+   * @param text String to find.
+   * @return IDs of the texts that contain every trigram of the string, or null if the string is shorter than a trigram.
+   * May be a posting list of the index, so it must not be modified.
+   */
+  public IntBitmap find(String text) {
+    final long[] textGrams = getGrams(text);
+    if (textGrams.length == 0) {
+      return null;
+    }
+
+    final IntBitmap[] lists = new IntBitmap[textGrams.length];
+    for (int i = 0; i < textGrams.length; i++) {
+      lists[i] = get(textGrams[i]);
+      if (lists[i] == null || lists[i].isEmpty()) {
+        return new IntBitmap();
+      }
+    }
+    Arrays.sort(lists, (a, b) -> Integer.compare(a.getCardinality(), b.getCardinality()));
+
+    IntBitmap result = lists[0];
+    for (int i = 1; i < lists.length && !result.isEmpty(); i++) {
+      result = result.and(lists[i]);
+    }
+    return result;
+  }
+
+  /**
+   * @return Number of distinct trigrams in the index.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return The distinct trigrams of the text, packed into longs.
+   */
+  private static long[] getGrams(String text) {
+    if (text == null || text.length() < GRAM_LENGTH) {
+      return new long[0];
+    }
+    final long[] result = new long[text.length() - GRAM_LENGTH + 1];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+    Arrays.sort(result);
+
+    int distinct = 0;
+    for (int i = 0; i < result.length; i++) {
+      if (i == 0 || result[i] != result[i - 1]) {
+        result[distinct++] = result[i];
+      }
+    }
+    return Arrays.copyOf(result, distinct);
+  }
+
+  private int slot(long gram) {
+    final int mask = grams.length - 1;
+    int i = Long.hashCode(gram * 0x9E3779B97F4A7C15L) & mask;
+    while (grams[i] != EMPTY && grams[i] != gram) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private IntBitmap get(long gram) {
+    return postings[slot(gram)];
+  }
+
+  private void put(long gram, IntBitmap posting) {
+    if ((size + 1) * 2 > grams.length) {
+      final long[] oldGrams = grams;
+      final IntBitmap[] oldPostings = postings;
+      grams = new long[oldGrams.length * 2];
+      postings = new IntBitmap[oldGrams.length * 2];
+      Arrays.fill(grams, EMPTY);
+      for (int i = 0; i < oldGrams.length; i++) {
+        if (oldGrams[i] != EMPTY) {
+          final int j = slot(oldGrams[i]);
+          grams[j] = oldGrams[i];
+          postings[j] = oldPostings[i];
+        }
+      }
+    }
+    final int i = slot(gram);
+    grams[i] = gram;
+    postings[i] = posting;
+    size++;
+  }
+
+  @Override
+  public String toString() {
+    return "TrigramIndex{size=" + size + "}";
+  }
+
+}
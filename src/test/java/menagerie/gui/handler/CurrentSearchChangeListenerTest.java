@@ -0,0 +1,57 @@
+package menagerie.gui.handler;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import menagerie.gui.UITest;
+import menagerie.gui.grid.ItemGridView;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CurrentSearchChangeListenerTest extends UITest {
+
+  private ObservableList<Item> results;
+  private ObservableList<Item> gridItems;
+
+  @BeforeEach
+  void setUp() {
+    results = FXCollections.observableArrayList();
+    for (int id : new int[]{3, 1, 4, 5, 2}) {
+      results.add(new MediaItem(null, id, id, null));
+    }
+    gridItems = FXCollections.observableArrayList(results);
+
+    ItemGridView itemGridView = mock(ItemGridView.class);
+    when(itemGridView.getItems()).thenReturn(gridItems);
+    when(itemGridView.getSelected()).thenReturn(FXCollections.observableArrayList());
+    results.addListener(new CurrentSearchChangeListener(itemGridView, () -> null, () -> {
+    }));
+  }
+
+  @Test
+  void permutationReordersGrid() {
+    FXCollections.sort(results, Comparator.comparingInt(Item::getId));
+
+    assertEquals(List.of(1, 2, 3, 4, 5), gridItems.stream().map(Item::getId).toList());
+    assertEquals(results, gridItems);
+  }
+
+  @Test
+  void changesAfterPermutationStayAligned() {
+    FXCollections.sort(results, Comparator.comparingInt(Item::getId).reversed());
+    results.remove(1);
+    results.add(2, new MediaItem(null, 6, 6, null));
+
+    assertEquals(List.of(5, 3, 6, 2, 1), gridItems.stream().map(Item::getId).toList());
+    assertEquals(results, gridItems);
+  }
+
+}
@@ -0,0 +1,71 @@
+package menagerie.model.menagerie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdAllocatorTests {
+
+  @Test
+  void writesMarkOncePerBlock() {
+    List<Integer> marks = new ArrayList<>();
+    IdAllocator allocator = new IdAllocator("test", 5, 1, marks::add);
+
+    assertEquals(5, allocator.next());
+    assertEquals(List.of(IdAllocator.BLOCK_SIZE), marks);
+    for (int i = 6; i < IdAllocator.BLOCK_SIZE; i++) {
+      assertEquals(i, allocator.next());
+    }
+    assertEquals(1, marks.size());
+
+    assertEquals(IdAllocator.BLOCK_SIZE, allocator.next());
+    assertEquals(List.of(IdAllocator.BLOCK_SIZE, 2 * IdAllocator.BLOCK_SIZE), marks);
+  }
+
+  @Test
+  void startsBelowStoredMark() {
+    List<Integer> marks = new ArrayList<>();
+    IdAllocator allocator = new IdAllocator("test", 10, 20, marks::add);
+
+    assertEquals(10, allocator.next());
+    assertTrue(marks.isEmpty());
+  }
+
+  @Test
+  void concurrentIdsAreUniqueAndCovered() throws InterruptedException {
+    final int threads = 4;
+    final int perThread = 5 * IdAllocator.BLOCK_SIZE;
+    AtomicInteger mark = new AtomicInteger(1);
+    IdAllocator allocator = new IdAllocator("test", 1, 1, mark::set);
+    Set<Integer> ids = ConcurrentHashMap.newKeySet();
+    AtomicInteger uncovered = new AtomicInteger();
+
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      Thread worker = new Thread(() -> {
+        for (int i = 0; i < perThread; i++) {
+          int id = allocator.next();
+          if (id >= mark.get()) {
+            uncovered.incrementAndGet();
+          }
+          ids.add(id);
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    assertEquals(threads * perThread, ids.size());
+    assertEquals(0, uncovered.get());
+  }
+
+}
@@ -0,0 +1,99 @@
+package menagerie.model.menagerie;
+
+import menagerie.util.IntBitmap;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemColumnsTests {
+
+  private static int[] expected(List<Item> items, Predicate<Item> predicate) {
+    return items.stream().filter(predicate).mapToInt(Item::getId).sorted().toArray();
+  }
+
+  @Test
+  void loadedRows() {
+    List<Item> items = new ArrayList<>();
+    items.add(new MediaItem(null, 3, 30, new File("c.mp4")));
+    items.add(new MediaItem(null, 1, 10, 0, true, null, new File("a.png"), "md5", null));
+    items.add(new GroupItem(null, 2, 20, "group"));
+    ItemColumns columns = new ItemColumns(items);
+
+    assertEquals(3, columns.size());
+    assertArrayEquals(new int[]{1, 3}, columns.select(ItemColumns.typeIs(ItemColumns.MEDIA)).toArray());
+    assertArrayEquals(new int[]{1}, columns.select(ItemColumns.typeIs(ItemColumns.IMAGE)).toArray());
+    assertArrayEquals(new int[]{3}, columns.select(ItemColumns.typeIs(ItemColumns.VIDEO)).toArray());
+    assertArrayEquals(new int[]{2}, columns.select(ItemColumns.typeIs(ItemColumns.GROUP)).toArray());
+    assertArrayEquals(new int[]{3}, columns.select(ItemColumns.flagged(ItemColumns.MISSING_MD5)).toArray());
+    assertArrayEquals(new int[]{1}, columns.select(ItemColumns.flagged(ItemColumns.NO_SIMILAR)).toArray());
+    assertArrayEquals(new int[]{2, 3}, columns.select(ItemColumns.addedBetween(15, 35)).toArray());
+    assertArrayEquals(new int[]{1, 2}, columns.select(ItemColumns.idBetween(0, 2)).toArray());
+    assertArrayEquals(new int[]{2}, columns.select(ItemColumns.Filter.all(
+        List.of(ItemColumns.idBetween(2, 3), ItemColumns.flagged(ItemColumns.MISSING_MD5).negate()))).toArray());
+  }
+
+  @Test
+  void updatesAndRemovals() {
+    List<Item> items = new ArrayList<>();
+    for (int id = 1; id <= 100; id++) {
+      items.add(new MediaItem(null, id, id, null));
+    }
+    ItemColumns columns = new ItemColumns(items);
+    Tag tag = new Tag(null, 1, "tag", null);
+
+    items.get(4).addTag(tag);
+    columns.update(items.get(4));
+    assertArrayEquals(new int[]{5}, columns.select(ItemColumns.tagCountBetween(1, 1)).toArray());
+
+    for (int id = 1; id <= 40; id++) {
+      columns.remove(id);
+    }
+    assertEquals(60, columns.size());
+    assertTrue(columns.select(ItemColumns.tagCountBetween(1, 1)).isEmpty());
+    assertArrayEquals(new int[]{41, 42}, columns.select(ItemColumns.idBetween(0, 42)).toArray());
+
+    columns.put(new MediaItem(null, 7, 7, null));
+    columns.put(new MediaItem(null, 200, 200, null));
+    columns.update(new MediaItem(null, 300, 300, null));
+    assertEquals(62, columns.size());
+    assertArrayEquals(new int[]{7, 41}, columns.select(ItemColumns.idBetween(0, 41)).toArray());
+    assertArrayEquals(new int[]{100, 200}, columns.select(ItemColumns.addedBetween(100, 1000)).toArray());
+
+    IntBitmap candidates = new IntBitmap();
+    for (int id : new int[]{3, 7, 50, 51, 250}) {
+      candidates.add(id);
+    }
+    assertArrayEquals(new int[]{7, 50, 51}, columns.select(ItemColumns.idBetween(5, 60), candidates).toArray());
+  }
+
+  @Test
+  void parallelSelectMatchesItems() {
+    Random random = new Random(9);
+    Tag tag = new Tag(null, 1, "tag", null);
+    List<Item> items = new ArrayList<>();
+    for (int id = 1; id <= 4 * ItemColumns.PARALLEL_THRESHOLD; id++) {
+      Item item = random.nextInt(10) == 0 ? new GroupItem(null, id, random.nextInt(1000), "group") :
+          new MediaItem(null, id, random.nextInt(1000), new File(random.nextBoolean() ? "a.jpg" : "b.webm"));
+      if (random.nextBoolean()) {
+        item.addTag(tag);
+      }
+      items.add(item);
+    }
+    Collections.shuffle(items, random);
+    ItemColumns columns = new ItemColumns(items);
+
+    ItemColumns.Filter filter = ItemColumns.Filter.all(List.of(ItemColumns.addedBetween(100, 800),
+        ItemColumns.tagCountBetween(1, 1), ItemColumns.typeIs(ItemColumns.VIDEO | ItemColumns.GROUP)));
+    assertArrayEquals(expected(items, item -> item.getDateAdded() >= 100 && item.getDateAdded() <= 800 &&
+            item.getTagCount() == 1 && (item instanceof GroupItem || ((MediaItem) item).isVideo())),
+        columns.select(filter).toArray());
+  }
+
+}
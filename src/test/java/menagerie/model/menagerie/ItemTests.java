@@ -27,6 +27,8 @@ package menagerie.model.menagerie;
 import menagerie.gui.Thumbnail;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ItemTests {
@@ -95,6 +97,25 @@ class ItemTests {
     assertFalse(item.getTags().contains(t1));
   }
 
+  @Test
+  void bulkTagEditing() {
+    Item i1 = new MediaItem(null, 1, 1, null);
+    Item i2 = new MediaItem(null, 2, 1, null);
+    Tag t1 = new Tag(null, 1, "tag1", null);
+    i2.addTag(t1);
+
+    assertEquals(List.of(i1), Item.addTagToAll(t1, List.of(i1, i2)));
+    assertTrue(i1.hasTag(t1));
+    assertTrue(i2.hasTag(t1));
+    assertEquals(2, t1.getFrequency());
+
+    assertEquals(List.of(i1, i2), Item.removeTagFromAll(t1, List.of(i1, i2)));
+    assertFalse(i1.hasTag(t1));
+    assertFalse(i2.hasTag(t1));
+    assertEquals(0, t1.getFrequency());
+    assertTrue(Item.removeTagFromAll(t1, List.of(i1, i2)).isEmpty());
+  }
+
   @Test
   void hash() {
     Item item1 = new Item(null, 31, 1) {
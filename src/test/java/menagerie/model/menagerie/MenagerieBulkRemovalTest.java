@@ -0,0 +1,130 @@
+package menagerie.model.menagerie;
+
+import menagerie.gui.UITest;
+import menagerie.model.menagerie.db.DatabaseManager;
+import menagerie.model.search.Search;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.testfx.util.WaitForAsyncUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class MenagerieBulkRemovalTest extends UITest {
+
+  private DatabaseManager database;
+  private Menagerie menagerie;
+  private Search search;
+  private File dir;
+
+  @BeforeEach
+  void setUp() throws SQLException, IOException {
+    dir = Files.createTempDirectory("bulk-removal").toFile();
+    dir.deleteOnExit();
+
+    database = mock(DatabaseManager.class);
+    doAnswer(invocation -> {
+      Menagerie m = invocation.getArgument(0);
+      GroupItem group = new GroupItem(m, 10, 100, "group");
+      MediaItem first = new MediaItem(m, 11, 101, 0, false, group, createFile("first"), null, null);
+      MediaItem second = new MediaItem(m, 12, 102, 1, false, group, createFile("second"), null, null);
+      group.getElements().addAll(List.of(first, second));
+      MediaItem loose = new MediaItem(m, 13, 103, createFile("loose"));
+      // Removes the loose item while it is being removed itself
+      MediaItem chained = new MediaItem(m, 14, 104, createFile("chained")) {
+        @Override
+        protected boolean forget() {
+          if (!super.forget()) {
+            return false;
+          }
+          getMenagerie().forgetItems(List.of(loose));
+          return true;
+        }
+      };
+      m.getItems().addAll(List.of(group, first, second, loose, chained));
+      return null;
+    }).when(database).loadIntoMenagerie(any());
+
+    menagerie = new Menagerie(database);
+    search = mock(Search.class);
+    menagerie.registerSearch(search);
+  }
+
+  @Test
+  void forgetItemsRemovesGroupElements() {
+    final GroupItem group = (GroupItem) menagerie.getItemByID(10);
+    final List<MediaItem> elements = List.copyOf(group.getElements());
+
+    menagerie.forgetItems(List.of(group, menagerie.getItemByID(13)));
+
+    assertRemoved(group, elements.get(0), elements.get(1));
+    assertTrue(elements.get(0).getFile().exists());
+    assertEquals(List.of(menagerie.getItemByID(14)), menagerie.getItems());
+    assertBulkRemoved(10, 11, 12, 13);
+  }
+
+  @Test
+  void deleteItemsRemovesGroupElements() {
+    final GroupItem group = (GroupItem) menagerie.getItemByID(10);
+    final List<MediaItem> elements = List.copyOf(group.getElements());
+
+    menagerie.deleteItems(List.of(group));
+
+    assertRemoved(group, elements.get(0), elements.get(1));
+    assertFalse(elements.get(0).getFile().exists());
+    assertFalse(elements.get(1).getFile().exists());
+    assertEquals(2, menagerie.getItems().size());
+    assertBulkRemoved(10, 11, 12);
+  }
+
+  @Test
+  void nestedRemovalJoinsOuterRemoval() {
+    final Item loose = menagerie.getItemByID(13);
+    final Item chained = menagerie.getItemByID(14);
+
+    menagerie.forgetItems(List.of(chained));
+
+    assertRemoved(chained, loose);
+    assertEquals(3, menagerie.getItems().size());
+    assertBulkRemoved(13, 14);
+  }
+
+  private void assertRemoved(Item... items) {
+    for (Item item : items) {
+      assertTrue(item.isInvalidated());
+      assertNull(menagerie.getItemByID(item.getId()));
+      assertFalse(menagerie.getItems().contains(item));
+    }
+  }
+
+  private void assertBulkRemoved(int... ids) {
+    final ArgumentCaptor<int[]> removed = ArgumentCaptor.forClass(int[].class);
+    verify(database, times(1)).removeItemsAsync(removed.capture());
+    verify(database, never()).removeItemAsync(anyInt());
+    final int[] sorted = removed.getValue().clone();
+    Arrays.sort(sorted);
+    assertArrayEquals(ids, sorted);
+
+    WaitForAsyncUtils.waitForFxEvents();
+    verify(search, times(1)).refreshSearch(anyList());
+  }
+
+  private File createFile(String name) throws IOException {
+    final File file = new File(dir, name + ".png");
+    Files.createFile(file.toPath());
+    file.deleteOnExit();
+    return file;
+  }
+
+}
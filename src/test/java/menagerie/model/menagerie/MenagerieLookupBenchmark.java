@@ -0,0 +1,102 @@
+package menagerie.model.menagerie;
+
+import menagerie.model.menagerie.db.DatabaseManager;
+import menagerie.model.menagerie.db.DatabaseVersionUpdater;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Microbenchmark of Menagerie id and tag name lookups at 1M items and 100k tags, compared with the linear scans the
+ * lookups used to be. Not a unit test; run the main method with a large heap (-Xmx4g).
+ */
+public class MenagerieLookupBenchmark {
+
+  private static final int ITEMS = 1_000_000;
+  private static final int TAGS = 100_000;
+  private static final int LOOKUPS = 1_000_000;
+  private static final int SCAN_LOOKUPS = 200;
+
+  public static void main(String[] args) throws SQLException {
+    Connection connection = DriverManager.getConnection("jdbc:h2:mem:lookup-benchmark", "sa", "");
+    DatabaseVersionUpdater.updateDatabase(connection);
+    DatabaseManager database = new DatabaseManager(connection) {
+      @Override
+      public void loadIntoMenagerie(Menagerie menagerie) {
+        for (int id = 1; id <= TAGS; id++) {
+          menagerie.getTags().add(new Tag(menagerie, id, "tag_" + id, null));
+        }
+        for (int id = 1; id <= ITEMS; id++) {
+          Item item = new MediaItem(menagerie, id, id, null);
+          item.addLoadedTags(List.of(menagerie.getTags().get(id % TAGS)));
+          menagerie.getItems().add(item);
+        }
+      }
+    };
+    Menagerie menagerie = new Menagerie(database);
+
+    final Random random = new Random(42);
+    final int[] itemIds = random.ints(LOOKUPS, 1, ITEMS + 1).toArray();
+    final int[] tagIds = random.ints(LOOKUPS, 1, TAGS + 1).toArray();
+    final String[] tagNames = new String[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      tagNames[i] = "TAG_" + tagIds[i];
+    }
+
+    for (int round = 0; round < 3; round++) {
+      System.out.println("Round " + (round + 1));
+      report("getItemByID", LOOKUPS, i -> menagerie.getItemByID(itemIds[i]));
+      report("getTagByID", LOOKUPS, i -> menagerie.getTagByID(tagIds[i]));
+      report("getTagByName", LOOKUPS, i -> menagerie.getTagByName(tagNames[i]));
+      report("linear item scan", SCAN_LOOKUPS, i -> scanItems(menagerie.getItems(), itemIds[i]));
+      report("linear tag scan", SCAN_LOOKUPS, i -> scanTags(menagerie.getTags(), tagIds[i]));
+      report("linear tag name scan", SCAN_LOOKUPS, i -> scanByName(menagerie.getTags(), tagNames[i]));
+    }
+
+    connection.close();
+  }
+
+  private static void report(String name, int lookups, IntFunction<Object> lookup) {
+    int found = 0;
+    final long start = System.nanoTime();
+    for (int i = 0; i < lookups; i++) {
+      if (lookup.apply(i) != null) {
+        found++;
+      }
+    }
+    final double nanos = (System.nanoTime() - start) / (double) lookups;
+    System.out.printf("  %-22s %12.1f ns/lookup (%d/%d found)%n", name, nanos, found, lookups);
+  }
+
+  private static Item scanItems(List<Item> items, int id) {
+    for (Item item : items) {
+      if (item.getId() == id) {
+        return item;
+      }
+    }
+    return null;
+  }
+
+  private static Tag scanTags(List<Tag> tags, int id) {
+    for (Tag t : tags) {
+      if (t.getId() == id) {
+        return t;
+      }
+    }
+    return null;
+  }
+
+  private static Tag scanByName(List<Tag> tags, String name) {
+    for (Tag t : tags) {
+      if (t.getName().equalsIgnoreCase(name)) {
+        return t;
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,81 @@
+package menagerie.model.menagerie;
+
+import menagerie.model.menagerie.db.DatabaseManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class MenagerieTests {
+
+  private Menagerie menagerie;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    DatabaseManager database = mock(DatabaseManager.class);
+    doAnswer(invocation -> {
+      Menagerie m = invocation.getArgument(0);
+      Tag tag = new Tag(m, 1, "tag", null);
+      m.getTags().add(tag);
+      for (int id = 1; id <= 3; id++) {
+        MediaItem item = new MediaItem(m, id, 1, null);
+        item.addLoadedTags(List.of(tag));
+        m.getItems().add(item);
+      }
+      return null;
+    }).when(database).loadIntoMenagerie(any());
+
+    menagerie = new Menagerie(database);
+  }
+
+  @Test
+  void loadedLookups() {
+    assertEquals(2, menagerie.getItemByID(2).getId());
+    assertNull(menagerie.getItemByID(4));
+    assertEquals("tag", menagerie.getTagByID(1).getName());
+    assertSame(menagerie.getTagByID(1), menagerie.getTagByName("TAG"));
+    assertNull(menagerie.getTagByName("other"));
+  }
+
+  @Test
+  void loadedPostings() {
+    Tag tag = menagerie.getTagByID(1);
+    assertArrayEquals(new int[]{1, 2, 3}, tag.getItemIds().toArray());
+    assertEquals(3, tag.getFrequency());
+
+    menagerie.forgetItem(menagerie.getItemByID(2));
+    assertArrayEquals(new int[]{1, 3}, tag.getItemIds().toArray());
+    assertEquals(2, tag.getFrequency());
+  }
+
+  @Test
+  void createdLookups() {
+    Tag tag = menagerie.createTag("new_tag");
+    assertSame(tag, menagerie.getTagByID(tag.getId()));
+    assertSame(tag, menagerie.getTagByName("New tag"));
+
+    GroupItem group = menagerie.createGroup(new ArrayList<>(), "group");
+    assertSame(group, menagerie.getItemByID(group.getId()));
+    assertEquals(4, group.getId());
+  }
+
+  @Test
+  void removedLookups() {
+    Item item = menagerie.getItemByID(2);
+    menagerie.forgetItems(List.of(item));
+    assertNull(menagerie.getItemByID(2));
+    assertFalse(menagerie.getItems().contains(item));
+
+    menagerie.forgetItem(menagerie.getItemByID(3));
+    assertNull(menagerie.getItemByID(3));
+    assertEquals(List.of(menagerie.getItemByID(1)), menagerie.getItems());
+  }
+
+}
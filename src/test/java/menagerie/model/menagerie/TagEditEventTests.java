@@ -113,4 +113,14 @@ class TagEditEventTests {
     assertTrue(i2.hasTag(t4));
   }
 
+  @Test
+  void revertWithoutRemovals() {
+    new TagEditEvent(added, null).revertAction();
+
+    assertFalse(i1.hasTag(t1));
+    assertFalse(i1.hasTag(t2));
+    assertFalse(i2.hasTag(t2));
+    assertTrue(i2.hasTag(t3));
+  }
+
 }
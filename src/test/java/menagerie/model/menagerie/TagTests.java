@@ -82,6 +82,23 @@ class TagTests {
     assertEquals(0, t.getFrequency());
   }
 
+  @Test
+  void postingList() {
+    Tag t = new Tag(null, 1, "tag", null);
+    Item i1 = new MediaItem(null, 1, 1, null);
+    Item i2 = new MediaItem(null, 70000, 1, null);
+
+    i2.addTag(t);
+    i1.addTag(t);
+    assertArrayEquals(new int[]{1, 70000}, t.getItemIds().toArray());
+    assertEquals(2, t.getFrequency());
+
+    i1.removeTag(t);
+    assertFalse(t.getItemIds().contains(1));
+    assertTrue(t.getItemIds().contains(70000));
+    assertEquals(1, t.getFrequency());
+  }
+
   @Test
   void equality() {
     Tag t1 = new Tag(null, 1, "tag_1", null);
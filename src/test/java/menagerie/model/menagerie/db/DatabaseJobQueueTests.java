@@ -0,0 +1,68 @@
+package menagerie.model.menagerie.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseJobQueueTests {
+
+  private static Runnable job(List<String> log, String name) {
+    return () -> log.add(name);
+  }
+
+  @Test
+  void higherPriorityFirst() throws InterruptedException {
+    DatabaseJobQueue queue = new DatabaseJobQueue();
+    List<String> log = new ArrayList<>();
+    queue.add(job(log, "background1"), DatabaseManager.Priority.BACKGROUND);
+    queue.add(job(log, "normal"), DatabaseManager.Priority.NORMAL);
+    queue.add(job(log, "background2"), DatabaseManager.Priority.BACKGROUND);
+    queue.add(job(log, "interactive1"), DatabaseManager.Priority.INTERACTIVE);
+    queue.add(job(log, "interactive2"), DatabaseManager.Priority.INTERACTIVE);
+    assertEquals(5, queue.size());
+    assertEquals(2, queue.size(DatabaseManager.Priority.BACKGROUND));
+
+    queue.take().run();
+    List<Runnable> rest = new ArrayList<>();
+    assertEquals(4, queue.drainTo(rest, 10));
+    rest.forEach(Runnable::run);
+
+    assertEquals(List.of("interactive1", "interactive2", "normal", "background1", "background2"), log);
+    assertEquals(0, queue.size());
+    assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void backgroundBackpressure() throws InterruptedException {
+    DatabaseJobQueue queue = new DatabaseJobQueue();
+    queue.setHighWaterMark(2);
+    queue.put(() -> {}, DatabaseManager.Priority.BACKGROUND);
+    queue.put(() -> {}, DatabaseManager.Priority.BACKGROUND);
+
+    CountDownLatch queued = new CountDownLatch(1);
+    Thread producer = new Thread(() -> {
+      try {
+        queue.put(() -> {}, DatabaseManager.Priority.BACKGROUND);
+        queued.countDown();
+      } catch (InterruptedException ignored) {
+      }
+    });
+    producer.start();
+
+    // Other lanes are never blocked
+    queue.put(() -> {}, DatabaseManager.Priority.INTERACTIVE);
+    assertFalse(queued.await(100, TimeUnit.MILLISECONDS));
+
+    queue.take();
+    queue.take();
+    assertTrue(queued.await(1, TimeUnit.SECONDS));
+    assertEquals(2, queue.size(DatabaseManager.Priority.BACKGROUND));
+    producer.join();
+  }
+
+}
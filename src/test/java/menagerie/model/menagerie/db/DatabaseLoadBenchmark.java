@@ -0,0 +1,111 @@
+package menagerie.model.menagerie.db;
+
+import menagerie.model.menagerie.Menagerie;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Benchmark of the single connection startup load, against an embedded H2 file database with 100k items, 500 groups,
+ * 2,000 tags and 800k tagged rows. Each round constructs a Menagerie from the database and reports the total time and
+ * the time of each load phase. Not a unit test; run the main method with a large heap (-Xmx4g).
+ */
+public class DatabaseLoadBenchmark {
+
+  private static final int ITEMS = 100_000;
+  private static final int GROUPS = 500;
+  private static final int GROUP_SIZE = 100;
+  private static final int TAGS = 2_000;
+  private static final int TAGS_PER_ITEM = 8;
+
+  public static void main(String[] args) throws SQLException, IOException {
+    final File dir = Files.createTempDirectory("load-benchmark").toFile();
+    final String url = "jdbc:h2:" + new File(dir, "library").getAbsolutePath();
+
+    try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+      DatabaseVersionUpdater.updateDatabase(connection);
+      fill(connection);
+
+      for (int round = 0; round < 5; round++) {
+        DatabaseManager database = new DatabaseManager(connection);
+        final long start = System.nanoTime();
+        Menagerie menagerie = new Menagerie(database);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Round %d: %d items in %.2f s%n", round + 1, menagerie.getItems().size(), seconds);
+        database.getMetrics().getLoadPhaseMillis()
+            .forEach((phase, millis) -> System.out.printf("  %-16s %6d ms%n", phase, millis));
+      }
+    }
+  }
+
+  /**
+   * Inserts the tags, groups, media and tagged rows in one transaction. Groups take the first ids, and the first
+   * {@link #GROUPS} * {@link #GROUP_SIZE} media are split between them. Tagged rows are inserted clustered by item, as
+   * they are when items are tagged on import.
+   */
+  private static void fill(Connection connection) throws SQLException {
+    connection.setAutoCommit(false);
+    try (PreparedStatement tags = connection.prepareStatement("INSERT INTO tags(id, name) VALUES (?, ?);");
+         PreparedStatement items = connection.prepareStatement("INSERT INTO items(id, added) VALUES (?, ?);");
+         PreparedStatement groups = connection.prepareStatement("INSERT INTO groups(id, title) VALUES (?, ?);");
+         PreparedStatement media =
+             connection.prepareStatement("INSERT INTO media(id, gid, page, path) VALUES (?, ?, ?, ?);");
+         PreparedStatement tagged = connection.prepareStatement("INSERT INTO tagged(item_id, tag_id) VALUES (?, ?);")) {
+      for (int id = 1; id <= TAGS; id++) {
+        tags.setInt(1, id);
+        tags.setNString(2, "tag_" + id);
+        tags.addBatch();
+      }
+      tags.executeBatch();
+
+      for (int id = 1; id <= ITEMS; id++) {
+        items.setInt(1, id);
+        items.setLong(2, id);
+        items.addBatch();
+        if (id <= GROUPS) {
+          groups.setInt(1, id);
+          groups.setNString(2, "group_" + id);
+          groups.addBatch();
+        } else {
+          final int index = id - GROUPS - 1;
+          media.setInt(1, id);
+          if (index < GROUPS * GROUP_SIZE) {
+            media.setInt(2, index / GROUP_SIZE + 1);
+            media.setInt(3, index % GROUP_SIZE);
+          } else {
+            media.setNull(2, Types.INTEGER);
+            media.setInt(3, 0);
+          }
+          media.setNString(4, "/archive/item_" + id);
+          media.addBatch();
+        }
+        for (int i = 0; i < TAGS_PER_ITEM; i++) {
+          tagged.setInt(1, id);
+          tagged.setInt(2, (id * 31 + i * (TAGS / TAGS_PER_ITEM)) % TAGS + 1);
+          tagged.addBatch();
+        }
+        if (id % 10_000 == 0) {
+          items.executeBatch();
+          groups.executeBatch();
+          media.executeBatch();
+          tagged.executeBatch();
+        }
+      }
+      items.executeBatch();
+      groups.executeBatch();
+      media.executeBatch();
+      tagged.executeBatch();
+      connection.commit();
+    } finally {
+      connection.setAutoCommit(true);
+    }
+  }
+
+}
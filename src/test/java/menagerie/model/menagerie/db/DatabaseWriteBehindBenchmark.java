@@ -0,0 +1,89 @@
+package menagerie.model.menagerie.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.function.IntConsumer;
+
+/**
+ * Benchmark of queued database updates with and without write-behind mode, against an embedded H2 file database with
+ * 100k media items. Each run queues 100k updates and waits for the updater thread to drain them. Without write-behind
+ * every update is its own commit, with it every burst is one transaction. Not a unit test; run the main method.
+ */
+public class DatabaseWriteBehindBenchmark {
+
+  private static final int ITEMS = 100_000;
+  private static final int UPDATES = 100_000;
+  private static final int[] BURST_SIZES = {1, 100, 1000};
+  private static final long MAX_COMMIT_LATENCY = 50;
+
+  public static void main(String[] args) throws SQLException, IOException, InterruptedException {
+    final File dir = Files.createTempDirectory("write-behind-benchmark").toFile();
+
+    for (int round = 0; round < 3; round++) {
+      System.out.println("Round " + (round + 1));
+      for (int burstSize : BURST_SIZES) {
+        final String url = "jdbc:h2:" + new File(dir, "round" + round + "_burst" + burstSize).getAbsolutePath();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+          DatabaseVersionUpdater.updateDatabase(connection);
+          fill(connection);
+
+          DatabaseManager database = new DatabaseManager(connection);
+          database.setWriteBehind(burstSize, MAX_COMMIT_LATENCY);
+          database.setDaemon(true);
+          database.start();
+
+          report("setMediaPageAsync", burstSize, database, id -> database.setMediaPageAsync(id, 1));
+          report("tagItemAsync", burstSize, database, id -> database.tagItemAsync(id, 1));
+        }
+      }
+    }
+  }
+
+  /**
+   * Inserts the items and a tag in one transaction.
+   */
+  private static void fill(Connection connection) throws SQLException {
+    connection.setAutoCommit(false);
+    try (PreparedStatement items = connection.prepareStatement("INSERT INTO items(id, added) VALUES (?, ?);");
+         PreparedStatement media = connection.prepareStatement("INSERT INTO media(id, path) VALUES (?, ?);");
+         PreparedStatement tags = connection.prepareStatement("INSERT INTO tags(id, name) VALUES (1, 'tag');")) {
+      for (int id = 1; id <= ITEMS; id++) {
+        items.setInt(1, id);
+        items.setLong(2, id);
+        items.addBatch();
+        media.setInt(1, id);
+        media.setNString(2, "/archive/item_" + id);
+        media.addBatch();
+        if (id % 10_000 == 0) {
+          items.executeBatch();
+          media.executeBatch();
+        }
+      }
+      items.executeBatch();
+      media.executeBatch();
+      tags.executeUpdate();
+      connection.commit();
+    } finally {
+      connection.setAutoCommit(true);
+    }
+  }
+
+  private static void report(String name, int burstSize, DatabaseManager database, IntConsumer update)
+      throws InterruptedException {
+    final long start = System.nanoTime();
+    for (int id = 1; id <= UPDATES; id++) {
+      update.accept(id);
+    }
+    if (!database.awaitQueued(600_000)) {
+      throw new IllegalStateException("Updates were not drained in time");
+    }
+    final double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("  %-18s burst %5d  %8.0f updates/s  %8.2f s%n", name, burstSize, UPDATES / seconds, seconds);
+  }
+
+}
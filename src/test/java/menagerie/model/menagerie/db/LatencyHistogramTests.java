@@ -0,0 +1,42 @@
+package menagerie.model.menagerie.db;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTests {
+
+  @Test
+  void empty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMeanNanos());
+    assertEquals(0, histogram.getPercentileNanos(0.99));
+  }
+
+  @Test
+  void bucketsAreOrdered() {
+    int last = -1;
+    for (long nanos = 0; nanos < 1_000_000; nanos = nanos * 5 / 4 + 1) {
+      int bucket = LatencyHistogram.bucket(nanos);
+      assertTrue(bucket >= last);
+      last = bucket;
+      long midpoint = LatencyHistogram.midpoint(bucket);
+      assertEquals(nanos, midpoint, nanos * 0.125 + 1);
+    }
+    assertTrue(LatencyHistogram.bucket(Long.MAX_VALUE) < 64 * 4);
+  }
+
+  @Test
+  void percentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(1_000, 98);
+    histogram.record(1_000_000, 2);
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(20_980, histogram.getMeanNanos(), 1e-6);
+    assertEquals(1_000, histogram.getPercentileNanos(0.5), 125);
+    assertEquals(1_000_000, histogram.getPercentileNanos(0.99), 125_000);
+  }
+
+}
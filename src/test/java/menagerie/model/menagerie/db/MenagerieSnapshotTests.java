@@ -0,0 +1,179 @@
+package menagerie.model.menagerie.db;
+
+import menagerie.model.SimilarPair;
+import menagerie.model.menagerie.*;
+import menagerie.model.menagerie.histogram.HistogramReadException;
+import menagerie.model.menagerie.histogram.ImageHistogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class MenagerieSnapshotTests {
+
+  @TempDir
+  Path dir;
+
+  private Menagerie menagerie;
+  private byte[] packedHistogram;
+
+  @BeforeEach
+  void setUp() throws SQLException, HistogramReadException {
+    packedHistogram = new byte[ImageHistogram.PACKED_SIZE];
+    for (int i = 0; i < packedHistogram.length; i += 2) {
+      packedHistogram[i + 1] = (byte) (i % 7);
+    }
+    ImageHistogram histogram = new ImageHistogram(packedHistogram);
+
+    DatabaseManager database = mock(DatabaseManager.class);
+    doAnswer(invocation -> {
+      Menagerie m = invocation.getArgument(0);
+      Tag red = new Tag(m, 1, "red", "#ff0000");
+      red.getNotes().add("a note");
+      Tag blue = new Tag(m, 2, "blue", null);
+      m.getTags().addAll(List.of(red, blue));
+
+      GroupItem group = new GroupItem(m, 10, 100, "a group");
+      MediaItem first = new MediaItem(m, 11, 101, 0, false, group, new File("/archive/first.png"), "md5",
+          histogram);
+      MediaItem second = new MediaItem(m, 12, 102, 1, true, group, new File("/archive/second.png"), null, null);
+      MediaItem loose = new MediaItem(m, 13, 103, new File("/archive/loose.png"));
+      group.getElements().addAll(List.of(first, second));
+      group.addLoadedTags(List.of(blue));
+      first.addLoadedTags(List.of(red, blue));
+      loose.addLoadedTags(List.of(red));
+      m.getItems().addAll(List.of(group, first, second, loose));
+      m.getNonDuplicates().add(new SimilarPair<>(first, loose, 0));
+      return null;
+    }).when(database).loadIntoMenagerie(any());
+
+    menagerie = new Menagerie(database);
+  }
+
+  @Test
+  void roundTrip() throws IOException, SQLException {
+    File file = dir.resolve("library.snapshot").toFile();
+    MenagerieSnapshot.write(menagerie, 7, file);
+
+    Menagerie loaded = load(file, 7, true);
+
+    Tag red = loaded.getTagByID(1);
+    assertEquals("red", red.getName());
+    assertEquals("#ff0000", red.getColor());
+    assertEquals(List.of("a note"), red.getNotes());
+    assertNull(loaded.getTagByID(2).getColor());
+
+    assertEquals(4, loaded.getItems().size());
+    GroupItem group = (GroupItem) loaded.getItemByID(10);
+    assertEquals("a group", group.getTitle());
+    assertEquals(100, group.getDateAdded());
+    assertEquals(List.of(loaded.getItemByID(11), loaded.getItemByID(12)), group.getElements());
+
+    MediaItem first = (MediaItem) loaded.getItemByID(11);
+    assertSame(group, first.getGroup());
+    assertEquals(0, first.getPageIndex());
+    assertEquals("md5", first.getMD5());
+    assertEquals(new File("/archive/first.png").getAbsoluteFile(), first.getFile());
+    assertArrayEquals(packedHistogram, first.getHistogram().toPackedBytes());
+    assertArrayEquals(new int[]{1, 2}, first.getTagSnapshot().stream().mapToInt(Tag::getId).sorted().toArray());
+
+    MediaItem second = (MediaItem) loaded.getItemByID(12);
+    assertEquals(1, second.getPageIndex());
+    assertTrue(second.hasNoSimilar());
+    assertNull(second.getMD5());
+    assertNull(second.getHistogram());
+
+    MediaItem loose = (MediaItem) loaded.getItemByID(13);
+    assertNull(loose.getGroup());
+    assertEquals(103, loose.getDateAdded());
+    assertArrayEquals(new int[]{11, 13}, red.getItemIds().toArray());
+    assertArrayEquals(new int[]{10, 11}, loaded.getTagByID(2).getItemIds().toArray());
+
+    assertEquals(1, loaded.getNonDuplicates().size());
+    SimilarPair<MediaItem> pair = loaded.getNonDuplicates().iterator().next();
+    assertSame(first, pair.getObject1());
+    assertSame(loose, pair.getObject2());
+  }
+
+  @Test
+  void staleSnapshotIgnored() throws IOException, SQLException {
+    File file = dir.resolve("library.snapshot").toFile();
+    MenagerieSnapshot.write(menagerie, 7, file);
+
+    assertTrue(load(file, 8, false).getItems().isEmpty());
+  }
+
+  @Test
+  void truncatedSnapshotIgnored() throws IOException, SQLException {
+    File file = dir.resolve("library.snapshot").toFile();
+    MenagerieSnapshot.write(menagerie, 7, file);
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+    assertTrue(load(file, 7, false).getItems().isEmpty());
+  }
+
+  @Test
+  void corruptStringLengthIgnored() throws IOException, SQLException {
+    File file = dir.resolve("library.snapshot").toFile();
+    MenagerieSnapshot.write(menagerie, 7, file);
+    // Name length of the first tag, after the header and the tag count and id
+    writeInt(file, 24, Integer.MAX_VALUE);
+
+    assertTrue(load(file, 7, false).getItems().isEmpty());
+  }
+
+  @Test
+  void invalidTagIgnored() throws IOException, SQLException {
+    File file = dir.resolve("library.snapshot").toFile();
+    MenagerieSnapshot.write(menagerie, 7, file);
+    // A null tag name is rejected by the tag constructor
+    writeInt(file, 24, -1);
+
+    Menagerie loaded = load(file, 7, false);
+    assertTrue(loaded.getItems().isEmpty());
+    assertTrue(loaded.getTags().isEmpty());
+  }
+
+  @Test
+  void rewriteAfterRead() throws IOException, SQLException {
+    File file = dir.resolve("library.snapshot").toFile();
+    MenagerieSnapshot.write(menagerie, 7, file);
+    Menagerie loaded = load(file, 7, true);
+
+    // Replacing a snapshot that was just read must not be blocked by the read
+    MenagerieSnapshot.write(loaded, 8, file);
+    assertEquals(4, load(file, 8, true).getItems().size());
+    assertFalse(new File(file.getPath() + ".tmp").exists());
+  }
+
+  private static void writeInt(File file, int offset, int value) throws IOException {
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    ByteBuffer.wrap(bytes).putInt(offset, value);
+    Files.write(file.toPath(), bytes);
+  }
+
+  private static Menagerie load(File file, long changeCount, boolean expectRead) throws SQLException {
+    DatabaseManager database = mock(DatabaseManager.class);
+    doAnswer(invocation -> {
+      Menagerie m = invocation.getArgument(0);
+      assertEquals(expectRead, MenagerieSnapshot.read(m, changeCount, file, null));
+      return null;
+    }).when(database).loadIntoMenagerie(any());
+    return new Menagerie(database);
+  }
+
+}
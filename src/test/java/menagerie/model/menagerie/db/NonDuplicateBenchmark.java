@@ -0,0 +1,211 @@
+package menagerie.model.menagerie.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Benchmark of non-duplicate writes and media md5 lookups, against an embedded H2 file database with 100k media items
+ * and 200k non-duplicate pairs. Removal by the normalized pair key is compared with the OR predicate it replaced, and
+ * add/remove toggles of the same pairs are queued behind a blocked updater to show how many writes coalesce. Not a unit
+ * test; run the main method.
+ */
+public class NonDuplicateBenchmark {
+
+  private static final int ITEMS = 100_000;
+  private static final int NON_DUPES = 200_000;
+  private static final int REMOVALS = 10_000;
+  private static final int OR_REMOVALS = 20;
+  private static final int LOOKUPS = 10_000;
+  private static final int TOGGLED_PAIRS = 1_000;
+  private static final int TOGGLES = 10;
+
+  public static void main(String[] args) throws SQLException, IOException, InterruptedException {
+    final File dir = Files.createTempDirectory("non-dupe-benchmark").toFile();
+    final String url = "jdbc:h2:" + new File(dir, "library").getAbsolutePath();
+
+    try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+      DatabaseVersionUpdater.updateDatabase(connection);
+      fill(connection);
+
+      DatabaseManager database = new DatabaseManager(connection);
+      database.setDaemon(true);
+      database.start();
+
+      for (int round = 0; round < 3; round++) {
+        System.out.println("Round " + (round + 1));
+        benchmarkRemoval(database, round);
+        benchmarkOrRemoval(connection, round);
+        benchmarkMD5Lookup(connection);
+        benchmarkCoalescing(database);
+      }
+    }
+  }
+
+  /**
+   * Inserts the items and non-duplicate pairs in one transaction. Each item is paired with the next one, then with the
+   * one after that, and so on until all pairs are inserted, stored in normalized order.
+   */
+  private static void fill(Connection connection) throws SQLException {
+    connection.setAutoCommit(false);
+    try (PreparedStatement items = connection.prepareStatement("INSERT INTO items(id, added) VALUES (?, ?);");
+         PreparedStatement media = connection.prepareStatement("INSERT INTO media(id, path, md5) VALUES (?, ?, ?);");
+         PreparedStatement nonDupes =
+             connection.prepareStatement("INSERT INTO non_dupes(item_1, item_2, pair) VALUES (?, ?, ?);")) {
+      for (int id = 1; id <= ITEMS; id++) {
+        items.setInt(1, id);
+        items.setLong(2, id);
+        items.addBatch();
+        media.setInt(1, id);
+        media.setNString(2, "/archive/item_" + id);
+        media.setNString(3, md5(id));
+        media.addBatch();
+        if (id % 10_000 == 0) {
+          items.executeBatch();
+          media.executeBatch();
+        }
+      }
+      items.executeBatch();
+      media.executeBatch();
+
+      for (int i = 0; i < NON_DUPES; i++) {
+        final int id1 = pairItem1(i), id2 = pairItem2(i);
+        nonDupes.setInt(1, id1);
+        nonDupes.setInt(2, id2);
+        nonDupes.setLong(3, DatabaseManager.nonDuplicatePair(id1, id2));
+        nonDupes.addBatch();
+        if (i % 10_000 == 0) {
+          nonDupes.executeBatch();
+        }
+      }
+      nonDupes.executeBatch();
+      connection.commit();
+    } finally {
+      connection.setAutoCommit(true);
+    }
+  }
+
+  private static int pairItem1(int i) {
+    return i % (ITEMS - 4) + 1;
+  }
+
+  private static int pairItem2(int i) {
+    return pairItem1(i) + i / (ITEMS - 4) + 1;
+  }
+
+  private static String md5(int id) {
+    return String.format("%032x", id * 0x9E3779B97F4A7C15L);
+  }
+
+  /**
+   * Removes pairs through the queue, with the IDs given in reverse order, and adds them back afterwards.
+   */
+  private static void benchmarkRemoval(DatabaseManager database, int round) throws InterruptedException {
+    final int first = round * REMOVALS;
+    final long start = System.nanoTime();
+    for (int i = first; i < first + REMOVALS; i++) {
+      database.removeNonDuplicateAsync(pairItem2(i), pairItem1(i));
+    }
+    awaitQueued(database);
+    report("remove by pair", REMOVALS, start);
+
+    for (int i = first; i < first + REMOVALS; i++) {
+      database.addNonDuplicateAsync(pairItem1(i), pairItem2(i));
+    }
+    awaitQueued(database);
+  }
+
+  /**
+   * Removes pairs with the OR predicate non-duplicates used to be removed with, and adds them back afterwards.
+   */
+  private static void benchmarkOrRemoval(Connection connection, int round) throws SQLException {
+    final int first = NON_DUPES - (round + 1) * OR_REMOVALS;
+    try (PreparedStatement remove = connection.prepareStatement(
+        "DELETE FROM non_dupes WHERE (item_1=? AND item_2=?) OR (item_2=? AND item_1=?);");
+         PreparedStatement add = connection.prepareStatement(
+             "INSERT INTO non_dupes(item_1, item_2, pair) VALUES (?, ?, ?);")) {
+      final long start = System.nanoTime();
+      for (int i = first; i < first + OR_REMOVALS; i++) {
+        remove.setInt(1, pairItem2(i));
+        remove.setInt(2, pairItem1(i));
+        remove.setInt(3, pairItem2(i));
+        remove.setInt(4, pairItem1(i));
+        remove.executeUpdate();
+      }
+      report("remove by OR", OR_REMOVALS, start);
+
+      for (int i = first; i < first + OR_REMOVALS; i++) {
+        add.setInt(1, pairItem1(i));
+        add.setInt(2, pairItem2(i));
+        add.setLong(3, DatabaseManager.nonDuplicatePair(pairItem1(i), pairItem2(i)));
+        add.executeUpdate();
+      }
+    }
+  }
+
+  private static void benchmarkMD5Lookup(Connection connection) throws SQLException {
+    try (PreparedStatement ps = connection.prepareStatement("SELECT id FROM media WHERE md5=?;")) {
+      final long start = System.nanoTime();
+      for (int i = 0; i < LOOKUPS; i++) {
+        ps.setNString(1, md5(i * 7 % ITEMS + 1));
+        try (ResultSet rs = ps.executeQuery()) {
+          if (!rs.next()) {
+            throw new IllegalStateException("Missing md5");
+          }
+        }
+      }
+      report("md5 lookup", LOOKUPS, start);
+    }
+  }
+
+  /**
+   * Queues add/remove toggles of the same pairs while the updater is blocked, then counts the updates that ran. The
+   * pairs are toggled an even number of times, so every add cancels the queued remove before it and no update is
+   * expected to reach the database.
+   */
+  private static void benchmarkCoalescing(DatabaseManager database) throws InterruptedException {
+    final CountDownLatch queued = new CountDownLatch(1);
+    database.enqueue(() -> {
+      try {
+        queued.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, DatabaseManager.Priority.INTERACTIVE);
+
+    final long updates = database.getMetrics().getUpdateCount();
+    final long start = System.nanoTime();
+    for (int toggle = 0; toggle < TOGGLES; toggle++) {
+      for (int i = 0; i < TOGGLED_PAIRS; i++) {
+        if (toggle % 2 == 0) {
+          database.removeNonDuplicateAsync(pairItem1(i), pairItem2(i));
+        } else {
+          database.addNonDuplicateAsync(pairItem2(i), pairItem1(i));
+        }
+      }
+    }
+    queued.countDown();
+    awaitQueued(database);
+    report("toggle", TOGGLED_PAIRS * TOGGLES, start);
+    System.out.printf("  %-18s %8d requests  %8d updates%n", "coalesced", TOGGLED_PAIRS * TOGGLES,
+        database.getMetrics().getUpdateCount() - updates);
+  }
+
+  private static void awaitQueued(DatabaseManager database) throws InterruptedException {
+    if (!database.awaitQueued(600_000)) {
+      throw new IllegalStateException("Updates were not drained in time");
+    }
+  }
+
+  private static void report(String name, int ops, long start) {
+    final double millis = (System.nanoTime() - start) / 1e6;
+    System.out.printf("  %-18s %8d ops  %10.3f ms/op%n", name, ops, millis / ops);
+  }
+
+}
@@ -0,0 +1,61 @@
+package menagerie.model.menagerie.histogram;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramStoreTests {
+
+  private static double[] channel(double value) {
+    double[] bins = new double[ImageHistogram.BIN_SIZE];
+    bins[0] = value;
+    bins[1] = 1 - value;
+    return bins;
+  }
+
+  @Test
+  void putGet() {
+    HistogramStore store = new HistogramStore(2);
+    int slot = store.allocate();
+    store.put(slot, 0, channel(0.25));
+    store.put(slot, 3, channel(0.75));
+
+    assertArrayEquals(channel(0.25), store.get(slot, 0), 1e-7);
+    assertArrayEquals(new double[ImageHistogram.BIN_SIZE], store.get(slot, 1));
+    assertArrayEquals(channel(0.75), store.get(slot, 3), 1e-7);
+
+    float[] copy = new float[HistogramStore.SLOT_FLOATS + 1];
+    store.copyInto(slot, copy, 1);
+    assertEquals(0.25f, copy[1]);
+    assertEquals(0.25f, copy[1 + ImageHistogram.BIN_SIZE * 3 + 1]);
+  }
+
+  @Test
+  void growsAcrossSegments() {
+    HistogramStore store = new HistogramStore(1);
+    int[] slots = new int[5];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = store.allocate();
+      store.put(slots[i], 2, channel(i / 10.0));
+    }
+
+    for (int i = 0; i < slots.length; i++) {
+      assertEquals(i, slots[i]);
+      assertArrayEquals(channel(i / 10.0), store.get(slots[i], 2), 1e-7);
+    }
+    assertEquals(0.4, store.distance(slots[1], slots[3]), 1e-6);
+    assertEquals(0, store.distance(slots[4], slots[4]));
+  }
+
+  @Test
+  void reusesReleasedSlots() {
+    HistogramStore store = new HistogramStore(4);
+    int slot1 = store.allocate();
+    int slot2 = store.allocate();
+    store.release(slot1);
+
+    assertEquals(slot1, store.allocate());
+    assertEquals(slot2 + 1, store.allocate());
+  }
+
+}
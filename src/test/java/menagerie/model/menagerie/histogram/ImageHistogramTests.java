@@ -0,0 +1,70 @@
+package menagerie.model.menagerie.histogram;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageHistogramTests {
+
+  private static double[] randomChannel(Random random) {
+    double[] channel = new double[ImageHistogram.BIN_SIZE];
+    double sum = 0;
+    for (int i = 0; i < channel.length; i++) {
+      channel[i] = random.nextDouble();
+      sum += channel[i];
+    }
+    for (int i = 0; i < channel.length; i++) {
+      channel[i] /= sum;
+    }
+    return channel;
+  }
+
+  private static ByteArrayInputStream legacyStream(double[] channel) {
+    ByteBuffer bb = ByteBuffer.allocate(ImageHistogram.BIN_SIZE * 8);
+    for (double d : channel) {
+      bb.putDouble(d);
+    }
+    return new ByteArrayInputStream(bb.array());
+  }
+
+  private static ImageHistogram randomHistogram(long seed) throws HistogramReadException {
+    Random random = new Random(seed);
+    return new ImageHistogram(legacyStream(randomChannel(random)), legacyStream(randomChannel(random)),
+        legacyStream(randomChannel(random)), legacyStream(randomChannel(random)));
+  }
+
+  @Test
+  void packedRoundTrip() throws HistogramReadException {
+    ImageHistogram hist = randomHistogram(1);
+    byte[] packed = hist.toPackedBytes();
+    assertEquals(ImageHistogram.PACKED_SIZE, packed.length);
+
+    ImageHistogram unpacked = new ImageHistogram(packed);
+    assertArrayEquals(hist.getAlpha(), unpacked.getAlpha(), 1e-5);
+    assertArrayEquals(hist.getRed(), unpacked.getRed(), 1e-5);
+    assertArrayEquals(hist.getGreen(), unpacked.getGreen(), 1e-5);
+    assertArrayEquals(hist.getBlue(), unpacked.getBlue(), 1e-5);
+    assertArrayEquals(packed, unpacked.toPackedBytes());
+  }
+
+  @Test
+  void packedSimilarity() throws HistogramReadException {
+    ImageHistogram hist1 = randomHistogram(1);
+    ImageHistogram hist2 = randomHistogram(2);
+    ImageHistogram packed1 = new ImageHistogram(hist1.toPackedBytes());
+    ImageHistogram packed2 = new ImageHistogram(hist2.toPackedBytes());
+
+    assertEquals(1, packed1.getSimilarity(packed1));
+    assertEquals(hist1.getSimilarity(hist2), packed1.getSimilarity(packed2), 1e-4);
+  }
+
+  @Test
+  void packedInvalidLength() {
+    assertThrows(HistogramReadException.class, () -> new ImageHistogram(new byte[10]));
+  }
+
+}
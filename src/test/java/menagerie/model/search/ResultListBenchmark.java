@@ -0,0 +1,110 @@
+package menagerie.model.search;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmark of refreshing 300k search results after an edit touched 10k items, half of which leave the results and half
+ * of which join them. Compares merging the changes into a {@link ResultList} against the previous contains, sort,
+ * removeAll and addAll on a plain observable list. Both mirror their changes into a second list, like the item grid
+ * does. Not a unit test; run the main method.
+ */
+public class ResultListBenchmark {
+
+  private static final int RESULTS = 300_000;
+  private static final int CHANGED = 10_000;
+
+  private static final Comparator<Item> BY_ID = Comparator.comparingInt(Item::getId);
+
+  public static void main(String[] args) {
+    final Random random = new Random(42);
+    final List<Item> all = new ArrayList<>();
+    for (int id = 1; id <= RESULTS + CHANGED / 2; id++) {
+      all.add(new MediaItem(null, id, id, null));
+    }
+    final List<Item> initial = new ArrayList<>();
+    final List<Item> joining = new ArrayList<>();
+    for (Item item : all) {
+      (joining.size() < CHANGED / 2 && random.nextInt(RESULTS / CHANGED) == 0 ? joining : initial).add(item);
+    }
+    final List<Item> leaving = new ArrayList<>();
+    for (int i = 0; i < CHANGED / 2; i++) {
+      leaving.add(initial.get(random.nextInt(initial.size())));
+    }
+    final Set<Item> joiningSet = new HashSet<>(joining);
+    final List<Item> checked = new ArrayList<>(joining);
+    checked.addAll(leaving);
+
+    for (int round = 0; round < 3; round++) {
+      System.out.println("Round " + (round + 1));
+
+      ResultList results = new ResultList();
+      results.update(initial, List.of(), BY_ID, false);
+      ObservableList<Item> grid = FXCollections.observableArrayList(results);
+      results.addListener(mirror(grid));
+      long start = System.nanoTime();
+      List<Item> toAdd = new ArrayList<>();
+      for (Item item : joining) {
+        if (!results.contains(item)) {
+          toAdd.add(item);
+        }
+      }
+      results.update(toAdd, leaving, BY_ID, false);
+      System.out.printf("  merged   %9.2f ms (%d results, grid %s)%n", (System.nanoTime() - start) / 1e6,
+          results.size(), grid.equals(results) ? "in sync" : "OUT OF SYNC");
+
+      ObservableList<Item> plain = FXCollections.observableArrayList(initial);
+      ObservableList<Item> plainGrid = FXCollections.observableArrayList(plain);
+      plain.addListener((ListChangeListener<Item>) c -> {
+        while (c.next()) {
+          if (c.wasAdded()) {
+            plainGrid.addAll(0, c.getAddedSubList());
+          }
+          if (c.wasRemoved()) {
+            plainGrid.removeAll(c.getRemoved());
+          }
+        }
+      });
+      start = System.nanoTime();
+      toAdd = new ArrayList<>();
+      List<Item> toRemove = new ArrayList<>();
+      for (Item item : checked) {
+        if (joiningSet.contains(item)) {
+          if (!plain.contains(item)) {
+            toAdd.add(item);
+          }
+        } else {
+          toRemove.add(item);
+        }
+      }
+      plain.sort(BY_ID);
+      plain.removeAll(toRemove);
+      plain.addAll(toAdd);
+      System.out.printf("  previous %9.2f ms (%d results)%n", (System.nanoTime() - start) / 1e6, plain.size());
+    }
+  }
+
+  private static ListChangeListener<Item> mirror(ObservableList<Item> copy) {
+    return c -> {
+      while (c.next()) {
+        if (c.wasRemoved()) {
+          copy.remove(c.getFrom(), c.getFrom() + c.getRemovedSize());
+        }
+        if (c.wasAdded()) {
+          copy.addAll(c.getFrom(), c.getAddedSubList());
+        }
+      }
+    };
+  }
+
+}
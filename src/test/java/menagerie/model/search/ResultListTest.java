@@ -0,0 +1,118 @@
+package menagerie.model.search;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultListTest {
+
+  private static final Comparator<Item> BY_ID = Comparator.comparingInt(Item::getId);
+
+  private static List<Item> items(int... ids) {
+    List<Item> items = new ArrayList<>();
+    for (int id : ids) {
+      items.add(new MediaItem(null, id, id, null));
+    }
+    return items;
+  }
+
+  private static List<Integer> ids(List<Item> items) {
+    return items.stream().map(Item::getId).toList();
+  }
+
+  /**
+   * Copies the list and keeps the copy in sync by replaying the changes by position, and counts the change events.
+   */
+  private static int[] mirror(ResultList list, ObservableList<Item> copy) {
+    copy.setAll(list);
+    final int[] events = {0};
+    list.addListener((ListChangeListener<Item>) c -> {
+      events[0]++;
+      while (c.next()) {
+        if (c.wasPermutated()) {
+          copy.setAll(c.getList());
+          continue;
+        }
+        if (c.wasRemoved()) {
+          copy.remove(c.getFrom(), c.getFrom() + c.getRemovedSize());
+        }
+        if (c.wasAdded()) {
+          copy.addAll(c.getFrom(), c.getAddedSubList());
+        }
+      }
+    });
+    return events;
+  }
+
+  @Test
+  void updateMergesSorted() {
+    ResultList list = new ResultList();
+    list.update(items(6, 2, 4), List.of(), BY_ID, false);
+    assertEquals(List.of(2, 4, 6), ids(list));
+
+    ObservableList<Item> copy = FXCollections.observableArrayList();
+    int[] events = mirror(list, copy);
+    list.update(items(5, 1, 7, 4, 5, 3), items(4, 9, 6), BY_ID, false);
+
+    assertEquals(List.of(1, 2, 3, 5, 7), ids(list));
+    assertEquals(ids(list), ids(copy));
+    assertEquals(1, events[0]);
+
+    list.update(items(2), items(8), BY_ID, false);
+    assertEquals(1, events[0]);
+  }
+
+  @Test
+  void containsTracksMembership() {
+    ResultList list = new ResultList();
+    list.update(items(1, 2, 3), List.of(), BY_ID, false);
+    assertTrue(list.contains(items(2).get(0)));
+    assertFalse(list.contains(items(4).get(0)));
+    assertFalse(list.contains("2"));
+
+    list.update(List.of(), items(2), BY_ID, false);
+    assertFalse(list.contains(items(2).get(0)));
+    list.remove(0);
+    list.add(items(5).get(0));
+    assertFalse(list.contains(items(1).get(0)));
+    assertTrue(list.contains(items(5).get(0)));
+  }
+
+  @Test
+  void unsortedListIsSortedFirst() {
+    ResultList list = new ResultList();
+    list.addAll(items(5, 1, 3));
+    ObservableList<Item> copy = FXCollections.observableArrayList();
+    mirror(list, copy);
+
+    list.update(items(4), List.of(), BY_ID, false);
+    assertEquals(List.of(1, 3, 4, 5), ids(list));
+    assertEquals(ids(list), ids(copy));
+
+    list.sort(BY_ID.reversed());
+    assertEquals(List.of(5, 4, 3, 1), ids(list));
+    assertEquals(ids(list), ids(copy));
+  }
+
+  @Test
+  void shuffledInsertsEverything() {
+    ResultList list = new ResultList();
+    list.update(items(1, 2, 3, 4), List.of(), (a, b) -> 0, true);
+    ObservableList<Item> copy = FXCollections.observableArrayList();
+    mirror(list, copy);
+
+    list.update(items(5, 6, 7), items(1), (a, b) -> 0, true);
+    assertEquals(List.of(2, 3, 4, 5, 6, 7), ids(list).stream().sorted().toList());
+    assertEquals(ids(list), ids(copy));
+  }
+
+}
@@ -0,0 +1,117 @@
+package menagerie.model.search;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.Tag;
+import menagerie.model.menagerie.db.DatabaseManager;
+import menagerie.model.search.rules.SearchRule;
+import menagerie.model.search.rules.TagRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class RuleOrderTest {
+
+  private Menagerie menagerie;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    DatabaseManager database = mock(DatabaseManager.class);
+    doAnswer(invocation -> {
+      Menagerie m = invocation.getArgument(0);
+      Tag common = new Tag(m, 1, "common", null);
+      Tag rare = new Tag(m, 2, "rare", null);
+      m.getTags().addAll(List.of(common, rare));
+      for (int id = 1; id <= 10; id++) {
+        MediaItem item = new MediaItem(m, id, id, null);
+        List<Tag> tags = new ArrayList<>();
+        if (id <= 9) {
+          tags.add(common);
+        }
+        if (id == 1) {
+          tags.add(rare);
+        }
+        item.addLoadedTags(tags);
+        m.getItems().add(item);
+      }
+      return null;
+    }).when(database).loadIntoMenagerie(any());
+
+    menagerie = new Menagerie(database);
+  }
+
+  /**
+   * Rule that accepts items with an ID below a limit.
+   */
+  private static SearchRule below(int limit) {
+    return new SearchRule(false) {
+      @Override
+      protected boolean checkRule(Item item) {
+        return item.getId() < limit;
+      }
+    };
+  }
+
+  @Test
+  void tagsBySelectivity() {
+    SearchRule common = new TagRule("common", false);
+    SearchRule rare = new TagRule("rare", false);
+    SearchRule notRare = new TagRule("rare", true);
+    List<SearchRule> rules = new ArrayList<>(List.of(common, notRare, rare));
+
+    RuleOrder.sort(rules, menagerie);
+    assertEquals(List.of(rare, common, notRare), rules);
+    // Tag rules are estimated from tag frequencies, without checking items
+    assertEquals(0, rare.getCheckCount());
+  }
+
+  @Test
+  void sampledWithoutEstimate() {
+    SearchRule loose = below(10);
+    SearchRule strict = below(2);
+    List<SearchRule> rules = new ArrayList<>(List.of(loose, strict));
+
+    RuleOrder.sort(rules, menagerie);
+    assertEquals(List.of(strict, loose), rules);
+    assertEquals(10, strict.getCheckCount());
+    assertEquals(0.1, strict.getPassRate(), 1e-9);
+    assertEquals(0.9, loose.getPassRate(), 1e-9);
+    assertFalse(Double.isNaN(strict.getAverageNanos()));
+  }
+
+  @Test
+  void measuredStatisticsWin() {
+    SearchRule estimated = new TagRule("rare", false);
+    List<SearchRule> rules = new ArrayList<>(List.of(below(10), estimated));
+    RuleOrder.sort(rules, menagerie);
+    assertSame(estimated, rules.get(0));
+
+    SearchRule measured = new TagRule("rare", false);
+    // Measured on other items, the rare tag rule turned out to accept everything
+    for (int i = 0; i < RuleOrder.MEASURED_CHECKS; i++) {
+      measured.accept(menagerie.getItemByID(1));
+    }
+    rules = new ArrayList<>(List.of(measured, below(10)));
+    RuleOrder.sort(rules, menagerie);
+    assertSame(measured, rules.get(1));
+  }
+
+  @Test
+  void searchExposesOrderedRules() {
+    Search search = new Search("common rare", false, true, false);
+    search.refreshSearch(menagerie);
+
+    assertEquals(List.of(1), search.getResults().stream().map(Item::getId).toList());
+    assertEquals(2, search.getRules().size());
+  }
+
+}
@@ -0,0 +1,176 @@
+package menagerie.model.search;
+
+import menagerie.model.menagerie.GroupItem;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.Tag;
+import menagerie.model.menagerie.db.DatabaseManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class SearchCacheTest {
+
+  private Menagerie menagerie;
+  private SearchCache cache;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    DatabaseManager database = mock(DatabaseManager.class);
+    doAnswer(invocation -> {
+      Menagerie m = invocation.getArgument(0);
+      Tag a = new Tag(m, 1, "a", null);
+      Tag b = new Tag(m, 2, "b", null);
+      Tag c = new Tag(m, 3, "c", null);
+      m.getTags().addAll(List.of(a, b, c));
+      for (int id = 1; id <= 6; id++) {
+        MediaItem item = new MediaItem(m, id, id, null);
+        List<Tag> tags = new ArrayList<>();
+        if (id <= 4) {
+          tags.add(a);
+        }
+        if (id >= 3) {
+          tags.add(b);
+        }
+        tags.add(c);
+        item.addLoadedTags(tags);
+        m.getItems().add(item);
+      }
+      return null;
+    }).when(database).loadIntoMenagerie(any());
+
+    menagerie = new Menagerie(database);
+    cache = new SearchCache(4);
+  }
+
+  private Search run(String query, boolean showGrouped) {
+    Search search = new Search(query, false, showGrouped, false);
+    search.refreshSearch(menagerie);
+    cache.put(search, menagerie);
+    return search;
+  }
+
+  private Search take(String query, boolean showGrouped) {
+    return cache.take(query, null, false, showGrouped, false, menagerie);
+  }
+
+  @Test
+  void normalizedKeys() {
+    Search search = run("a -b", true);
+    assertNull(cache.take("a -b", null, true, true, false, menagerie));
+    assertNull(take("a -b", false));
+    assertSame(search, take("-b  a a", true));
+    // Taking removes the search until it is cached again
+    assertNull(take("a -b", true));
+  }
+
+  @Test
+  void tagEditsInvalidateTheirTags() {
+    Search a = run("a", true);
+    Search b = run("b -c", true);
+    run("b", true);
+    menagerie.getItemByID(1).addTag(menagerie.getTagByName("b"));
+
+    assertSame(a, take("a", true));
+    assertEquals(List.of(1, 2, 3, 4), a.getResults().stream().map(Item::getId).toList());
+    assertNull(take("b", true));
+
+    run("b -c", true);
+    menagerie.getItemByID(2).removeTag(menagerie.getTagByName("c"));
+    assertNull(take("b -c", true));
+    assertNotSame(b, run("b -c", true));
+  }
+
+  @Test
+  void itemRulesInvalidatedByAnyChange() {
+    run("a tags:>1", true);
+    run("", true);
+    menagerie.getItemByID(6).removeTag(menagerie.getTagByName("c"));
+    assertNull(take("a tags:>1", true));
+    assertNull(take("", true));
+
+    run("a tags:>1", true);
+    menagerie.refreshInSearches(menagerie.getItemByID(5));
+    assertNull(take("a tags:>1", true));
+  }
+
+  @Test
+  void rangeRulesOnlyDependOnTheirTags() {
+    Search search = run("a date:>2 id:<4", true);
+    menagerie.getItemByID(6).removeTag(menagerie.getTagByName("c"));
+    assertSame(search, take("a date:>2 id:<4", true));
+    assertEquals(List.of(3), search.getResults().stream().map(Item::getId).toList());
+  }
+
+  @Test
+  void inPlaceChangesInvalidateItemRules() {
+    run("missing:md5", true);
+    ((MediaItem) menagerie.getItemByID(2)).setHasNoSimilar(true);
+    assertNull(take("missing:md5", true));
+  }
+
+  @Test
+  void missingFilesNeverCached() {
+    run("missing:file", true);
+    run("a -missing:file", true);
+    assertEquals(0, cache.size());
+    assertNull(take("missing:file", true));
+  }
+
+  @Test
+  void groupingInvalidatesHiddenGroupedItems() {
+    Search shown = run("a", true);
+    run("a", false);
+    GroupItem group = new GroupItem(menagerie, 100, 100, "group");
+    group.addItem((MediaItem) menagerie.getItemByID(1));
+
+    assertSame(shown, take("a", true));
+    assertNull(take("a", false));
+  }
+
+  @Test
+  void groupReorderInvalidatesGroupSearch() {
+    GroupItem group = new GroupItem(menagerie, 100, 100, "group");
+    for (int id = 1; id <= 3; id++) {
+      group.addItem((MediaItem) menagerie.getItemByID(id));
+    }
+    Search search = new GroupSearch("c", group, false, false);
+    search.refreshSearch(menagerie);
+    cache.put(search, menagerie);
+    assertSame(search, cache.take("c", group, false, true, false, menagerie));
+
+    cache.put(search, menagerie);
+    group.reverseElements();
+    assertNull(cache.take("c", group, false, true, false, menagerie));
+  }
+
+  @Test
+  void unknownTags() {
+    run("d", true);
+    assertNotNull(take("d", true));
+
+    run("d", true);
+    menagerie.createTag("d");
+    assertNull(take("d", true));
+  }
+
+  @Test
+  void leastRecentlyUsedEvicted() {
+    for (String query : List.of("a", "b", "c", "a b", "a c")) {
+      run(query, true);
+    }
+    assertEquals(4, cache.size());
+    assertNull(take("a", true));
+    assertNotNull(take("b", true));
+  }
+
+}
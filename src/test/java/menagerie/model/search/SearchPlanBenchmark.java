@@ -0,0 +1,95 @@
+package menagerie.model.search;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.Tag;
+import menagerie.model.menagerie.db.DatabaseManager;
+import menagerie.model.menagerie.db.DatabaseVersionUpdater;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Benchmark of index-driven searches against full scans at 1M items and 20k tags. Tag sizes follow a Zipf-like
+ * distribution, so low tag numbers are common and high ones are rare. Not a unit test; run the main method with a large
+ * heap (-Xmx4g).
+ */
+public class SearchPlanBenchmark {
+
+  private static final int ITEMS = 1_000_000;
+  private static final int TAGS = 20_000;
+  private static final int TAGS_PER_ITEM = 8;
+
+  private static final String[] QUERIES = {
+      "tag_1 tag_2",
+      "tag_50 tag_300",
+      "tag_5000 tag_1",
+      "tag_1 -tag_2",
+      "tag_2 id:<200000",
+      "id:>999000",
+      "date:>500000 date:<501000",
+      "tag_1 date:>900000",
+      "path:/42/513/",
+      "tag_2 path:file_99",
+      "tag_10 type:media",
+      "tags:<6",
+      "type:group -tags:<3",
+      "type:media tags:>2 date:<5000",
+      "-tag_1 type:media tags:>2 date:<5000"
+  };
+
+  public static void main(String[] args) throws SQLException {
+    Connection connection = DriverManager.getConnection("jdbc:h2:mem:search-benchmark", "sa", "");
+    DatabaseVersionUpdater.updateDatabase(connection);
+    DatabaseManager database = new DatabaseManager(connection) {
+      @Override
+      public void loadIntoMenagerie(Menagerie menagerie) {
+        final Random random = new Random(42);
+        for (int id = 1; id <= TAGS; id++) {
+          menagerie.getTags().add(new Tag(menagerie, id, "tag_" + id, null));
+        }
+        for (int id = 1; id <= ITEMS; id++) {
+          Item item = new MediaItem(menagerie, id, id,
+              new File("/archive/" + (id % 100) + "/" + (id % 997) + "/file_" + id + ".jpg"));
+          List<Tag> tags = new ArrayList<>();
+          for (int i = 0; i < TAGS_PER_ITEM; i++) {
+            final int tag = (int) Math.min(TAGS, Math.pow(TAGS, random.nextDouble()));
+            tags.add(menagerie.getTags().get(tag - 1));
+          }
+          item.addLoadedTags(tags);
+          menagerie.getItems().add(item);
+        }
+      }
+    };
+    Menagerie menagerie = new Menagerie(database);
+
+    for (int round = 0; round < 3; round++) {
+      System.out.println("Round " + (round + 1));
+      for (String query : QUERIES) {
+        final double indexed = time(search -> search.refreshSearch(menagerie), query);
+        final double scanned = time(search -> search.refreshSearch(menagerie.getItems()), query);
+        final Search search = new Search(query, false, true, false);
+        search.refreshSearch(menagerie);
+        System.out.printf("  %-22s %8d results   indexed %9.2f ms   scanned %9.2f ms%n", query,
+            search.getResults().size(), indexed, scanned);
+      }
+    }
+
+    connection.close();
+  }
+
+  private static double time(Consumer<Search> refresh, String query) {
+    final Search search = new Search(query, false, true, false);
+    final long start = System.nanoTime();
+    refresh.accept(search);
+    return (System.nanoTime() - start) / 1e6;
+  }
+
+}
@@ -0,0 +1,210 @@
+package menagerie.model.search;
+
+import menagerie.model.menagerie.GroupItem;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.Tag;
+import menagerie.model.menagerie.db.DatabaseManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class SearchPlanTest {
+
+  private Menagerie menagerie;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    DatabaseManager database = mock(DatabaseManager.class);
+    doAnswer(invocation -> {
+      Menagerie m = invocation.getArgument(0);
+      Tag a = new Tag(m, 1, "a", null);
+      Tag b = new Tag(m, 2, "b", null);
+      Tag c = new Tag(m, 3, "c", null);
+      m.getTags().addAll(List.of(a, b, c));
+      for (int id = 1; id <= 6; id++) {
+        File file = new File("/archive/" + (id % 2 == 0 ? "even" : "odd") + "/item_" + id);
+        MediaItem item = new MediaItem(m, id, id, file);
+        List<Tag> tags = new ArrayList<>();
+        if (id <= 4) {
+          tags.add(a);
+        }
+        if (id == 2 || id == 3 || id == 5) {
+          tags.add(b);
+        }
+        if (id == 3 || id == 6) {
+          tags.add(c);
+        }
+        item.addLoadedTags(tags);
+        m.getItems().add(item);
+      }
+      return null;
+    }).when(database).loadIntoMenagerie(any());
+
+    menagerie = new Menagerie(database);
+  }
+
+  private List<Integer> search(String query) {
+    Search indexed = new Search(query, false, true, false);
+    indexed.refreshSearch(menagerie);
+    Search scanned = new Search(query, false, true, false);
+    scanned.refreshSearch(menagerie.getItems());
+
+    List<Integer> ids = indexed.getResults().stream().map(Item::getId).toList();
+    assertEquals(scanned.getResults().stream().map(Item::getId).toList(), ids, query);
+    return ids;
+  }
+
+  @Test
+  void includedTags() {
+    assertEquals(List.of(1, 2, 3, 4), search("a"));
+    assertEquals(List.of(2, 3), search("a b"));
+    assertEquals(List.of(3), search("B C a"));
+    assertEquals(List.of(), search("a unknown"));
+  }
+
+  @Test
+  void excludedTags() {
+    assertEquals(List.of(2), search("a b -c"));
+    assertEquals(List.of(1, 4), search("a -b -unknown"));
+    assertEquals(List.of(1, 2, 4, 5), search("-c id:<6"));
+  }
+
+  @Test
+  void idRanges() {
+    assertEquals(List.of(1, 2), search("a id:<3"));
+    assertEquals(List.of(3, 4), search("a -id:<3"));
+    assertEquals(List.of(2), search("id:2"));
+    assertEquals(List.of(), search("id:<1"));
+    assertEquals(List.of(5, 6), search("id:>4"));
+    assertEquals(List.of(1, 2, 3), search("a -id:>3"));
+  }
+
+  @Test
+  void dateRanges() {
+    assertEquals(List.of(3, 4), search("a date:>2"));
+    assertEquals(List.of(1, 2), search("a -date:>2"));
+    assertEquals(List.of(3, 4, 5), search("date:>2 date:<6"));
+    assertEquals(List.of(4, 5, 6), search("-date:<4"));
+    assertEquals(List.of(4), search("date:4"));
+    assertEquals(List.of(), search("date:>4 date:<5"));
+    assertEquals(List.of(5), search("b date:>2 -id:3"));
+  }
+
+  @Test
+  void filePaths() {
+    assertEquals(List.of(2, 4, 6), search("path:/even/"));
+    assertEquals(List.of(1, 3), search("a path:odd"));
+    assertEquals(List.of(6), search("file:item_6"));
+    assertEquals(List.of(), search("path:item_7"));
+    assertEquals(List.of(1, 2, 3, 4, 5, 6), search("path:m"));
+    assertEquals(List.of(1, 3, 5), search("-path:even"));
+    // Trigrams present, but not next to each other
+    assertEquals(List.of(), search("path:odd/item_6"));
+
+    assertArrayEquals(new int[]{2, 4, 6},
+        new SearchPlan(SearchRuleParser.parseRules("path:even")).findCandidates(menagerie).toArray());
+  }
+
+  @Test
+  void filePathsFollowMoves() throws IOException {
+    assertEquals(List.of(), search("path:moved"));
+    File dir = Files.createTempDirectory("search-plan").toFile();
+    File file = new File(dir, "imported");
+    assertTrue(file.createNewFile());
+    MediaItem item = menagerie.importFile(file);
+    assertEquals(List.of(item.getId()), search("path:imported"));
+
+    assertTrue(item.moveFile(new File(dir, "moved")));
+    assertEquals(List.of(), search("path:imported"));
+    assertEquals(List.of(item.getId()), search("path:moved"));
+    assertTrue(menagerie.isFilePresent(new File(dir, "moved")));
+    assertFalse(menagerie.isFilePresent(file));
+
+    menagerie.forgetItem(item);
+    assertEquals(List.of(), search("path:moved"));
+    assertTrue(item.getFile().delete());
+    assertTrue(dir.delete());
+  }
+
+  @Test
+  void groupTitles() {
+    final int summer = menagerie.createGroup(new ArrayList<>(), "Summer Beach trip").getId();
+    final GroupItem winter = menagerie.createGroup(new ArrayList<>(), "winter  trip");
+    assertEquals(List.of(summer, winter.getId()), search("title:trip"));
+    assertEquals(List.of(summer), search("title:BEA"));
+    assertEquals(List.of(summer), search("title:each"));
+    assertEquals(List.of(summer), search("title:\"trip summer\""));
+    assertEquals(List.of(), search("title:\"summer winter\""));
+    assertEquals(List.of(winter.getId()), search("title:trip -title:beach"));
+
+    winter.setTitle("Winter beach");
+    assertEquals(List.of(summer, winter.getId()), search("title:beach"));
+    assertEquals(List.of(summer), search("title:trip"));
+
+    winter.ungroup();
+    assertEquals(List.of(summer), search("title:beach"));
+  }
+
+  @Test
+  void columnRules() {
+    assertEquals(List.of(2, 3), search("tags:>1"));
+    assertEquals(List.of(1, 4, 5, 6), search("tags:1"));
+    assertEquals(List.of(2, 3), search("-tags:<2"));
+    assertEquals(List.of(2), search("b tags:2"));
+    assertEquals(List.of(1, 2, 3, 4, 5, 6), search("type:media missing:md5 -type:image"));
+    assertEquals(List.of(), search("is:group"));
+    assertEquals(List.of(5, 6), search("tags:1 date:>4"));
+    assertEquals(List.of(1), search("tags:1 id:<3"));
+
+    menagerie.getItemByID(5).addTag(menagerie.getTagByName("c"));
+    assertEquals(List.of(2, 5), search("tags:2"));
+    final GroupItem group = menagerie.createGroup(new ArrayList<>(List.of(menagerie.getItemByID(1))), "group");
+    assertEquals(List.of(group.getId()), search("type:group"));
+    assertEquals(List.of(group.getId()), search("-missing:md5"));
+  }
+
+  @Test
+  void residualRules() {
+    assertEquals(List.of(2, 3), search("a -id:1 -id:4"));
+    assertEquals(List.of(1, 2, 4), search("a -date:3"));
+    assertEquals(List.of(), search("a type:group"));
+  }
+
+  @Test
+  void planSplitsRules() {
+    SearchPlan plan = new SearchPlan(SearchRuleParser.parseRules("a -b id:>2 -id:5 type:media"));
+    assertEquals(1, plan.getResidualRules().size());
+    assertFalse(plan.isInIdRange(2));
+    assertTrue(plan.isInIdRange(3));
+    assertArrayEquals(new int[]{1, 4}, plan.findCandidates(menagerie).toArray());
+
+    assertNull(new SearchPlan(SearchRuleParser.parseRules("missing:file")).findCandidates(menagerie));
+    assertEquals(6, new SearchPlan(SearchRuleParser.parseRules("type:media")).findCandidates(menagerie)
+        .getCardinality());
+    assertArrayEquals(new int[]{3, 4, 5},
+        new SearchPlan(SearchRuleParser.parseRules("date:>2 date:<6")).findCandidates(menagerie).toArray());
+  }
+
+  @Test
+  void candidatesFollowMenagerieChanges() {
+    menagerie.forgetItems(List.of(menagerie.getItemByID(4)));
+    menagerie.forgetItem(menagerie.getItemByID(1));
+    assertEquals(List.of(3, 5), search("date:>2 date:<6"));
+    assertEquals(List.of(3, 5), search("id:>2 id:<6"));
+    assertEquals(List.of(2), search("a date:<3"));
+  }
+
+}
@@ -0,0 +1,165 @@
+package menagerie.model.search;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.Tag;
+import menagerie.model.menagerie.db.DatabaseManager;
+import menagerie.model.search.rules.TagRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class SearchTaskTest {
+
+  private Menagerie menagerie;
+
+  /**
+   * Publishing tasks, held until the test runs them.
+   */
+  private final List<Runnable> published = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    DatabaseManager database = mock(DatabaseManager.class);
+    doAnswer(invocation -> {
+      Menagerie m = invocation.getArgument(0);
+      Tag even = new Tag(m, 1, "even", null);
+      m.getTags().add(even);
+      for (int id = 1; id <= 20; id++) {
+        MediaItem item = new MediaItem(m, id, id, null);
+        if (id % 2 == 0) {
+          item.addLoadedTags(List.of(even));
+        }
+        m.getItems().add(item);
+      }
+      return null;
+    }).when(database).loadIntoMenagerie(any());
+
+    menagerie = new Menagerie(database);
+    published.clear();
+  }
+
+  private static List<Integer> ids(Search search) {
+    return search.getResults().stream().map(Item::getId).toList();
+  }
+
+  private void runPublished() {
+    published.forEach(Runnable::run);
+    published.clear();
+  }
+
+  @Test
+  void matchesSynchronousSearch() {
+    for (String query : List.of("", "even", "-even id:<10", "date:>15", "even id:>30")) {
+      for (boolean descending : List.of(false, true)) {
+        Search search = new Search(query, descending, true, false);
+        SearchTask task = new SearchTask(search, menagerie, published::add, 3);
+        task.run();
+        runPublished();
+
+        Search expected = new Search(query, descending, true, false);
+        expected.refreshSearch(menagerie);
+        assertEquals(ids(expected), ids(search), query);
+        assertTrue(task.isFinished());
+      }
+    }
+  }
+
+  @Test
+  void firstScreenPublishedFirst() {
+    Search search = new Search("even", false, true, false);
+    SearchTask task = new SearchTask(search, menagerie, published::add, 3);
+    final List<Integer> sizes = new ArrayList<>();
+    final int[] finished = {0};
+    task.setOnProgress(() -> sizes.add(search.getResults().size()));
+    task.setOnFinished(() -> finished[0]++);
+    task.run();
+
+    assertEquals(2, published.size());
+    published.get(0).run();
+    assertEquals(List.of(2, 4, 6), ids(search));
+    assertFalse(task.isFinished());
+    published.get(1).run();
+    assertEquals(List.of(3, 10), sizes);
+    assertEquals(1, finished[0]);
+    assertTrue(task.isFinished());
+  }
+
+  @Test
+  void cancelledTaskPublishesNothing() {
+    Search search = new Search("", false, true, false);
+    SearchTask task = new SearchTask(search, menagerie, published::add, 5);
+    task.setOnFinished(() -> fail("Cancelled task finished"));
+    task.run();
+    task.cancel();
+    runPublished();
+
+    assertTrue(search.getResults().isEmpty());
+    assertFalse(task.isFinished());
+  }
+
+  @Test
+  void mergesWithConcurrentRefreshes() {
+    Search search = new Search("even", false, true, false);
+    SearchTask task = new SearchTask(search, menagerie, published::add, 3);
+    task.run();
+
+    // An edit refreshed the search before the task's matches arrived
+    search.refreshSearch(List.of(menagerie.getItemByID(8), menagerie.getItemByID(2)));
+    runPublished();
+    assertEquals(List.of(2, 4, 6, 8, 10, 12, 14, 16, 18, 20), ids(search));
+  }
+
+  @Test
+  void changedMatchesDroppedWhenPublished() {
+    Search search = new Search("even", false, true, false);
+    SearchTask task = new SearchTask(search, menagerie, published::add, 3);
+    task.run();
+
+    // Untagged after the task checked it, before its matches arrived
+    menagerie.getItemByID(4).removeTag(menagerie.getTagByName("even"));
+    runPublished();
+    assertEquals(List.of(2, 6, 8, 10, 12, 14, 16, 18, 20), ids(search));
+  }
+
+  @Test
+  void tagsCheckedAsOfCreation() {
+    Search search = new Search("-even", false, true, false);
+    SearchTask task = new SearchTask(search, menagerie, published::add, 3);
+    menagerie.getItemByID(3).addTag(menagerie.getTagByName("even"));
+    task.run();
+    runPublished();
+    assertEquals(List.of(1, 5, 7, 9, 11, 13, 15, 17, 19), ids(search));
+  }
+
+  @Test
+  void tagRuleSnapshot() {
+    Tag even = menagerie.getTagByName("even");
+    TagRule rule = new TagRule("even", false).snapshot(menagerie);
+    menagerie.getItemByID(3).addTag(even);
+    menagerie.getItemByID(4).removeTag(even);
+
+    assertFalse(rule.accept(menagerie.getItemByID(3)));
+    assertTrue(rule.accept(menagerie.getItemByID(4)));
+    assertFalse(new TagRule("missing", false).snapshot(menagerie).accept(menagerie.getItemByID(4)));
+    assertTrue(new TagRule("even", true).snapshot(menagerie).accept(menagerie.getItemByID(5)));
+  }
+
+  @Test
+  void shuffledFindsEverything() {
+    Search search = new Search("even", false, true, true);
+    new SearchTask(search, menagerie, published::add, 3).run();
+    runPublished();
+    assertEquals(List.of(2, 4, 6, 8, 10, 12, 14, 16, 18, 20), ids(search).stream().sorted().toList());
+  }
+
+}
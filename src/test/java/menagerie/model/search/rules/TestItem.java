@@ -35,6 +35,6 @@ public class TestItem extends Item {
   }
 
   public void setTags(Collection<Tag> tags) {
-    this.tags.addAll(tags);
+    tags.forEach(this::addTag);
   }
 }
@@ -32,8 +32,8 @@ public class TestItemBuilder {
 
   public TestItemBuilder tags(String... tags) {
     List<Tag> tagObjects = new ArrayList<>();
-    for (String t : tags) {
-      tagObjects.add(new Tag(null, 1, t, null));
+    for (int i = 0; i < tags.length; i++) {
+      tagObjects.add(new Tag(null, i + 1, tags[i], null));
     }
     item.setTags(tagObjects);
     return this;
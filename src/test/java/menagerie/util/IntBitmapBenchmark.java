@@ -0,0 +1,111 @@
+package menagerie.util;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Memory and throughput benchmark of tag posting lists stored as {@link IntBitmap}s, compared with the HashSets of
+ * boxed item ids they would otherwise be. Tag sizes follow a Zipf-like distribution over 1M items and 20k tags, so a
+ * few tags are dense and most are sparse. Not a unit test; run the main method with a large heap (-Xmx4g).
+ */
+public class IntBitmapBenchmark {
+
+  private static final int ITEMS = 1_000_000;
+  private static final int TAGS = 20_000;
+  private static final int TAGS_PER_ITEM = 8;
+  private static final int LOOKUPS = 10_000_000;
+
+  public static void main(String[] args) {
+    final Random random = new Random(42);
+    final int[][] tagsOfItem = new int[ITEMS][TAGS_PER_ITEM];
+    for (int item = 0; item < ITEMS; item++) {
+      for (int i = 0; i < TAGS_PER_ITEM; i++) {
+        // Zipf-like: tag ids near 0 are much more common
+        tagsOfItem[item][i] = (int) Math.min(TAGS - 1, Math.pow(TAGS, random.nextDouble()) - 1);
+      }
+    }
+
+    for (int round = 0; round < 3; round++) {
+      System.out.println("Round " + (round + 1));
+
+      long start = System.nanoTime();
+      final IntBitmap[] bitmaps = new IntBitmap[TAGS];
+      for (int t = 0; t < TAGS; t++) {
+        bitmaps[t] = new IntBitmap();
+      }
+      for (int item = 0; item < ITEMS; item++) {
+        for (int t : tagsOfItem[item]) {
+          bitmaps[t].add(item + 1);
+        }
+      }
+      for (IntBitmap bitmap : bitmaps) {
+        bitmap.trim();
+      }
+      final double bitmapBuild = (System.nanoTime() - start) / 1e6;
+
+      long postings = 0;
+      long bitmapBytes = 0;
+      for (IntBitmap bitmap : bitmaps) {
+        postings += bitmap.getCardinality();
+        bitmapBytes += bitmap.getSizeInBytes();
+      }
+
+      start = System.nanoTime();
+      @SuppressWarnings("unchecked") final Set<Integer>[] sets = new Set[TAGS];
+      for (int t = 0; t < TAGS; t++) {
+        sets[t] = new HashSet<>();
+      }
+      for (int item = 0; item < ITEMS; item++) {
+        for (int t : tagsOfItem[item]) {
+          sets[t].add(item + 1);
+        }
+      }
+      final double setBuild = (System.nanoTime() - start) / 1e6;
+      final long setBytes = heapUsed();
+      for (int t = 0; t < TAGS; t++) {
+        sets[t] = null;
+      }
+      final long setBytesFreed = setBytes - heapUsed();
+
+      System.out.printf("  %d postings%n", postings);
+      System.out.printf("  build       bitmap %8.1f ms   hashset %8.1f ms%n", bitmapBuild, setBuild);
+      System.out.printf("  memory      bitmap %8.1f MB   hashset %8.1f MB%n", bitmapBytes / 1e6, setBytesFreed / 1e6);
+
+      final int[] probeTags = random.ints(LOOKUPS, 0, TAGS).toArray();
+      final int[] probeItems = random.ints(LOOKUPS, 1, ITEMS + 1).toArray();
+      start = System.nanoTime();
+      int hits = 0;
+      for (int i = 0; i < LOOKUPS; i++) {
+        if (bitmaps[probeTags[i]].contains(probeItems[i])) {
+          hits++;
+        }
+      }
+      System.out.printf("  contains    %8.1f ns/lookup (%d hits)%n", (System.nanoTime() - start) / (double) LOOKUPS, hits);
+
+      start = System.nanoTime();
+      long sum = 0;
+      for (IntBitmap bitmap : bitmaps) {
+        for (int id : bitmap.toArray()) {
+          sum += id;
+        }
+      }
+      System.out.printf("  toArray     %8.1f ns/posting (%d)%n", (System.nanoTime() - start) / (double) postings, sum);
+
+      start = System.nanoTime();
+      for (int item = 0; item < ITEMS; item++) {
+        bitmaps[tagsOfItem[item][0]].remove(item + 1);
+      }
+      System.out.printf("  remove      %8.1f ns/remove%n", (System.nanoTime() - start) / (double) ITEMS);
+    }
+  }
+
+  private static long heapUsed() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    final Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
@@ -0,0 +1,165 @@
+package menagerie.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntBitmapTests {
+
+  @Test
+  void addRemoveContains() {
+    IntBitmap bitmap = new IntBitmap();
+    assertTrue(bitmap.isEmpty());
+
+    assertTrue(bitmap.add(5));
+    assertTrue(bitmap.add(1 << 20));
+    assertTrue(bitmap.add(0));
+    assertFalse(bitmap.add(5));
+    assertEquals(3, bitmap.getCardinality());
+    assertTrue(bitmap.contains(1 << 20));
+    assertFalse(bitmap.contains(6));
+    assertFalse(bitmap.contains(-1));
+    assertArrayEquals(new int[]{0, 5, 1 << 20}, bitmap.toArray());
+
+    assertTrue(bitmap.remove(1 << 20));
+    assertFalse(bitmap.remove(1 << 20));
+    assertArrayEquals(new int[]{0, 5}, bitmap.toArray());
+    assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+  }
+
+  @Test
+  void convertsBetweenContainers() {
+    IntBitmap bitmap = new IntBitmap();
+    for (int i = 0; i <= IntBitmap.ARRAY_MAX; i++) {
+      bitmap.add(i * 2);
+      if (i == IntBitmap.ARRAY_MAX - 1) {
+        bitmap.trim();
+        assertTrue(bitmap.getSizeInBytes() < 3 * IntBitmap.ARRAY_MAX);
+      }
+    }
+    final long dense = bitmap.getSizeInBytes();
+    assertTrue(dense >= 8192 && dense < 9000);
+    assertEquals(IntBitmap.ARRAY_MAX + 1, bitmap.getCardinality());
+    assertTrue(bitmap.contains(IntBitmap.ARRAY_MAX * 2));
+    assertFalse(bitmap.contains(3));
+
+    for (int i = 0; i <= IntBitmap.ARRAY_MAX / 2; i++) {
+      assertTrue(bitmap.remove(i * 2));
+    }
+    bitmap.trim();
+    assertEquals(IntBitmap.ARRAY_MAX / 2, bitmap.getCardinality());
+    assertTrue(bitmap.getSizeInBytes() < dense / 2 + 100);
+    assertTrue(bitmap.contains(IntBitmap.ARRAY_MAX + 2));
+    assertFalse(bitmap.contains(IntBitmap.ARRAY_MAX));
+  }
+
+  @Test
+  void matchesTreeSet() {
+    Random random = new Random(42);
+    IntBitmap bitmap = new IntBitmap();
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 200_000; i++) {
+      // Mostly dense in the first containers, sparse further out
+      final int value = random.nextBoolean() ? random.nextInt(3 << 16) : random.nextInt(Integer.MAX_VALUE);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(value), bitmap.remove(value));
+      } else {
+        assertEquals(expected.add(value), bitmap.add(value));
+      }
+    }
+
+    assertEquals(expected.size(), bitmap.getCardinality());
+    assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), bitmap.toArray());
+    List<Integer> iterated = new ArrayList<>();
+    bitmap.forEach(iterated::add);
+    assertEquals(new ArrayList<>(expected), iterated);
+    for (int i = 0; i < 10_000; i++) {
+      final int value = random.nextInt(3 << 16);
+      assertEquals(expected.contains(value), bitmap.contains(value));
+    }
+  }
+
+  @Test
+  void setOperations() {
+    Random random = new Random(7);
+    IntBitmap a = new IntBitmap();
+    IntBitmap b = new IntBitmap();
+    TreeSet<Integer> expectedA = new TreeSet<>();
+    TreeSet<Integer> expectedB = new TreeSet<>();
+    // Dense and sparse containers on both sides, plus keys only one side has
+    for (int i = 0; i < 50_000; i++) {
+      final int dense = random.nextInt(2 << 16);
+      final int sparse = random.nextInt(10 << 16);
+      a.add(dense);
+      expectedA.add(dense);
+      b.add(sparse);
+      expectedB.add(sparse);
+      if (i % 3 == 0) {
+        a.add(sparse);
+        expectedA.add(sparse);
+        b.add(dense);
+        expectedB.add(dense);
+      }
+    }
+
+    TreeSet<Integer> expectedAnd = new TreeSet<>(expectedA);
+    expectedAnd.retainAll(expectedB);
+    TreeSet<Integer> expectedAndNot = new TreeSet<>(expectedA);
+    expectedAndNot.removeAll(expectedB);
+    TreeSet<Integer> expectedBAndNot = new TreeSet<>(expectedB);
+    expectedBAndNot.removeAll(expectedA);
+
+    assertArrayEquals(toArray(expectedAnd), a.and(b).toArray());
+    assertArrayEquals(toArray(expectedAnd), b.and(a).toArray());
+    assertEquals(expectedAnd.size(), a.and(b).getCardinality());
+    assertArrayEquals(toArray(expectedAndNot), a.andNot(b).toArray());
+    assertArrayEquals(toArray(expectedBAndNot), b.andNot(a).toArray());
+    assertEquals(expectedBAndNot.size(), b.andNot(a).getCardinality());
+    assertTrue(a.andNot(a).isEmpty());
+
+    IntBitmap copy = a.copy();
+    copy.remove(expectedA.first());
+    copy.add(Integer.MAX_VALUE);
+    assertTrue(a.contains(expectedA.first()));
+    assertFalse(a.contains(Integer.MAX_VALUE));
+    assertEquals(expectedA.size(), a.getCardinality());
+  }
+
+  @Test
+  void range() {
+    Random random = new Random(11);
+    IntBitmap bitmap = new IntBitmap();
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 50_000; i++) {
+      final int value = random.nextInt(4 << 16);
+      bitmap.add(value);
+      expected.add(value);
+    }
+    bitmap.add(Integer.MAX_VALUE);
+    expected.add(Integer.MAX_VALUE);
+
+    for (int[] range : new int[][]{{0, 100}, {1000, (3 << 16) + 5}, {1 << 16, (2 << 16) - 1}, {-5, 3},
+        {200_000, Integer.MAX_VALUE}, {Integer.MIN_VALUE, -1}, {10, 9}}) {
+      final TreeSet<Integer> slice = range[0] > range[1] ? new TreeSet<>() :
+          new TreeSet<>(expected.subSet(range[0], true, range[1], true));
+      final IntBitmap result = bitmap.range(range[0], range[1]);
+      assertArrayEquals(toArray(slice), result.toArray());
+      assertEquals(slice.size(), result.getCardinality());
+    }
+
+    // Whole containers are copies
+    IntBitmap whole = bitmap.range(0, (1 << 16) - 1);
+    whole.remove(expected.first());
+    assertTrue(bitmap.contains(expected.first()));
+  }
+
+  private static int[] toArray(TreeSet<Integer> set) {
+    return set.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+}
@@ -0,0 +1,84 @@
+package menagerie.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeIndexTests {
+
+  private record Pair(long key, int id) {
+  }
+
+  private static final Comparator<Pair> ORDER = Comparator.comparingLong(Pair::key).thenComparingInt(Pair::id);
+
+  @Test
+  void rangesAreInclusive() {
+    RangeIndex index = new RangeIndex();
+    index.add(10, 3);
+    index.add(5, 1);
+    index.add(10, 2);
+    index.add(20, 4);
+    index.add(10, 2);
+    assertEquals(4, index.size());
+
+    assertArrayEquals(new int[]{2, 3}, index.idsInRange(10, 10).toArray());
+    assertArrayEquals(new int[]{1, 2, 3}, index.idsInRange(Long.MIN_VALUE, 19).toArray());
+    assertArrayEquals(new int[]{4}, index.idsInRange(11, Long.MAX_VALUE).toArray());
+    assertEquals(4, index.countInRange(Long.MIN_VALUE, Long.MAX_VALUE));
+    assertEquals(0, index.countInRange(6, 9));
+    assertEquals(0, index.countInRange(20, 10));
+    assertTrue(index.idsInRange(20, 10).isEmpty());
+
+    assertTrue(index.remove(10, 2));
+    assertFalse(index.remove(10, 2));
+    assertFalse(index.remove(20, 3));
+    assertArrayEquals(new int[]{3}, index.idsInRange(10, 10).toArray());
+  }
+
+  @Test
+  void matchesTreeSet() {
+    Random random = new Random(3);
+    RangeIndex index = new RangeIndex();
+    TreeSet<Pair> expected = new TreeSet<>(ORDER);
+    for (int id = 0; id < 20_000; id++) {
+      final long key = random.nextInt(5000) - 1000;
+      index.addUnsorted(key, id);
+      expected.add(new Pair(key, id));
+    }
+    index.sort();
+    for (int id = 20_000; id < 21_000; id++) {
+      final long key = random.nextInt(5000) - 1000;
+      index.add(key, id);
+      expected.add(new Pair(key, id));
+    }
+
+    IntBitmap removed = new IntBitmap();
+    for (Pair pair : expected.toArray(new Pair[0])) {
+      if (random.nextInt(4) == 0) {
+        if (random.nextBoolean()) {
+          assertTrue(index.remove(pair.key(), pair.id()));
+        } else {
+          removed.add(pair.id());
+        }
+        expected.remove(pair);
+      }
+    }
+    index.removeAll(removed);
+    index.trim();
+    assertEquals(expected.size(), index.size());
+
+    for (int i = 0; i < 1000; i++) {
+      final long min = random.nextInt(6000) - 1500;
+      final long max = min + random.nextInt(500);
+      final int[] ids = expected.subSet(new Pair(min, Integer.MIN_VALUE), true, new Pair(max, Integer.MAX_VALUE), true)
+          .stream().mapToInt(Pair::id).sorted().toArray();
+      assertArrayEquals(ids, index.idsInRange(min, max).toArray());
+      assertEquals(ids.length, index.countInRange(min, max));
+    }
+  }
+
+}
@@ -0,0 +1,40 @@
+package menagerie.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenIndexTests {
+
+  @Test
+  void tokenize() {
+    assertEquals(List.of("holiday", "2019", "(beach)"), TokenIndex.tokenize("  Holiday 2019\t(Beach) "));
+    assertEquals(List.of(), TokenIndex.tokenize(""));
+    assertEquals(List.of(), TokenIndex.tokenize(null));
+  }
+
+  @Test
+  void findsWords() {
+    TokenIndex index = new TokenIndex();
+    index.add(1, "Holiday beach");
+    index.add(2, "Beaches of the world");
+    index.add(3, "Reach out");
+    index.add(4, "");
+
+    assertArrayEquals(new int[]{1, 2}, index.findPrefix("bea").toArray());
+    assertArrayEquals(new int[]{1, 2, 3}, index.findContaining("each").toArray());
+    assertArrayEquals(new int[]{2}, index.findContaining("beaches").toArray());
+    assertArrayEquals(new int[]{1, 2, 3, 4}, index.findContaining("").toArray());
+    assertArrayEquals(new int[]{1}, index.findContainingAll(List.of("each", "day")).toArray());
+    assertTrue(index.findContainingAll(List.of("each", "nothing")).isEmpty());
+
+    index.remove(1, "Holiday beach");
+    index.add(1, "Holiday mountains");
+    assertArrayEquals(new int[]{2, 3}, index.findContaining("each").toArray());
+    assertArrayEquals(new int[]{1}, index.findPrefix("mount").toArray());
+    assertEquals(8, index.size());
+  }
+
+}
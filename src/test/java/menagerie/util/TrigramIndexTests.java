@@ -0,0 +1,58 @@
+package menagerie.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTests {
+
+  @Test
+  void findsCandidates() {
+    TrigramIndex index = new TrigramIndex();
+    index.add(1, "/photos/2019/beach.png");
+    index.add(2, "/photos/2020/Beach.png");
+    index.add(3, "/videos/2019/beach.mp4");
+
+    assertArrayEquals(new int[]{1, 3}, index.find("beach").toArray());
+    assertArrayEquals(new int[]{2}, index.find("Bea").toArray());
+    assertArrayEquals(new int[]{1, 2}, index.find("photos/20").toArray());
+    assertTrue(index.find("beaches").isEmpty());
+    assertNull(index.find("be"));
+    assertNull(index.find(""));
+
+    index.remove(1, "/photos/2019/beach.png");
+    assertArrayEquals(new int[]{3}, index.find("beach").toArray());
+    index.add(1, "/photos/2019/sea.png");
+    assertArrayEquals(new int[]{1, 2}, index.find(".png").toArray());
+  }
+
+  @Test
+  void candidatesContainAllMatches() {
+    Random random = new Random(5);
+    TrigramIndex index = new TrigramIndex();
+    Map<Integer, String> texts = new HashMap<>();
+    for (int id = 0; id < 5000; id++) {
+      StringBuilder text = new StringBuilder();
+      for (int i = 0; i < 5 + random.nextInt(30); i++) {
+        text.append((char) ('a' + random.nextInt(6)));
+      }
+      texts.put(id, text.toString());
+      index.add(id, text.toString());
+    }
+
+    for (int i = 0; i < 200; i++) {
+      final String query = texts.get(random.nextInt(texts.size())).substring(0, 3 + random.nextInt(3));
+      final IntBitmap candidates = index.find(query);
+      texts.forEach((id, text) -> {
+        if (text.contains(query)) {
+          assertTrue(candidates.contains(id), query);
+        }
+      });
+    }
+  }
+
+}